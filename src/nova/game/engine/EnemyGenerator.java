@@ -1,6 +1,6 @@
 package nova.game.engine;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import nova.game.ship.Bullet;
 import nova.game.ship.CarrierShip;
@@ -12,14 +12,14 @@ import nova.game.ship.TriangleShip;
 import nova.game.util.LinkList;
 
 /**
- * Enemy generator that simply creates a new enemy every second.
+ * Enemy generator that simply creates a new enemy every second of
+ * simulated time.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.1
  */
 public class EnemyGenerator
 {
-    private static final Random randGen = new Random();
     private long lastEnemy;
 
     /**
@@ -27,7 +27,7 @@ public class EnemyGenerator
      */
     public EnemyGenerator()
     {
-        lastEnemy = System.currentTimeMillis();
+        lastEnemy = SimClock.instance.getMillis();
     }
 
     /**
@@ -39,9 +39,10 @@ public class EnemyGenerator
      */
     public void generateWave(LinkList<Ship> enemies, LinkList<Bullet> bullets, MainShip ship)
     {
-        if(System.currentTimeMillis() - lastEnemy >= 1000)
+        SplittableRandom randGen = WorldRandom.instance.getEnemies();
+        if(SimClock.instance.getMillis() - lastEnemy >= 1000)
         {
-            lastEnemy = System.currentTimeMillis();
+            lastEnemy = SimClock.instance.getMillis();
             int rand = randGen.nextInt(4);
             int x = randGen.nextInt(GameSettings.WIDTH);
             int y = randGen.nextInt(GameSettings.HEIGHT);
@@ -1,6 +1,6 @@
 package nova.game.engine;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import nova.game.ship.Bullet;
 import nova.game.ship.CarrierShip;
@@ -13,13 +13,13 @@ import nova.game.util.LinkList;
 
 /**
  * Generates enemies and gets progressively harder as time goes on.
+ * Waves are timed by the simulation clock.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.5
  */
 public class EnemyGenerator2
 {
-    private static final Random randGen = new Random();
     private long lastEnemy;
     private int waveInterval = 0;
 
@@ -28,7 +28,7 @@ public class EnemyGenerator2
      */
     public EnemyGenerator2()
     {
-        lastEnemy = System.currentTimeMillis();
+        lastEnemy = SimClock.instance.getMillis();
     }
 
     /**
@@ -41,6 +41,7 @@ public class EnemyGenerator2
      */
     public void generateWave(LinkList<Ship> enemies, LinkList<Bullet> bullets, MainShip ship)
     {
+        SplittableRandom randGen = WorldRandom.instance.getEnemies();
         int width = (GameSettings.WIDTH);
         int height = (GameSettings.HEIGHT);
 
@@ -54,9 +55,9 @@ public class EnemyGenerator2
                 waveInterval = 500;
             if ((Engine.instance.getScore() >= 10000) && (Engine.instance.getScore() <= 13000))
                 waveInterval = 300;
-            if(System.currentTimeMillis() - lastEnemy >= waveInterval)
+            if(SimClock.instance.getMillis() - lastEnemy >= waveInterval)
             {
-                lastEnemy = System.currentTimeMillis();
+                lastEnemy = SimClock.instance.getMillis();
                 int randWave = randGen.nextInt(4);
                 int x = randGen.nextInt(GameSettings.WIDTH);
                 int y = randGen.nextInt(GameSettings.HEIGHT);
@@ -94,9 +95,9 @@ public class EnemyGenerator2
             else if (Engine.instance.getScore() >= 1000000)
                 waveInterval = 750;
 
-            if(System.currentTimeMillis() - lastEnemy >= waveInterval)
+            if(SimClock.instance.getMillis() - lastEnemy >= waveInterval)
             {
-                lastEnemy = System.currentTimeMillis();
+                lastEnemy = SimClock.instance.getMillis();
                 int randWave = randGen.nextInt(4);
                 int x = randGen.nextInt(GameSettings.WIDTH);
                 int y = randGen.nextInt(GameSettings.HEIGHT);
@@ -1,44 +1,81 @@
 package nova.game.engine;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
-import java.awt.FontMetrics;
-import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import javax.imageio.ImageIO;
-import javax.swing.Timer;
 
+import nova.game.engine.grid.SpringGrid;
 import nova.game.engine.particle.ParticleEngine;
-import nova.game.engine.particle.LineParticle;
-import nova.game.gui.NovaPanel;
+import nova.game.render.GlyphAtlas;
+import nova.game.render.QualitySettings;
+import nova.game.render.Surface;
+import nova.game.render.VectorBatch;
 import nova.game.ship.Bullet;
 import nova.game.ship.MainShip;
 import nova.game.ship.Ship;
 import nova.game.util.LinkList;
+import nova.game.util.TripleBuffer;
 
 /**
  * The main game engine.  It maintains all the main game
  * data (score, multiplier, etc) and is responsible for
  * painting the main game.
+ * <p>
+ * The game runs in a fixed-step game loop on a thread of its own.  At the end
+ * of each step the engine publishes a WorldSnapshot, and rendering draws
+ * the latest snapshot, blending each entity between its last two poses.
+ * <p>
+ * The font, images and HUD are only loaded when the game is first drawn,
+ * and the high score is only read when the game is first started, so the
+ * world can be built and stepped with no screen or network, as the
+ * HeadlessRunner does.  Each step reads its input from a single
+ * InputFrame, captured from the EventHandler as the step starts or
+ * handed in when a script is played back.  The frame of every step can
+ * be recorded to the file named by the nova.record system property, and
+ * played back.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.9
  */
 public class Engine
 {
+    //color of all text drawn over the game - must be set before the
+    //instance is created
+    private static final Color TEXT_COLOR = new Color(0, 255, 0, 125);
+
+    //system property naming the file the input of every step is recorded
+    //to - must be set before the instance is created
+    private static final String RECORD_PROPERTY = "nova.record";
+
     public static final Engine instance = new Engine();
-    private static final int TIMER_DELAY = 20;
 
-    private Timer gameTimer;
+    //force fields that push particles away from explosions and the main ship
+    private static final double EXPLOSION_RADIUS = 150.0;
+    private static final double EXPLOSION_FORCE = 6.0;
+    private static final double WAKE_RADIUS = 60.0;
+    private static final double WAKE_FORCE = 1.5;
+
+    //forces that warp the background grid
+    private static final double GRID_EXPLOSION_RADIUS = 120.0;
+    private static final double GRID_EXPLOSION_FORCE = 3.0;
+    private static final double GRID_WAKE_RADIUS = 50.0;
+    private static final double GRID_WAKE_FORCE = 0.15;
+
+    private GameLoop gameLoop;
+    private TripleBuffer<WorldSnapshot> snapshots;
     private Font font;
     private BufferedImage lifeHeart;
+    private GlyphAtlas glyphs;
+    private HudLayer hud;
 
     private MainShip ship;
     private static LinkList<Ship> enemies;
@@ -54,10 +91,15 @@ public class Engine
     private int multiplier;
     private boolean gameOver;
     private int toggle;
+    private boolean highScoreRead;
+    private InputScript recording;
+
+    //input of the step being run
+    private InputFrame input;
 
     /**
-     * Initializes all the necessary elements and reads
-     * the high score.
+     * Initializes all the necessary elements, and starts recording input
+     * if asked to.
      */
     private Engine()
     {
@@ -68,10 +110,69 @@ public class Engine
         collisionHandler = new CollisionChecker();
         enemyGenerator = new EnemyGenerator2();
 
-        loadFont();
-        loadImages();
         setUp();
 
+        snapshots = new TripleBuffer<WorldSnapshot>(new WorldSnapshot(),
+                new WorldSnapshot(), new WorldSnapshot());
+        gameLoop = new GameLoop("Nova Engine", SimClock.TICK_MILLIS, new Runnable()
+        {
+            public void run()
+            {
+                step(EventHandler.instance.capture());
+            }
+        });
+
+        String record = System.getProperty(RECORD_PROPERTY);
+        if(record != null)
+        {
+            startRecording(new File(record));
+        }
+    }
+
+    /**
+     * Helper method that records the input of every step from now on, and
+     * saves it to a file when the program exits.
+     *
+     * @param file The file
+     */
+    private void startRecording(final File file)
+    {
+        recording = new InputScript(WorldRandom.instance.getSeed());
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    recording.save(file);
+                }
+                catch(IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }, "Nova Recorder"));
+    }
+
+    /**
+     * Helper method that loads the font, images and HUD the first time
+     * the game is drawn.
+     */
+    private void loadResources()
+    {
+        getFont();
+        loadImages();
+        glyphs = new GlyphAtlas(font, TEXT_COLOR);
+        hud = new HudLayer(glyphs, lifeHeart);
+    }
+
+    /**
+     * Helper method that reads the high score the first time the game is
+     * started.
+     */
+    private void readHighScore()
+    {
+        highScoreRead = true;
         try
         {
             HighScoreManager.refreshScores();
@@ -86,12 +187,15 @@ public class Engine
     /**
      * Causes all entities on screen to move, including
      * the particles.  It also handles mouse and key events.
+     * Particles are acted upon while collisions are being checked.
      */
     private void act()
     {
         moveShips();
-        ParticleEngine.instance.act();
+        SpringGrid.instance.act();
+        ParticleEngine.instance.beginAct();
         checkForCollisions();
+        ParticleEngine.instance.finishAct();
         enemyGenerator.generateWave(enemies, bullets, ship);
         handleKeyEvents();
         handleMouseEvents();
@@ -118,15 +222,50 @@ public class Engine
     }
 
     /**
-     * Returns the special font used for the game.
+     * Returns the special font used for the game, loading it the first
+     * time.
      *
      * @return The font
      */
     public Font getFont()
     {
+        if(font == null)
+        {
+            loadFont();
+        }
         return font;
     }
 
+    /**
+     * Returns the number of enemies alive.
+     *
+     * @return Number of enemies
+     */
+    int getEnemyCount()
+    {
+        return enemies.size();
+    }
+
+    /**
+     * Returns the number of bullets in flight.
+     *
+     * @return Number of bullets
+     */
+    int getBulletCount()
+    {
+        return bullets.size();
+    }
+
+    /**
+     * Returns the number of lives left.
+     *
+     * @return Lives left
+     */
+    int getLivesLeft()
+    {
+        return livesLeft;
+    }
+
     /**
      * Returns the current score of the game.
      *
@@ -143,7 +282,7 @@ public class Engine
      */
     private void handleKeyEvents()
     {
-        if(EventHandler.instance.isKeyPressed(KeyEvent.VK_R) && gameOver)
+        if(input.isKeyPressed(KeyEvent.VK_R) && gameOver)
         {
             setUp();
         }
@@ -154,9 +293,9 @@ public class Engine
      */
     private void handleMouseEvents()
     {
-        ship.faceMouse(EventHandler.instance.getMouseX(), EventHandler.instance.getMouseY());
+        ship.faceMouse(input.getMouseX(), input.getMouseY());
 
-        if(EventHandler.instance.isMousePressed())
+        if(input.isMousePressed())
         {
             Bullet b = ship.shoot();
             if(b != null)
@@ -169,18 +308,20 @@ public class Engine
     /**
      * Called when an enemy has been killed.  It removes the
      * ship from the game and reacts accordingly, namely creating
-     * the necessary particles and updating the score and multiplier
-     * if need be.
+     * the necessary particles, pushing away nearby particles and the
+     * background grid, and updating the score and multiplier if need be.
      *
      * @param s The deceased enemy
      * @param assignPoints Whether or not points will be added
      */
     private void killEnemy(Ship s, boolean assignPoints)
     {
+        ParticleEngine.instance.addForceField(s.getX(), s.getY(), EXPLOSION_RADIUS, EXPLOSION_FORCE);
+        SpringGrid.instance.applyRadialForce(s.getX(), s.getY(), GRID_EXPLOSION_RADIUS, GRID_EXPLOSION_FORCE);
         ParticleEngine.instance.createParticles(s.getX(), s.getY());
         for(Line2D line : s.getTransformedLines())
         {
-            ParticleEngine.instance.addParticle(new LineParticle(line, 0.025, s.getColor()));
+            ParticleEngine.instance.createLineParticle(line, 0.025, s.getColor());
         }
 
         if(assignPoints)
@@ -224,6 +365,7 @@ public class Engine
         catch(Exception e)
         {
             e.printStackTrace();
+            font = new Font(Font.SANS_SERIF, Font.PLAIN, 35);
         }
     }
 
@@ -244,7 +386,8 @@ public class Engine
 
     /**
      * Moves all ships and is responsible for creating the stream of
-     * particles emitted by the main ship if necessary.
+     * particles emitted by the main ship if necessary.  A moving main
+     * ship also pushes particles and the background grid out of its way.
      */
     private void moveShips()
     {
@@ -254,9 +397,14 @@ public class Engine
         {
             killMainShip();
         }
+        ship.savePose();
+        ship.steer(input);
         ship.act();
         if(Math.abs(ship.getX()-tempX) > 0.5 || Math.abs(ship.getY()-tempY) > 0.5)
         {
+            ParticleEngine.instance.addForceField(ship.getX(), ship.getY(), WAKE_RADIUS, WAKE_FORCE);
+            SpringGrid.instance.applyDirectedForce(ship.getX(), ship.getY(), GRID_WAKE_RADIUS,
+                    GRID_WAKE_FORCE * (ship.getX()-tempX), GRID_WAKE_FORCE * (ship.getY()-tempY));
             ParticleEngine.instance.createLineParticles(ship.getX(), ship.getY());
         }
 
@@ -271,6 +419,7 @@ public class Engine
             }
             else
             {
+                s.savePose();
                 s.act();
             }
         }
@@ -282,117 +431,136 @@ public class Engine
     }
 
     /**
-     * Pauses the game by stopping the game timer.
+     * Pauses the game by stopping the game loop.
      */
     public void pause()
     {
-        gameTimer.stop();
+        gameLoop.stop();
+    }
+
+    /**
+     * Ends the game loop and its thread, waiting for a step in progress to
+     * finish, so the game is never left half way through a step when the
+     * program exits.
+     */
+    public void shutdown()
+    {
+        gameLoop.shutdown();
     }
 
     /**
-     * Renders the entire game.
+     * Returns the loop running the steps of the game.
      *
-     * @param g The Graphics object being drawn to
+     * @return The game loop
      */
-    public void render(Graphics g)
+    public GameLoop getGameLoop()
     {
-        //draw particles
-        ParticleEngine.instance.paint(g);
+        return gameLoop;
+    }
 
-        if(gameOver)
-        {
-            renderGameOver(g);
-        }
-        else
+    /**
+     * Copies the state of the game into the next snapshot and publishes it
+     * to the rendering thread.
+     */
+    private void publish()
+    {
+        WorldSnapshot world = snapshots.getWriteBuffer();
+        world.clear();
+        SpringGrid.instance.record(world.getGrid());
+        ParticleEngine.instance.record(world.getParticles());
+        if(!gameOver)
         {
-            //draw main ship
-            ship.paint(g);
-
-            //draw all enemies
+            world.addShip(ship);
             enemies.startOver();
             while(enemies.hasNext())
             {
-                enemies.next().paint(g);
+                Ship s = enemies.next();
+                if(!s.isDone())
+                {
+                    world.addShip(s);
+                }
             }
-
-            //draw bullets
             bullets.startOver();
             while(bullets.hasNext())
             {
-                bullets.next().paint(g);
+                world.addBullet(bullets.next());
             }
-
-            //render text (HUD)
-            g.setFont(font);
-            g.setColor(new Color(0, 255, 0, 125));
-            renderLives(g);
-            renderMultiplier(g);
-            renderScores(g);
         }
+        world.setStatus(score, Math.max(score, highScore), livesLeft, multiplier, gameOver);
+        world.setPublishTime(System.nanoTime());
+        snapshots.publish();
     }
 
     /**
-     * Helper method used to render text on the screen when
-     * the players lives have run out.
+     * Renders the entire game from the most recently published snapshot.
      *
-     * @param g The Graphics object being drawn to
+     * @param g The surface being drawn to
      */
-    private void renderGameOver(Graphics g)
+    public void render(Surface g)
     {
-        g.setFont(font);
-        g.setColor(new Color(0, 255, 0, 125));
-        g.setColor(new java.awt.Color(0, 255, 0, 125));
-        java.awt.FontMetrics fm = g.getFontMetrics();
-        g.drawString("GAME OVER", GameSettings.WIDTH/2-fm.stringWidth("GAME OVER")/2, 100);
-        g.drawString("FINAL SCORE: "+score, GameSettings.WIDTH/2-fm.stringWidth("FINAL SCORE: "+score)/2, 150);
-        g.drawString("PRESS R TO PLAY AGAIN", GameSettings.WIDTH/2-fm.stringWidth("PRESS R TO PLAY AGAIN")/2, GameSettings.HEIGHT - 10);
-    }
+        if(hud == null)
+        {
+            loadResources();
+        }
+        WorldSnapshot world = snapshots.getReadBuffer();
+        float alpha = world.getAlpha(System.nanoTime(), gameLoop.getTickNanos());
 
-    /**
-     * Helper method used to correctly position the number of lives left.
-     *
-     * @param g The Graphics object being drawn to
-     */
-    private void renderLives(Graphics g)
-    {
-        FontMetrics fm = g.getFontMetrics();
-        int width = lifeHeart.getWidth() + 15 + fm.stringWidth("x "+livesLeft);
-        g.drawImage(lifeHeart, GameSettings.WIDTH/2 - width/2, fm.getHeight()-lifeHeart.getHeight(), null);
-        g.drawString("x "+livesLeft, GameSettings.WIDTH/2-width/2+lifeHeart.getWidth() + 15, fm.getHeight());
-    }
+        //draw background grid
+        world.getGrid().paint(g, alpha);
 
-    /**
-     * Helper method used to correctly position the multiplier.
-     *
-     * @param g The Graphics object being drawn to
-     */
-    private void renderMultiplier(Graphics g)
-    {
-        FontMetrics fm = g.getFontMetrics();
-        String str = "x" + multiplier;
-        g.drawString(str, GameSettings.WIDTH - fm.stringWidth(str) - 10, GameSettings.HEIGHT - 10);
+        //draw particles
+        world.getParticles().paint(g, alpha);
+        VectorBatch.instance.flush();
+
+        if(world.isGameOver())
+        {
+            renderGameOver(g, world);
+        }
+        else
+        {
+            //draw all ships - the only layer worth antialiasing
+            BasicStroke oldStroke = g.getStroke();
+            boolean oldAntialiasing = g.isAntialiased();
+            QualitySettings.instance.getTier().applyShipHints(g);
+            world.paintShips(g, alpha);
+            VectorBatch.instance.flush();
+            g.setAntialiased(oldAntialiasing);
+            g.setStroke(oldStroke);
+
+            //draw bullets
+            world.paintBullets(g, alpha);
+
+            //render text (HUD)
+            hud.paint(g, world.getScore(), world.getHighScore(),
+                      world.getLivesLeft(), world.getMultiplier());
+        }
     }
 
     /**
-     * Helper method used to draw the current and high score.
+     * Helper method used to render text on the screen when
+     * the players lives have run out.
      *
-     * @param g The Graphics object being drawn to
+     * @param g The surface being drawn to
+     * @param world The snapshot being drawn
      */
-    private void renderScores(Graphics g)
+    private void renderGameOver(Surface g, WorldSnapshot world)
     {
-        System.out.println("A");
-        String high = String.valueOf(Math.max(score, highScore));
+        int score = world.getScore();
+        int width = glyphs.stringWidth("FINAL SCORE: ") + glyphs.intWidth(score);
 
-        FontMetrics fm = g.getFontMetrics();
-        g.drawString(String.valueOf(score), 10, fm.getHeight());
-        g.drawString(high, GameSettings.WIDTH - 10 - fm.stringWidth(high), fm.getHeight());
+        glyphs.drawString(g, "GAME OVER", GameSettings.WIDTH/2-glyphs.stringWidth("GAME OVER")/2, 100);
+        int x = glyphs.drawString(g, "FINAL SCORE: ", GameSettings.WIDTH/2-width/2, 150);
+        glyphs.drawInt(g, score, x, 150);
+        glyphs.drawString(g, "PRESS R TO PLAY AGAIN", GameSettings.WIDTH/2-glyphs.stringWidth("PRESS R TO PLAY AGAIN")/2, GameSettings.HEIGHT - 10);
     }
 
     /**
-     * Sets up the game by giving all variables an initial value.
+     * Sets up the game by giving all variables an initial value.  Each
+     * game gets its own random streams.
      */
     public void setUp()
     {
+        WorldRandom.instance.newWorld();
         score = 0;
         livesLeft = 3;
         enemiesKilledThisLife = 0;
@@ -401,37 +569,54 @@ public class Engine
 
         enemies.clear();
         bullets.clear();
+    }
 
-        gameTimer = new Timer(TIMER_DELAY, new ActionListener()
+    /**
+     * Runs a single step of the game on the simulation thread, then
+     * publishes the result.  The simulation clock is advanced and the
+     * input recorded first.  Once the game is over, only the background
+     * keeps moving.
+     *
+     * @param in The input of the step, which is all the step reads
+     */
+    void step(InputFrame in)
+    {
+        input = in;
+        SimClock.instance.tick();
+        if(recording != null)
+        {
+            recording.record(in);
+        }
+        if(gameOver)
         {
-            public void actionPerformed(ActionEvent e)
+            if(++toggle % 3 == 0)
             {
-                if(gameOver)
-                {
-                    if(++toggle % 3 == 0)
-                    {
-                        Random randGen = new Random();
-                        int x = randGen.nextInt(GameSettings.WIDTH);
-                        int y = randGen.nextInt(GameSettings.HEIGHT);
-                        ParticleEngine.instance.createParticles(x, y);
-                    }
-                    ParticleEngine.instance.act();
-                    handleKeyEvents();
-                }
-                else
-                {
-                    act();
-                }
-                NovaPanel.instance.repaint();
+                SplittableRandom randGen = WorldRandom.instance.getEffects();
+                int x = randGen.nextInt(GameSettings.WIDTH);
+                int y = randGen.nextInt(GameSettings.HEIGHT);
+                ParticleEngine.instance.createParticles(x, y);
             }
-        });
+            SpringGrid.instance.act();
+            ParticleEngine.instance.act();
+            handleKeyEvents();
+        }
+        else
+        {
+            act();
+        }
+        publish();
     }
 
     /**
-     * Starts the game timer - can be used as an unpause.
+     * Starts the game loop - can be used as an unpause.  The high score
+     * is read the first time.
      */
     public void start()
     {
-        gameTimer.start();
+        if(!highScoreRead)
+        {
+            readHighScore();
+        }
+        gameLoop.start();
     }
 }
@@ -9,7 +9,10 @@ import java.awt.event.KeyListener;
 /**
  * This class receives all events necessary for the game
  * and sets appropriates flags so the data can be retrieved
- * from other classes.
+ * from other classes.  Events arrive on the AWT event thread but
+ * are read from the simulation thread, so every flag is guarded by
+ * the handler's lock, and the simulation takes all of them at once
+ * with capture().
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.9
@@ -20,6 +23,7 @@ public class EventHandler
     //single static instance
     public static final EventHandler instance = new EventHandler();
 
+    //all guarded by this
     private boolean[] keys = new boolean[256];
     private boolean mousePressed;
     private int mouseX;
@@ -35,7 +39,7 @@ public class EventHandler
      *
      * @return Whether or not the mouse button is pressed
      */
-    public boolean isMousePressed()
+    public synchronized boolean isMousePressed()
     {
         return mousePressed;
     }
@@ -46,7 +50,7 @@ public class EventHandler
      * @param keyCode KeyEvent keycode (e.g. KeyEvent.VK_A)
      * @return Whether or not a specified key is pressed
      */
-    public boolean isKeyPressed(int keyCode)
+    public synchronized boolean isKeyPressed(int keyCode)
     {
         return keys[keyCode];
     }
@@ -57,7 +61,7 @@ public class EventHandler
      *
      * @return The x-coordinate of the mouse
      */
-    public int getMouseX()
+    public synchronized int getMouseX()
     {
         return mouseX;
     }
@@ -68,16 +72,36 @@ public class EventHandler
      *
      * @return The y-coordinate of the mouse
      */
-    public int getMouseY()
+    public synchronized int getMouseY()
     {
         return mouseY;
     }
 
+    /**
+     * Returns the keys the game reads and the state of the mouse as they
+     * are right now, all taken together so that no event can land in
+     * between.
+     *
+     * @return The input
+     */
+    public synchronized InputFrame capture()
+    {
+        int buttons = mousePressed ? InputFrame.MOUSE_BIT : 0;
+        for(int i=0; i<InputFrame.KEYS.length; i++)
+        {
+            if(keys[InputFrame.KEYS[i]])
+            {
+                buttons |= 1 << i;
+            }
+        }
+        return new InputFrame(buttons, mouseX, mouseY);
+    }
+
     /**
      * Handles the mousePressed event by setting the
      * appropriate flag.
      */
-    public void mousePressed(MouseEvent e)
+    public synchronized void mousePressed(MouseEvent e)
     {
         mousePressed = true;
     }
@@ -86,7 +110,7 @@ public class EventHandler
      * Handles the mouseReleased event by setting the
      * appropriate flag.
      */
-    public void mouseReleased(MouseEvent e)
+    public synchronized void mouseReleased(MouseEvent e)
     {
         mousePressed = false;
     }
@@ -95,7 +119,7 @@ public class EventHandler
      * Handles the mouseMoved event by updating the
      * x and y coordinates of the mouse.
      */
-    public void mouseMoved(MouseEvent e)
+    public synchronized void mouseMoved(MouseEvent e)
     {
         mouseX = e.getX();
         mouseY = e.getY();
@@ -105,7 +129,7 @@ public class EventHandler
      * Handles the mouseDragged event by updating the
      * x and y coordinates of the mouse.
      */
-    public void mouseDragged(MouseEvent e)
+    public synchronized void mouseDragged(MouseEvent e)
     {
         mouseX = e.getX();
         mouseY = e.getY();
@@ -115,7 +139,7 @@ public class EventHandler
      * Handles the keyPressed event by updating the
      * appropriate flag.
      */
-    public void keyPressed(KeyEvent e)
+    public synchronized void keyPressed(KeyEvent e)
     {
         keys[e.getKeyCode()] = true;
     }
@@ -124,7 +148,7 @@ public class EventHandler
      * Handles the keyReleased event by updating the
      * appropriate flag.
      */
-    public void keyReleased(KeyEvent e)
+    public synchronized void keyReleased(KeyEvent e)
     {
         keys[e.getKeyCode()] = false;
     }
@@ -0,0 +1,304 @@
+package nova.game.engine;
+
+/**
+ * Runs a step of the simulation at a fixed rate on a thread of its own,
+ * so that the speed of the game does not depend on how long frames take
+ * to draw or on how busy the event thread is.
+ * <p>
+ * Time that has passed is added to an accumulator, and one step is run
+ * for every whole step of time in it, so the simulation keeps pace with
+ * the clock on average even when single steps are late.  At most
+ * MAX_CATCH_UP steps are run in a row; if the loop has fallen further
+ * behind than that (for example after the computer was busy), the rest of
+ * the time is dropped rather than run, so a slow step can never lead to
+ * ever more steps being run to catch up.
+ * <p>
+ * Between steps the loop sleeps until shortly before the next is due, and
+ * then yields until it is, since sleeping alone can wake up a millisecond
+ * or more late.
+ * <p>
+ * A step that throws an exception is reported and the loop waits a little
+ * longer after each failure in a row before trying again, so a step that
+ * keeps failing doesn't spin.  After MAX_FAILURES failures in a row the
+ * loop stops itself until it is started again.
+ * <p>
+ * The loop owns its thread.  It is created the first time the loop is
+ * started and simply waits while the loop is stopped, and it only ends
+ * when the loop is shut down, so starting and stopping the loop any
+ * number of times never leaves more than one thread running steps.
+ * Stopping the loop waits for a step in progress to finish, so once
+ * stop() returns no step of this loop is running, and another loop can
+ * safely take over the work it was doing.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class GameLoop implements Runnable
+{
+    //most steps run in a row to catch up, after which time is dropped
+    private static final int MAX_CATCH_UP = 5;
+
+    //how long before a step is due the loop stops sleeping, in nanoseconds
+    private static final long SPIN_NANOS = 1500000L;
+
+    //failed steps in a row after which the loop stops, and the extra wait
+    //after each failure, in milliseconds
+    private static final int MAX_FAILURES = 10;
+    private static final long FAILURE_BACKOFF = 100;
+
+    private String name;
+    private Runnable step;
+    private long stepNanos;
+    private volatile int slowdown;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    //held by the thread while it runs steps
+    private final Object stepLock = new Object();
+
+    //steps run, and times time had to be dropped
+    private volatile long steps;
+    private volatile long drops;
+
+    /**
+     * Initializes the loop.  No thread is created until it is started.
+     *
+     * @param n Name of the thread
+     * @param delay Time between steps, in milliseconds
+     * @param s The step run at each tick
+     */
+    public GameLoop(String n, int delay, Runnable s)
+    {
+        name = n;
+        step = s;
+        stepNanos = delay * 1000000L;
+        slowdown = 1;
+    }
+
+    /**
+     * Returns the real time between steps, including any slowdown.
+     *
+     * @return Time between steps, in nanoseconds
+     */
+    public long getTickNanos()
+    {
+        return stepNanos * slowdown;
+    }
+
+    /**
+     * Sets how many times longer than usual the loop waits between steps.
+     * Each step still moves the simulation on by the same amount, so it
+     * runs slower.
+     *
+     * @param s The slowdown, at least 1
+     */
+    public void setSlowdown(int s)
+    {
+        slowdown = Math.max(1, s);
+    }
+
+    /**
+     * Returns the number of steps run so far.
+     *
+     * @return Number of steps
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Returns the number of times the loop fell so far behind that time
+     * was dropped.
+     *
+     * @return Number of drops
+     */
+    public long getDrops()
+    {
+        return drops;
+    }
+
+    /**
+     * Starts running steps, creating the thread the first time.
+     */
+    public synchronized void start()
+    {
+        running = true;
+        if(thread == null)
+        {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Stops running steps.  Waits for a step in progress to finish unless
+     * called by a step, and the thread then waits to be started again.
+     */
+    public synchronized void stop()
+    {
+        running = false;
+        synchronized(stepLock)
+        {
+            //nothing to do - a step in progress has finished once the
+            //lock is free, and no more are run after running is cleared
+        }
+    }
+
+    /**
+     * Stops running steps and ends the thread, waiting for a step in
+     * progress to finish.  The loop can be started again afterwards, with
+     * a new thread.
+     */
+    public void shutdown()
+    {
+        Thread t;
+        synchronized(this)
+        {
+            running = false;
+            t = thread;
+            thread = null;
+            notifyAll();
+        }
+
+        if(t != null && t != Thread.currentThread())
+        {
+            t.interrupt();
+            try
+            {
+                t.join();
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Helper method that waits while the loop is stopped.
+     *
+     * @param self The thread running the loop
+     * @return True if the thread had to wait
+     * @throws InterruptedException If the loop is shut down while waiting
+     */
+    private synchronized boolean waitWhileStopped(Thread self) throws InterruptedException
+    {
+        boolean waited = false;
+        while(!running && thread == self)
+        {
+            wait();
+            waited = true;
+        }
+        return waited;
+    }
+
+    /**
+     * Helper method that waits until a point in time, sleeping until
+     * shortly before it and yielding after that.
+     *
+     * @param deadline The time, from System.nanoTime()
+     * @throws InterruptedException If the loop is shut down while waiting
+     */
+    private void waitUntil(long deadline) throws InterruptedException
+    {
+        long remaining = deadline - System.nanoTime();
+        while(remaining > 0)
+        {
+            if(remaining > SPIN_NANOS)
+            {
+                long sleep = remaining - SPIN_NANOS;
+                Thread.sleep(sleep / 1000000, (int)(sleep % 1000000));
+            }
+            else
+            {
+                Thread.yield();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Runs steps at a fixed rate until the loop is shut down.
+     */
+    public void run()
+    {
+        Thread self = Thread.currentThread();
+        long last = System.nanoTime();
+        long accumulator = 0;
+        int failures = 0;
+        while(thread == self)
+        {
+            try
+            {
+                if(waitWhileStopped(self))
+                {
+                    last = System.nanoTime();
+                    accumulator = 0;
+                }
+                if(thread != self)
+                {
+                    return;
+                }
+
+                long now = System.nanoTime();
+                accumulator += now - last;
+                last = now;
+
+                long period = getTickNanos();
+                int caughtUp = 0;
+                synchronized(stepLock)
+                {
+                    while(accumulator >= period && caughtUp < MAX_CATCH_UP && running)
+                    {
+                        step.run();
+                        failures = 0;
+                        steps++;
+                        accumulator -= period;
+                        caughtUp++;
+                    }
+                }
+                if(accumulator >= period && running)
+                {
+                    accumulator %= period;
+                    drops++;
+                }
+
+                waitUntil(last + period - accumulator);
+            }
+            catch(InterruptedException e)
+            {
+                return;
+            }
+            catch(RuntimeException e)
+            {
+                e.printStackTrace();
+                failures++;
+                if(failures >= MAX_FAILURES)
+                {
+                    System.err.println(name + ": stopped after " + failures + " failed steps in a row");
+                    failures = 0;
+                    stop();
+                }
+                else
+                {
+                    try
+                    {
+                        Thread.sleep(failures * FAILURE_BACKOFF);
+                    }
+                    catch(InterruptedException ie)
+                    {
+                        return;
+                    }
+                }
+
+                //the time spent failing isn't caught up on
+                last = System.nanoTime();
+                accumulator = 0;
+            }
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package nova.game.engine;
 
-import java.awt.Graphics;
+import nova.game.render.Surface;
 
 /**
  * Class responsible for rendering the frame when the
@@ -12,7 +12,9 @@ import java.awt.Graphics;
 public class GameState implements State
 {
     /**
-     * Simply pauses the engine when this state is no longer visible.
+     * Simply pauses the engine when this state is no longer visible.  A
+     * step in progress is finished first, so another state can use the
+     * particle engine straight away.
      */
     public void hide()
     {
@@ -22,9 +24,9 @@ public class GameState implements State
     /**
      * Relies on the game engine to render.
      *
-     * @param g The Graphics object being drawn to
+     * @param g The surface being drawn to
      */
-    public void render(Graphics g)
+    public void render(Surface g)
     {
         Engine.instance.render(g);
     }
@@ -36,4 +38,22 @@ public class GameState implements State
     {
         Engine.instance.start();
     }
+
+    /**
+     * Pauses the game engine while the window is idle, since the player
+     * can't be playing.
+     *
+     * @param idle Whether or not the window is idle
+     */
+    public void setIdle(boolean idle)
+    {
+        if(idle)
+        {
+            Engine.instance.pause();
+        }
+        else
+        {
+            Engine.instance.start();
+        }
+    }
 }
@@ -0,0 +1,347 @@
+package nova.game.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import nova.game.engine.particle.ParticleEngine;
+
+/**
+ * Runs the game with no window, screen or network, as fast as it will go,
+ * and reports how long the steps took, how many things were in the world
+ * and how much memory was allocated.  Meant for profiling the simulation
+ * and checking it for regressions on a machine with no display.
+ * <p>
+ * Steps are run straight from this thread rather than by the game loop,
+ * and nothing is drawn.  Each step is handed its input from an
+ * InputScript - either one loaded from a file (such as one recorded by
+ * playing with the nova.record system property set) or one generated to
+ * move, aim, fire and restart all the time.  The random
+ * streams are seeded from the seed given, the seed of the script, or a
+ * fixed seed, in that order, so two runs with the same arguments play
+ * out the same way.
+ * <p>
+ * With --check, the run also checks that the particle pools are doing
+ * their job once warmed up: after every measured step, each point and
+ * line particle ever constructed must either be alive or waiting in its
+ * pool, so none has become garbage.  Particles are still constructed when
+ * more are alive at once than ever before, which is reported but allowed.
+ * The runner exits with status 1 if the check fails, so it can be used as
+ * a test on a build server.
+ * <p>
+ * Usage: HeadlessRunner [steps] [--seed n] [--input file] [--warmup steps] [--check]
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class HeadlessRunner
+{
+    //steps measured, and run beforehand to warm up, if not given
+    private static final int DEFAULT_STEPS = 10000;
+    private static final int DEFAULT_WARMUP = 500;
+
+    //seed used if neither the arguments nor the script give one
+    private static final long DEFAULT_SEED = 1L;
+
+    //percentiles of the step times reported
+    private static final int[] PERCENTILES = { 50, 90, 99 };
+
+    private int steps;
+    private int warmup;
+    private InputScript script;
+    private boolean check;
+
+    private long[] stepTimes;
+    private long elapsed;
+    private long allocated;
+    private int peakEnemies;
+    private int peakBullets;
+    private int peakParticles;
+
+    //particles constructed and dropped by the pools while measuring, and
+    //the most that were neither alive nor pooled after a step
+    private long particlesConstructed;
+    private long particlesDropped;
+    private long particlesLost;
+
+    /**
+     * Initializes a run.
+     *
+     * @param n Number of steps measured
+     * @param w Number of steps run beforehand to warm up
+     * @param s The input fed to the steps
+     * @param c Whether to check the particle pools after every step
+     */
+    public HeadlessRunner(int n, int w, InputScript s, boolean c)
+    {
+        steps = n;
+        warmup = w;
+        script = s;
+        check = c;
+        stepTimes = new long[n];
+    }
+
+    /**
+     * Runs the game headless and prints a report.
+     *
+     * @param args The number of steps, followed by any of --seed n,
+     *             --input file, --warmup steps and --check
+     */
+    public static void main(String[] args)
+    {
+        //must be set before anything from AWT is loaded
+        System.setProperty("java.awt.headless", "true");
+
+        int steps = DEFAULT_STEPS;
+        int warmup = DEFAULT_WARMUP;
+        Long seed = null;
+        String input = null;
+        boolean check = false;
+        try
+        {
+            for(int i=0; i<args.length; i++)
+            {
+                if(args[i].equals("--seed") && i+1 < args.length)
+                {
+                    seed = Long.valueOf(args[++i]);
+                }
+                else if(args[i].equals("--input") && i+1 < args.length)
+                {
+                    input = args[++i];
+                }
+                else if(args[i].equals("--warmup") && i+1 < args.length)
+                {
+                    warmup = Math.max(0, Integer.parseInt(args[++i]));
+                }
+                else if(args[i].equals("--check"))
+                {
+                    check = true;
+                }
+                else
+                {
+                    steps = Math.max(1, Integer.parseInt(args[i]));
+                }
+            }
+        }
+        catch(NumberFormatException e)
+        {
+            System.out.println("usage: HeadlessRunner [steps] [--seed n] [--input file]"
+                    + " [--warmup steps] [--check]");
+            System.exit(2);
+        }
+
+        InputScript script;
+        if(input != null)
+        {
+            try
+            {
+                script = InputScript.load(new File(input));
+            }
+            catch(IOException e)
+            {
+                System.out.println("input: " + e.getMessage());
+                System.exit(2);
+                return;
+            }
+            if(seed == null && script.hasSeed())
+            {
+                seed = script.getSeed();
+            }
+        }
+        else
+        {
+            script = InputScript.generate(warmup + steps);
+        }
+
+        //the engine splits its first world off the master when it is
+        //created, so the seed has to be set before then
+        WorldRandom.instance.reseed(seed != null ? seed : DEFAULT_SEED);
+
+        HeadlessRunner runner = new HeadlessRunner(steps, warmup, script, check);
+        runner.run();
+        runner.report();
+        System.exit(runner.passed() ? 0 : 1);
+    }
+
+    /**
+     * Runs the warm-up steps, and then the measured steps.
+     */
+    public void run()
+    {
+        Engine engine = Engine.instance;
+        long step = 0;
+        for(int i=0; i<warmup; i++)
+        {
+            engine.step(script.getFrame(step++));
+        }
+
+        ParticleEngine particles = ParticleEngine.instance;
+        long constructedBefore = getConstructed();
+        long droppedBefore = particles.getPointPool().getDropped() + particles.getLinePool().getDropped();
+        long allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+        for(int i=0; i<steps; i++)
+        {
+            InputFrame input = script.getFrame(step++);
+            long before = System.nanoTime();
+            engine.step(input);
+            stepTimes[i] = System.nanoTime() - before;
+
+            peakEnemies = Math.max(peakEnemies, engine.getEnemyCount());
+            peakBullets = Math.max(peakBullets, engine.getBulletCount());
+            peakParticles = Math.max(peakParticles, particles.numParticles());
+
+            if(check)
+            {
+                long pooled = particles.getPointPool().size() + particles.getLinePool().size();
+                long lost = getConstructed() - pooled - particles.numParticles();
+                particlesLost = Math.max(particlesLost, lost);
+            }
+        }
+        elapsed = System.nanoTime() - start;
+        particlesConstructed = getConstructed() - constructedBefore;
+        particlesDropped = particles.getPointPool().getDropped() + particles.getLinePool().getDropped()
+                           - droppedBefore;
+        long allocatedAfter = getAllocatedBytes();
+        allocated = (allocatedBefore < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocatedBefore;
+    }
+
+    /**
+     * Prints the step times, the number of things in the world and the
+     * memory allocated by the run.
+     */
+    public void report()
+    {
+        Engine engine = Engine.instance;
+        long[] sorted = Arrays.copyOf(stepTimes, steps);
+        Arrays.sort(sorted);
+        long total = 0;
+        for(int i=0; i<steps; i++)
+        {
+            total += sorted[i];
+        }
+        double seconds = elapsed / 1e9;
+
+        System.out.println("seed: " + WorldRandom.instance.getSeed());
+        System.out.println("steps: " + steps + " (+" + warmup + " warm-up), input: "
+                + script.size() + " frames");
+        StringBuilder times = new StringBuilder("step us:");
+        for(int i=0; i<PERCENTILES.length; i++)
+        {
+            times.append(" p" + PERCENTILES[i] + " " + micros(percentile(sorted, PERCENTILES[i])));
+        }
+        times.append(" max " + micros(sorted[steps-1]) + " mean " + micros(total / steps));
+        System.out.println(times);
+        System.out.println(String.format("rate: %.0f steps/s, %.1fx real time",
+                steps / seconds, steps * SimClock.TICK_MILLIS / 1000.0 / seconds));
+        long tick = SimClock.TICK_MILLIS * 1000000L;
+        int late = 0;
+        for(int i=steps-1; i>=0 && sorted[i] > tick; i--)
+        {
+            late++;
+        }
+        System.out.println("steps longer than a tick (" + SimClock.TICK_MILLIS + " ms): " + late);
+        System.out.println("enemies: " + engine.getEnemyCount() + " (peak " + peakEnemies + ")");
+        System.out.println("bullets: " + engine.getBulletCount() + " (peak " + peakBullets + ")");
+        System.out.println("particles: " + ParticleEngine.instance.numParticles()
+                + " (peak " + peakParticles + ")");
+        if(allocated >= 0)
+        {
+            System.out.println(String.format("allocated: %.1f MB, %d bytes/step, %.1f MB/s",
+                    allocated / 1e6, allocated / steps, allocated / 1e6 / seconds));
+        }
+        else
+        {
+            System.out.println("allocated: not measurable on this JVM");
+        }
+        System.out.println("particles constructed: " + particlesConstructed + ", dropped: "
+                + particlesDropped);
+        System.out.println("score: " + engine.getScore() + ", lives: " + engine.getLivesLeft());
+        if(check)
+        {
+            System.out.println("check: " + (passed() ? "passed" : "FAILED, " + particlesLost
+                    + " particles neither alive nor pooled"));
+        }
+    }
+
+    /**
+     * Returns whether the run passed its checks.  A run that wasn't asked
+     * to check anything always passes.
+     *
+     * @return True if no particle became garbage while measuring
+     */
+    public boolean passed()
+    {
+        return !check || (particlesLost == 0 && particlesDropped == 0);
+    }
+
+    /**
+     * Helper method that returns the number of particles the pools have
+     * had to construct.
+     *
+     * @return Point and line particles constructed
+     */
+    private static long getConstructed()
+    {
+        ParticleEngine particles = ParticleEngine.instance;
+        return particles.getPointPool().getAllocated() + particles.getLinePool().getAllocated();
+    }
+
+    /**
+     * Helper method that returns a percentile of sorted times, by the
+     * nearest-rank method.
+     *
+     * @param sorted The times, in ascending order
+     * @param p The percentile, from 1 to 100
+     * @return The time
+     */
+    private static long percentile(long[] sorted, int p)
+    {
+        int rank = (int)Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank-1)];
+    }
+
+    /**
+     * Helper method that formats a time in microseconds.
+     *
+     * @param nanos The time, in nanoseconds
+     * @return The time in microseconds, to one decimal place
+     */
+    private static String micros(long nanos)
+    {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    /**
+     * Helper method that returns the memory allocated so far by every
+     * live thread, including any the particle engine works on.
+     *
+     * @return Bytes allocated, or -1 if it can't be measured
+     */
+    private static long getAllocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!(threads instanceof com.sun.management.ThreadMXBean))
+        {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)threads;
+        if(!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled())
+        {
+            return -1;
+        }
+
+        long[] bytes = sun.getThreadAllocatedBytes(threads.getAllThreadIds());
+        long total = 0;
+        for(int i=0; i<bytes.length; i++)
+        {
+            if(bytes[i] > 0)
+            {
+                total += bytes[i];
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,104 @@
+package nova.game.engine;
+
+import java.awt.image.BufferedImage;
+
+import nova.game.render.GlyphAtlas;
+import nova.game.render.Surface;
+import nova.game.ui.Label;
+import nova.game.ui.Layer;
+import nova.game.ui.Picture;
+import nova.game.ui.Row;
+import nova.game.ui.Widget;
+
+/**
+ * The heads-up display drawn over the game: the score and high score
+ * along the top, the lives left in the middle, and the multiplier in the
+ * bottom right corner.  The HUD is made of widgets in two layers, one for
+ * the top of the screen and one for the bottom.  The values are handed to
+ * the widgets every frame, but only a widget whose value has changed is
+ * measured and drawn again, and every other frame the layers are simply
+ * copied to the screen.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class HudLayer
+{
+    //gap between the edge of the screen and the text
+    private static final int MARGIN = 10;
+
+    //gap between the life heart and the number of lives
+    private static final int HEART_GAP = 15;
+
+    private Layer top;
+    private Layer bottom;
+
+    private Label score;
+    private Label highScore;
+    private Label livesLeft;
+    private Label multiplier;
+
+    /**
+     * Initializes the HUD and lays out its widgets.  Nothing is drawn
+     * until it is first painted.
+     *
+     * @param g Glyphs used for all the text
+     * @param heart Image drawn next to the number of lives, may be null
+     */
+    public HudLayer(GlyphAtlas g, BufferedImage heart)
+    {
+        int baseline = g.getHeight();
+        top = new Layer(0, 0, GameSettings.WIDTH, g.getHeight() + g.getDescent());
+
+        //scores
+        score = new Label(g, 0);
+        score.setAnchor(MARGIN, baseline, Widget.LEFT);
+        top.add(score);
+        highScore = new Label(g, 0);
+        highScore.setAnchor(GameSettings.WIDTH - MARGIN, baseline, Widget.RIGHT);
+        top.add(highScore);
+
+        //lives
+        Row lives = new Row();
+        if(heart != null)
+        {
+            lives.add(new Picture(heart), 0);
+        }
+        lives.add(new Label(g, "x "), HEART_GAP);
+        livesLeft = new Label(g, 0);
+        lives.add(livesLeft, 0);
+        lives.setAnchor(GameSettings.WIDTH/2, baseline, Widget.CENTER);
+        top.add(lives);
+
+        //multiplier
+        int bottomY = GameSettings.HEIGHT - MARGIN - g.getAscent();
+        bottom = new Layer(0, bottomY, GameSettings.WIDTH, GameSettings.HEIGHT - bottomY);
+        Row multiplierRow = new Row();
+        multiplierRow.add(new Label(g, "x"), 0);
+        multiplier = new Label(g, 0);
+        multiplierRow.add(multiplier, 0);
+        multiplierRow.setAnchor(GameSettings.WIDTH - MARGIN, GameSettings.HEIGHT - MARGIN, Widget.RIGHT);
+        bottom.add(multiplierRow);
+    }
+
+    /**
+     * Paints the HUD, redrawing the widgets whose values have changed
+     * since the last frame.
+     *
+     * @param g The surface being drawn to
+     * @param s Current score
+     * @param hs High score
+     * @param lives Number of lives left
+     * @param m Current multiplier
+     */
+    public void paint(Surface g, int s, int hs, int lives, int m)
+    {
+        score.setValue(s);
+        highScore.setValue(hs);
+        livesLeft.setValue(lives);
+        multiplier.setValue(m);
+
+        top.paint(g);
+        bottom.paint(g);
+    }
+}
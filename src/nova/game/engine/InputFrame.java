@@ -0,0 +1,106 @@
+package nova.game.engine;
+
+import java.awt.event.KeyEvent;
+
+/**
+ * The input seen by a single step of the game: which of the keys the
+ * game reads are held, where the mouse is and whether its button is
+ * pressed.  A frame is captured from the EventHandler once at the start
+ * of each step, or taken from an InputScript when one is played back, and
+ * the whole step reads only that frame, so events that arrive while it is
+ * running can't change what it sees half way through.  Frames never
+ * change once made.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class InputFrame
+{
+    //keys the game reads - bit i of a frame's buttons is set while KEYS[i]
+    //is held
+    static final int[] KEYS = { KeyEvent.VK_W, KeyEvent.VK_A,
+            KeyEvent.VK_S, KeyEvent.VK_D, KeyEvent.VK_R };
+
+    //bit of a frame's buttons set while the mouse button is pressed
+    static final int MOUSE_BIT = 1 << KEYS.length;
+
+    //a frame with nothing held and the mouse in the top left corner
+    public static final InputFrame NONE = new InputFrame(0, 0, 0);
+
+    private final int buttons;
+    private final int mouseX;
+    private final int mouseY;
+
+    /**
+     * Initializes a frame.
+     *
+     * @param b Bits of the keys and mouse button held
+     * @param x The x-coordinate of the mouse
+     * @param y The y-coordinate of the mouse
+     */
+    InputFrame(int b, int x, int y)
+    {
+        buttons = b;
+        mouseX = x;
+        mouseY = y;
+    }
+
+    /**
+     * Returns the bits of the keys and mouse button held.
+     *
+     * @return The bits, as described by KEYS and MOUSE_BIT
+     */
+    int getButtons()
+    {
+        return buttons;
+    }
+
+    /**
+     * Given a key code, it returns whether or not that key was held.
+     * Keys the game doesn't read are never held.
+     *
+     * @param keyCode KeyEvent keycode (e.g. KeyEvent.VK_A)
+     * @return Whether or not the key was held
+     */
+    public boolean isKeyPressed(int keyCode)
+    {
+        for(int i=0; i<KEYS.length; i++)
+        {
+            if(KEYS[i] == keyCode)
+            {
+                return (buttons & (1 << i)) != 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the mouse button was pressed, false otherwise.
+     *
+     * @return Whether or not the mouse button was pressed
+     */
+    public boolean isMousePressed()
+    {
+        return (buttons & MOUSE_BIT) != 0;
+    }
+
+    /**
+     * Gets the x-coordinate of the mouse.
+     *
+     * @return The x-coordinate of the mouse
+     */
+    public int getMouseX()
+    {
+        return mouseX;
+    }
+
+    /**
+     * Gets the y-coordinate of the mouse.
+     *
+     * @return The y-coordinate of the mouse
+     */
+    public int getMouseY()
+    {
+        return mouseY;
+    }
+}
@@ -0,0 +1,300 @@
+package nova.game.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * The input of a game, one InputFrame per step.  A script can be recorded
+ * from the frames the steps saw while playing, saved and loaded, or
+ * generated, and is played back by handing each step its frame instead of
+ * one captured from the EventHandler.  Together with the seed it was
+ * recorded with, it plays the game out the same way every time.
+ * <p>
+ * Scripts are saved as text.  Lines starting with # are comments, the
+ * line "seed n" holds the seed, and every other line is a frame made of
+ * the held keys (any of WASDR, plus M for the mouse button, or - for none)
+ * followed by the x and y-coordinates of the mouse.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class InputScript
+{
+    //letter each of InputFrame.KEYS is saved as, and the letter of the
+    //mouse button
+    private static final String KEY_LETTERS = "WASDR";
+    private static final char MOUSE_LETTER = 'M';
+
+    //steps each key is held for, and taken by the mouse to circle once,
+    //in generated scripts
+    private static final int KEY_HOLD = 60;
+    private static final int MOUSE_LAP = 300;
+
+    private long seed;
+    private boolean seeded;
+    private int size;
+    private InputFrame[] frames;
+
+    /**
+     * Initializes an empty script with no seed.
+     */
+    public InputScript()
+    {
+        frames = new InputFrame[256];
+    }
+
+    /**
+     * Initializes an empty script recorded with a seed.
+     *
+     * @param s The seed
+     */
+    public InputScript(long s)
+    {
+        this();
+        seed = s;
+        seeded = true;
+    }
+
+    /**
+     * Returns a script that moves the ship in each direction in turn,
+     * circles the mouse around the middle of the screen, fires all the
+     * time and restarts the game as soon as it is over.
+     *
+     * @param steps Number of frames
+     * @return The script
+     */
+    public static InputScript generate(int steps)
+    {
+        InputScript script = new InputScript();
+        int cx = GameSettings.WIDTH/2;
+        int cy = GameSettings.HEIGHT/2;
+        int radius = Math.min(cx, cy)/2;
+        for(int i=0; i<steps; i++)
+        {
+            int held = (1 << ((i / KEY_HOLD) % 4)) | (1 << KEY_LETTERS.indexOf('R'))
+                    | InputFrame.MOUSE_BIT;
+            double angle = 2 * Math.PI * (i % MOUSE_LAP) / MOUSE_LAP;
+            int x = cx + (int)Math.round(radius * StrictMath.cos(angle));
+            int y = cy + (int)Math.round(radius * StrictMath.sin(angle));
+            script.add(new InputFrame(held, x, y));
+        }
+        return script;
+    }
+
+    /**
+     * Loads a script from a file.
+     *
+     * @param file The file
+     * @return The script
+     * @throws IOException If the file can't be read or is malformed
+     */
+    public static InputScript load(File file) throws IOException
+    {
+        InputScript script = new InputScript();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try
+        {
+            String line;
+            int number = 0;
+            while((line = in.readLine()) != null)
+            {
+                number++;
+                line = line.trim();
+                if(line.length() == 0 || line.startsWith("#"))
+                {
+                    continue;
+                }
+
+                String[] parts = line.split("\\s+");
+                try
+                {
+                    if(parts[0].equals("seed") && parts.length == 2)
+                    {
+                        script.seed = Long.parseLong(parts[1]);
+                        script.seeded = true;
+                    }
+                    else if(parts.length == 3)
+                    {
+                        script.add(new InputFrame(parseButtons(parts[0]),
+                                Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                    }
+                    else
+                    {
+                        throw new IOException(file + ":" + number + ": malformed frame");
+                    }
+                }
+                catch(NumberFormatException e)
+                {
+                    throw new IOException(file + ":" + number + ": " + e.getMessage());
+                }
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return script;
+    }
+
+    /**
+     * Saves the script to a file.
+     *
+     * @param file The file
+     * @throws IOException If the file can't be written
+     */
+    public synchronized void save(File file) throws IOException
+    {
+        PrintWriter out = new PrintWriter(new FileWriter(file));
+        try
+        {
+            out.println("# nova input script, " + size + " steps");
+            if(seeded)
+            {
+                out.println("seed " + seed);
+            }
+            for(int i=0; i<size; i++)
+            {
+                InputFrame f = frames[i];
+                out.println(formatButtons(f.getButtons()) + " " + f.getMouseX() + " " + f.getMouseY());
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        if(out.checkError())
+        {
+            throw new IOException("could not write " + file);
+        }
+    }
+
+    /**
+     * Returns whether the script knows the seed it was recorded with.
+     *
+     * @return True if it has a seed
+     */
+    public boolean hasSeed()
+    {
+        return seeded;
+    }
+
+    /**
+     * Returns the seed the script was recorded with.
+     *
+     * @return The seed
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Returns the number of frames in the script.
+     *
+     * @return Number of frames
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a frame to the end of the script.
+     *
+     * @param f The frame
+     */
+    public synchronized void record(InputFrame f)
+    {
+        add(f);
+    }
+
+    /**
+     * Returns the frame of a step.  The script starts over once it runs
+     * out of frames, and an empty script holds nothing.
+     *
+     * @param step Number of the step about to be run
+     * @return The frame
+     */
+    public synchronized InputFrame getFrame(long step)
+    {
+        if(size == 0)
+        {
+            return InputFrame.NONE;
+        }
+        return frames[(int)(step % size)];
+    }
+
+    /**
+     * Helper method that adds a frame, growing the array if need be.
+     *
+     * @param f The frame
+     */
+    private void add(InputFrame f)
+    {
+        if(size == frames.length)
+        {
+            frames = Arrays.copyOf(frames, size*2);
+        }
+        frames[size++] = f;
+    }
+
+    /**
+     * Helper method that turns the keys and mouse button held into
+     * letters.
+     *
+     * @param held Bits of the keys and mouse button held
+     * @return The letters, or - if nothing is held
+     */
+    private static String formatButtons(int held)
+    {
+        StringBuilder letters = new StringBuilder();
+        for(int i=0; i<InputFrame.KEYS.length; i++)
+        {
+            if((held & (1 << i)) != 0)
+            {
+                letters.append(KEY_LETTERS.charAt(i));
+            }
+        }
+        if((held & InputFrame.MOUSE_BIT) != 0)
+        {
+            letters.append(MOUSE_LETTER);
+        }
+        return letters.length() == 0 ? "-" : letters.toString();
+    }
+
+    /**
+     * Helper method that turns letters back into the keys and mouse
+     * button held.
+     *
+     * @param letters The letters
+     * @return Bits of the keys and mouse button held
+     * @throws NumberFormatException If a letter is not a key
+     */
+    private static int parseButtons(String letters)
+    {
+        int held = 0;
+        for(int i=0; i<letters.length(); i++)
+        {
+            char c = letters.charAt(i);
+            int key = KEY_LETTERS.indexOf(c);
+            if(key >= 0)
+            {
+                held |= 1 << key;
+            }
+            else if(c == MOUSE_LETTER)
+            {
+                held |= InputFrame.MOUSE_BIT;
+            }
+            else if(c != '-')
+            {
+                throw new NumberFormatException("unknown key " + c);
+            }
+        }
+        return held;
+    }
+}
@@ -1,20 +1,37 @@
 package nova.game.engine;
 
 import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 
+import nova.game.render.GlyphAtlas;
+import nova.game.render.Surface;
+import nova.game.ui.Label;
+import nova.game.ui.Layer;
+import nova.game.ui.Picture;
+import nova.game.ui.Widget;
+
 /**
  * Class that is responsible for handling and rendering the main menu
- * of the game.
+ * of the game.  The logo and labels are widgets in a single layer,
+ * built and laid out when the menu is first drawn, and a label is only
+ * drawn again when the mouse moves on or off it.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.1
  */
 public class MainMenuState extends MenuState
 {
+    //gap between labels
+    private static final int GAP = 25;
+
+    private static final String[] LABELS =
+    {
+        "PLAY GAME", "INSTRUCTIONS", "HI SCORES", "CREDITS",
+    };
+
     private BufferedImage logo;
+    private Layer layer;
 
     /**
      * Loads necessary images.
@@ -48,66 +65,48 @@ public class MainMenuState extends MenuState
     }
 
     /**
-     * Renders this state by drawing the logo and the text.
+     * Renders this state by drawing the logo and the text, with the label
+     * under the mouse brighter than the others.
      *
-     * @param g The Graphics object being drawn to
+     * @param g The surface being drawn to
      */
-    public void render(Graphics g)
+    public void render(Surface g)
     {
         super.render(g);
-        renderLogo(g);
-        renderText(g);
-    }
+        if(layer == null)
+        {
+            buildLayer();
+        }
 
-    /**
-     * Helper method responsible for positioning and rendering the logo.
-     *
-     * @param g The Graphics object being drawn to
-     */
-    private void renderLogo(Graphics g)
-    {
-        int x = GameSettings.WIDTH/2 - logo.getWidth()/2;
-        int y = 0;
-        g.drawImage(logo, x, y, null);
+        layer.hover(EventHandler.instance.getMouseX(), EventHandler.instance.getMouseY());
+        layer.paint(g);
     }
 
     /**
-     * Helper method responsible for positioning and rendering text labels.
-     *
-     * @param g The Graphics object being drawn to
+     * Helper method that builds the glyph atlases and the widgets for the
+     * logo and every label.
      */
-    private void renderText(Graphics g)
+    private void buildLayer()
     {
-        int gap = 25;
-        int height = logo.getHeight() + gap;
+        GlyphAtlas dimGlyphs = new GlyphAtlas(Engine.instance.getFont(), new Color(0, 255, 0, 125));
+        GlyphAtlas brightGlyphs = new GlyphAtlas(Engine.instance.getFont(), new Color(0, 255, 0));
 
-        g.setFont(Engine.instance.getFont());
-        renderString("PLAY GAME", height, g);
-        height += getBounds("PLAY GAME", g).getHeight() + gap;
-        renderString("INSTRUCTIONS", height, g);
-        height += getBounds("INSTRUCTIONS", g).getHeight() + gap;
-        renderString("HI SCORES", height, g);
-        height += getBounds("HI SCORES", g).getHeight() + gap;
-        renderString("CREDITS", height, g);
-        height += getBounds("CREDITS", g).getHeight() + gap;
-    }
+        int height = logo.getHeight() + GAP;
+        int bottom = height + (LABELS.length - 1) * (dimGlyphs.getHeight() + GAP)
+                     + dimGlyphs.getDescent() + dimGlyphs.getPad();
+        layer = new Layer(0, 0, GameSettings.WIDTH, bottom);
 
-    /**
-     * Helper method for rendering a specific string.
-     *
-     * @param s The String to render
-     * @param height The y-position of the String
-     * @param g The Graphics object being drawn to
-     */
-    private void renderString(String s, int height, Graphics g)
-    {
-        int x = GameSettings.WIDTH/2 - (int)getBounds(s, g).getWidth()/2;
-        Color c = new Color(0, 255, 0, 125);
-        if(getBounds(s, g).contains(EventHandler.instance.getMouseX()-x, EventHandler.instance.getMouseY()-height))
+        Picture picture = new Picture(logo);
+        picture.setAnchor(GameSettings.WIDTH/2, logo.getHeight(), Widget.CENTER);
+        layer.add(picture);
+
+        for(int i=0; i<LABELS.length; i++)
         {
-            c = new Color(0, 255, 0);
+            Label label = new Label(dimGlyphs, LABELS[i]);
+            label.setHoverGlyphs(brightGlyphs);
+            label.setAnchor(GameSettings.WIDTH/2, height, Widget.CENTER);
+            layer.add(label);
+            height += dimGlyphs.getHeight() + GAP;
         }
-        g.setColor(c);
-        g.drawString(s, x, height);
     }
 }
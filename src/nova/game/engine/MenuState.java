@@ -1,20 +1,24 @@
 package nova.game.engine;
 
-import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.geom.Rectangle2D;
-import java.util.Random;
-import javax.swing.Timer;
+import java.util.SplittableRandom;
 
 import nova.game.engine.particle.ParticleEngine;
-import nova.game.gui.NovaPanel;
+import nova.game.engine.particle.ParticleSnapshot;
+import nova.game.render.Surface;
+import nova.game.render.VectorBatch;
+import nova.game.util.TripleBuffer;
 
 /**
  * Abstract class to give a general guideline for a menu.  All
  * menus in the game have the particle engine running in the
  * background, and this class automagically provides that to
- * subclasses.
+ * subclasses.  The particles are stepped by a game loop and
+ * drawn from the most recently published snapshot.
+ * <p>
+ * The particle engine must only be driven by one loop at a time, and the
+ * engine's game loop drives it too.  The menu's loop only runs while the
+ * menu is shown, and hiding the menu ends it, waiting for a step in
+ * progress, so it is never running once another state is shown.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.1
@@ -22,39 +26,35 @@ import nova.game.gui.NovaPanel;
 public abstract class MenuState implements State
 {
     private static final int TIMER_DELAY = 20;
-    private Timer timer;
+
+    //how many times slower the particles move while the window is idle
+    private static final int IDLE_SLOWDOWN = 4;
+    private GameLoop timer;
+    private TripleBuffer<ParticleSnapshot> snapshots;
     private int toggle;
 
     /**
-     * Initializes the timer that is used to run the particle engine.
+     * Initializes the thread that is used to run the particle engine.
      */
     public MenuState()
     {
         toggle = 0;
-        timer = new Timer(TIMER_DELAY, new ActionListener()
+        snapshots = new TripleBuffer<ParticleSnapshot>(new ParticleSnapshot(),
+                new ParticleSnapshot(), new ParticleSnapshot());
+        timer = new GameLoop("Nova Menu", TIMER_DELAY, new Runnable()
         {
-            public void actionPerformed(ActionEvent e)
+            public void run()
             {
-                NovaPanel.instance.repaint();
                 ParticleEngine.instance.act();
                 makeParticles();
                 act();
+
+                ParticleEngine.instance.record(snapshots.getWriteBuffer());
+                snapshots.publish();
             }
         });
     }
 
-    /**
-     * Returns the bounds of the String to be drawn.
-     *
-     * @param s The String
-     * @param g The Graphics object being drawn to
-     * @return A Rectangle2D describing the bounds of the String
-     */
-    public Rectangle2D getBounds(String s, Graphics g)
-    {
-        return g.getFontMetrics().getStringBounds(s, g);
-    }
-
     /**
      * Adds particles to the engine at a random location at fixed intervals.
      */
@@ -64,7 +64,7 @@ public abstract class MenuState implements State
 
         if(toggle == 0)
         {
-            Random randGen = new Random();
+            SplittableRandom randGen = WorldRandom.instance.getEffects();
             int x = randGen.nextInt(GameSettings.WIDTH);
             int y = randGen.nextInt(GameSettings.HEIGHT);
             ParticleEngine.instance.createParticles(x, y);
@@ -72,17 +72,17 @@ public abstract class MenuState implements State
     }
 
     /**
-     * Called when the menu is no longer visible, and pauses this menu
-     * from repainting.
+     * Called when the menu is no longer visible.  Ends the loop stepping
+     * the particles and its thread, waiting for a step in progress.
      */
     public void hide()
     {
-        timer.stop();
+        timer.shutdown();
     }
 
     /**
-     * Called when the menu becomes visible, and resumes repainting the
-     * menu.
+     * Called when the menu becomes visible, and starts stepping the
+     * particles again, on a new thread.
      */
     public void show()
     {
@@ -90,12 +90,24 @@ public abstract class MenuState implements State
     }
 
     /**
-     * Renders the particle engine.  Further rendering is implemented
-     * by subclasses.
+     * Called when the window loses or regains focus, and slows the
+     * particles down while it is idle.
+     *
+     * @param idle Whether or not the window is idle
+     */
+    public void setIdle(boolean idle)
+    {
+        timer.setSlowdown(idle ? IDLE_SLOWDOWN : 1);
+    }
+
+    /**
+     * Renders the particles as they were at the last step.  Further
+     * rendering is implemented by subclasses.
      */
-    public void render(Graphics g)
+    public void render(Surface g)
     {
-        ParticleEngine.instance.paint(g);
+        snapshots.getReadBuffer().paint(g, 1);
+        VectorBatch.instance.flush();
     }
 
     /**
@@ -0,0 +1,59 @@
+package nova.game.engine;
+
+/**
+ * The clock of the simulation.  It counts the steps the engine has run,
+ * and simulated time is simply the number of steps times the length of a
+ * step.  Anything in the game that waits, such as spawning enemies or
+ * firing bullets, reads this clock rather than the system clock, so it
+ * happens after the same number of steps however fast or unevenly the
+ * steps are actually run - the game plays the same at any frame rate,
+ * and can be run many times faster than real time with no window.
+ * <p>
+ * The clock is only advanced by the engine's step, on the thread running
+ * the game, and never goes backwards.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class SimClock
+{
+    public static final SimClock instance = new SimClock();
+
+    //simulated time per step, in milliseconds
+    public static final int TICK_MILLIS = 20;
+
+    private volatile long ticks;
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private SimClock() { }
+
+    /**
+     * Advances the clock by a single step.
+     */
+    public void tick()
+    {
+        ticks++;
+    }
+
+    /**
+     * Returns the number of steps run.
+     *
+     * @return Number of steps
+     */
+    public long getTicks()
+    {
+        return ticks;
+    }
+
+    /**
+     * Returns the simulated time since the clock started.
+     *
+     * @return Simulated time, in milliseconds
+     */
+    public long getMillis()
+    {
+        return ticks * TICK_MILLIS;
+    }
+}
@@ -1,6 +1,6 @@
 package nova.game.engine;
 
-import java.awt.Graphics;
+import nova.game.render.Surface;
 
 /**
  * This class represents the current state of the game and
@@ -20,13 +20,21 @@ public interface State
      * This method will be called when the state
      * needs to repaint itself.
      *
-     * @param g Graphics object used for painting.
+     * @param g Surface used for painting.
      */
-    public void render(Graphics g);
+    public void render(Surface g);
 
     /**
      * This method will be called when the state
      * is shown on screen.
      */
     public void show();
+
+    /**
+     * This method will be called when the window
+     * loses or regains focus, while the state is shown.
+     *
+     * @param idle Whether or not the window is idle.
+     */
+    public void setIdle(boolean idle);
 }
@@ -1,6 +1,6 @@
 package nova.game.engine;
 
-import java.awt.Graphics;
+import nova.game.render.Surface;
 
 /**
  * This class manages the various states in the game.
@@ -33,9 +33,9 @@ public class StateManager
 
     /**
      * Makes the current state render.
-     * @param g The Graphics object being drawn to
+     * @param g The surface being drawn to
      */
-    public void render(Graphics g)
+    public void render(Surface g)
     {
         currentState.render(g);
     }
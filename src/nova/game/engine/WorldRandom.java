@@ -0,0 +1,124 @@
+package nova.game.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random numbers of the game.  Everything is derived from a single
+ * seed: a master stream is created from it, and each world (each game
+ * played) splits its own independent stream off the master for every
+ * subsystem - enemy waves, ships, particles and background effects.  A run
+ * started with the same seed therefore plays out the same way, and drawing
+ * more numbers in one subsystem never changes what another one draws.
+ * <p>
+ * The seed is taken from the nova.seed system property if it is set, and
+ * from the system clock otherwise.
+ * <p>
+ * The streams are SplittableRandoms, which don't synchronize, so each one
+ * must only be used by the thread running the simulation.  None of the
+ * work done in parallel draws random numbers: particles pick their random
+ * speeds and colours when they are created, on the simulation thread, and
+ * the fork-join tasks that move them and apply force fields are
+ * deterministic.  So there are no streams for worker threads.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class WorldRandom
+{
+    public static final WorldRandom instance = new WorldRandom();
+
+    //system property holding the seed of a run
+    private static final String SEED_PROPERTY = "nova.seed";
+
+    private long seed;
+    private SplittableRandom master;
+
+    //one stream per subsystem, split from the master for each world
+    private SplittableRandom enemies;
+    private SplittableRandom ships;
+    private SplittableRandom particles;
+    private SplittableRandom effects;
+
+    /**
+     * Private constructor - can't instantiate.  Seeds the streams.
+     */
+    private WorldRandom()
+    {
+        reseed(Long.getLong(SEED_PROPERTY, System.nanoTime()));
+    }
+
+    /**
+     * Returns the seed everything is derived from.
+     *
+     * @return The seed
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Starts over from a new seed, and creates the streams for a world.
+     *
+     * @param s The seed
+     */
+    public void reseed(long s)
+    {
+        seed = s;
+        master = new SplittableRandom(s);
+        newWorld();
+    }
+
+    /**
+     * Creates new streams for every subsystem, split from the master, to
+     * be used by a new world.
+     */
+    public void newWorld()
+    {
+        enemies = master.split();
+        ships = master.split();
+        particles = master.split();
+        effects = master.split();
+    }
+
+    /**
+     * Returns the stream used to choose and place waves of enemies.
+     *
+     * @return The stream
+     */
+    public SplittableRandom getEnemies()
+    {
+        return enemies;
+    }
+
+    /**
+     * Returns the stream used by ships to choose their shapes and moves.
+     *
+     * @return The stream
+     */
+    public SplittableRandom getShips()
+    {
+        return ships;
+    }
+
+    /**
+     * Returns the stream used to launch particles.
+     *
+     * @return The stream
+     */
+    public SplittableRandom getParticles()
+    {
+        return particles;
+    }
+
+    /**
+     * Returns the stream used to place background effects, such as the
+     * explosions behind the menus and the game over screen.
+     *
+     * @return The stream
+     */
+    public SplittableRandom getEffects()
+    {
+        return effects;
+    }
+}
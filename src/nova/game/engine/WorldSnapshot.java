@@ -0,0 +1,280 @@
+package nova.game.engine;
+
+import java.util.Arrays;
+
+import nova.game.engine.grid.GridSnapshot;
+import nova.game.engine.particle.ParticleSnapshot;
+import nova.game.render.ShipSpriteCache;
+import nova.game.render.SpriteAtlas;
+import nova.game.render.Surface;
+import nova.game.ship.Bullet;
+import nova.game.ship.Ship;
+
+/**
+ * Everything the renderer needs to draw one time step of the game: the
+ * grid, the particles, the pose of every ship and bullet, and the values
+ * shown on the HUD.  The simulation fills in a snapshot at the end of each
+ * step and hands it to the rendering thread through a TripleBuffer.
+ * <p>
+ * Ships and bullets are stored with both their current pose and their pose
+ * at the start of the step, and are drawn part of the way between the two
+ * depending on how long ago the snapshot was published.  This keeps motion
+ * smooth when the screen refreshes faster than the game steps.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class WorldSnapshot
+{
+    private long publishTime;
+
+    private GridSnapshot grid;
+    private ParticleSnapshot particles;
+
+    //ships are drawn with their own shape, and stored with six values:
+    //last x, last y, last rotation, x, y, rotation
+    private Ship[] ships;
+    private double[] shipPoses;
+    private int[] shipPhases;
+    private int shipCount;
+
+    //bullets are stored as four values: last x, last y, x, y
+    private int[] bulletCoords;
+    private int bulletCount;
+
+    private int score;
+    private int highScore;
+    private int livesLeft;
+    private int multiplier;
+    private boolean gameOver;
+
+    /**
+     * Initializes an empty snapshot.
+     */
+    public WorldSnapshot()
+    {
+        grid = new GridSnapshot();
+        particles = new ParticleSnapshot();
+        ships = new Ship[64];
+        shipPoses = new double[6 * 64];
+        shipPhases = new int[64];
+        bulletCoords = new int[4 * 64];
+    }
+
+    /**
+     * Removes every ship and bullet.  The grid and particles are replaced
+     * whenever they are recorded.
+     */
+    public void clear()
+    {
+        Arrays.fill(ships, 0, shipCount, null);
+        shipCount = 0;
+        bulletCount = 0;
+    }
+
+    /**
+     * Returns the snapshot of the background grid.
+     *
+     * @return The grid snapshot
+     */
+    public GridSnapshot getGrid()
+    {
+        return grid;
+    }
+
+    /**
+     * Returns the snapshot of the particles.
+     *
+     * @return The particle snapshot
+     */
+    public ParticleSnapshot getParticles()
+    {
+        return particles;
+    }
+
+    /**
+     * Adds a ship at its current and previous pose, and its current
+     * animation phase.
+     *
+     * @param s The ship
+     */
+    public void addShip(Ship s)
+    {
+        if(shipCount == ships.length)
+        {
+            ships = Arrays.copyOf(ships, shipCount * 2);
+            shipPoses = Arrays.copyOf(shipPoses, 6 * shipCount * 2);
+            shipPhases = Arrays.copyOf(shipPhases, shipCount * 2);
+        }
+
+        int i = 6 * shipCount;
+        shipPoses[i] = s.getLastX();
+        shipPoses[i+1] = s.getLastY();
+        shipPoses[i+2] = s.getLastRotation();
+        shipPoses[i+3] = s.getX();
+        shipPoses[i+4] = s.getY();
+        shipPoses[i+5] = s.getRotation();
+        shipPhases[shipCount] = s.getAnimationPhase();
+        ships[shipCount++] = s;
+    }
+
+    /**
+     * Adds a bullet at its current and previous position.
+     *
+     * @param b The bullet
+     */
+    public void addBullet(Bullet b)
+    {
+        if(4 * bulletCount == bulletCoords.length)
+        {
+            bulletCoords = Arrays.copyOf(bulletCoords, bulletCoords.length * 2);
+        }
+
+        int i = 4 * bulletCount++;
+        bulletCoords[i] = b.getLastX();
+        bulletCoords[i+1] = b.getLastY();
+        bulletCoords[i+2] = b.getX();
+        bulletCoords[i+3] = b.getY();
+    }
+
+    /**
+     * Sets the values shown on the HUD.
+     *
+     * @param s Current score
+     * @param hs High score
+     * @param lives Number of lives left
+     * @param m Current multiplier
+     * @param over Whether or not the game is over
+     */
+    public void setStatus(int s, int hs, int lives, int m, boolean over)
+    {
+        score = s;
+        highScore = hs;
+        livesLeft = lives;
+        multiplier = m;
+        gameOver = over;
+    }
+
+    /**
+     * Marks the snapshot as published at the given time.
+     *
+     * @param time Time of publishing, from System.nanoTime()
+     */
+    public void setPublishTime(long time)
+    {
+        publishTime = time;
+    }
+
+    /**
+     * Returns how far between the previous step and the current one the
+     * snapshot should be drawn at a given time.  Nothing is extrapolated,
+     * so once a full step has passed the current step is drawn as is.
+     *
+     * @param now The current time, from System.nanoTime()
+     * @param tickNanos Time between steps, in nanoseconds
+     * @return A value from 0 (previous step) to 1 (current step)
+     */
+    public float getAlpha(long now, long tickNanos)
+    {
+        float alpha = (float)(now - publishTime) / tickNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    /**
+     * Paints every ship part of the way between its previous and current pose.
+     * Ships are drawn from sprites when the ship sprite cache is enabled
+     * and the surface can draw them.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    public void paintShips(Surface g, float alpha)
+    {
+        boolean sprites = ShipSpriteCache.instance.isEnabled() && g.getDeviceConfiguration() != null;
+        for(int s=0; s<shipCount; s++)
+        {
+            int i = 6 * s;
+            double x = shipPoses[i] + (shipPoses[i+3] - shipPoses[i]) * alpha;
+            double y = shipPoses[i+1] + (shipPoses[i+4] - shipPoses[i+1]) * alpha;
+            //turn the shorter way around the circle
+            double turn = Math.IEEEremainder(shipPoses[i+5] - shipPoses[i+2], Math.PI * 2);
+            double rot = shipPoses[i+2] + turn * alpha;
+            if(sprites)
+            {
+                ShipSpriteCache.instance.draw(g, ships[s], x, y, rot, shipPhases[s]);
+            }
+            else
+            {
+                ships[s].paint(g, x, y, rot, shipPhases[s]);
+            }
+        }
+    }
+
+    /**
+     * Paints every bullet part of the way between its previous and current
+     * position.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    public void paintBullets(Surface g, float alpha)
+    {
+        for(int b=0; b<bulletCount; b++)
+        {
+            int i = 4 * b;
+            int x = bulletCoords[i] + (int)((bulletCoords[i+2] - bulletCoords[i]) * alpha);
+            int y = bulletCoords[i+1] + (int)((bulletCoords[i+3] - bulletCoords[i+1]) * alpha);
+            SpriteAtlas.instance.drawBullet(g, x, y);
+        }
+    }
+
+    /**
+     * Returns the score.
+     *
+     * @return Current score
+     */
+    public int getScore()
+    {
+        return score;
+    }
+
+    /**
+     * Returns the high score.
+     *
+     * @return High score
+     */
+    public int getHighScore()
+    {
+        return highScore;
+    }
+
+    /**
+     * Returns the number of lives left.
+     *
+     * @return Lives left
+     */
+    public int getLivesLeft()
+    {
+        return livesLeft;
+    }
+
+    /**
+     * Returns the multiplier.
+     *
+     * @return Current multiplier
+     */
+    public int getMultiplier()
+    {
+        return multiplier;
+    }
+
+    /**
+     * Returns whether or not the game is over.
+     *
+     * @return True if the game is over
+     */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+}
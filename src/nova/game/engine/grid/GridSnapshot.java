@@ -0,0 +1,155 @@
+package nova.game.engine.grid;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+
+import nova.game.render.Surface;
+
+/**
+ * A copy of the background grid's node positions taken at the end of a time
+ * step, along with the positions from the step before.  It is filled in by
+ * the simulation and painted by the renderer, which blends the two sets of
+ * positions so the grid moves smoothly between steps.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class GridSnapshot
+{
+    //the grid is drawn opaque, thin and aliased, since translucent or
+    //antialiased lines are far too slow to draw across the whole screen
+    private static final Color GRID_COLOR = new Color(25, 25, 90);
+    private static final BasicStroke GRID_STROKE = new BasicStroke(1);
+
+    private int cols;
+    private int rows;
+    private float[] lastX;
+    private float[] lastY;
+    private float[] xPos;
+    private float[] yPos;
+
+    //the segments of every row and column, four values per segment
+    private float[] segments;
+
+    /**
+     * Initializes an empty snapshot, which paints nothing until it is set.
+     */
+    public GridSnapshot()
+    {
+        cols = 0;
+        rows = 0;
+    }
+
+    /**
+     * Copies the positions of the grid's nodes into this snapshot.
+     *
+     * @param c Number of nodes across
+     * @param r Number of nodes down
+     * @param lx x-coordinates of the nodes at the previous step
+     * @param ly y-coordinates of the nodes at the previous step
+     * @param x x-coordinates of the nodes now
+     * @param y y-coordinates of the nodes now
+     */
+    void set(int c, int r, float[] lx, float[] ly, float[] x, float[] y)
+    {
+        if(lastX == null || lastX.length != c * r)
+        {
+            lastX = new float[c * r];
+            lastY = new float[c * r];
+            xPos = new float[c * r];
+            yPos = new float[c * r];
+            segments = new float[4 * ((c - 1) * r + (r - 1) * c)];
+        }
+        cols = c;
+        rows = r;
+        System.arraycopy(lx, 0, lastX, 0, lastX.length);
+        System.arraycopy(ly, 0, lastY, 0, lastY.length);
+        System.arraycopy(x, 0, xPos, 0, xPos.length);
+        System.arraycopy(y, 0, yPos, 0, yPos.length);
+    }
+
+    /**
+     * Paints the grid part of the way between the previous step and the
+     * current one.  Every segment of every row and column is drawn in a
+     * single call.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    public void paint(Surface g, float alpha)
+    {
+        if(cols == 0)
+        {
+            return;
+        }
+
+        int n = 0;
+        for(int row=0; row<rows; row++)
+        {
+            for(int col=1; col<cols; col++)
+            {
+                int i = row * cols + col;
+                n = addSegment(n, i - 1, i, alpha);
+            }
+        }
+        for(int col=0; col<cols; col++)
+        {
+            for(int row=1; row<rows; row++)
+            {
+                int i = row * cols + col;
+                n = addSegment(n, i - cols, i, alpha);
+            }
+        }
+
+        BasicStroke oldStroke = g.getStroke();
+        boolean oldAntialiasing = g.isAntialiased();
+        g.setStroke(GRID_STROKE);
+        g.setAntialiased(false);
+        g.setColor(GRID_COLOR);
+        g.drawLines(segments, n);
+        g.setAntialiased(oldAntialiasing);
+        g.setStroke(oldStroke);
+    }
+
+    /**
+     * Helper method that adds the segment between two nodes.
+     *
+     * @param n Number of values already in the segments array
+     * @param a Index of the first node
+     * @param b Index of the second node
+     * @param alpha How far between the previous step and the current one
+     * @return Number of values in the segments array afterwards
+     */
+    private int addSegment(int n, int a, int b, float alpha)
+    {
+        segments[n] = x(a, alpha);
+        segments[n+1] = y(a, alpha);
+        segments[n+2] = x(b, alpha);
+        segments[n+3] = y(b, alpha);
+        return n + 4;
+    }
+
+    /**
+     * Helper method that blends the x-coordinate of a node.
+     *
+     * @param i Index of the node
+     * @param alpha How far between the previous step and the current one
+     * @return The blended x-coordinate
+     */
+    private float x(int i, float alpha)
+    {
+        return lastX[i] + (xPos[i] - lastX[i]) * alpha;
+    }
+
+    /**
+     * Helper method that blends the y-coordinate of a node.
+     *
+     * @param i Index of the node
+     * @param alpha How far between the previous step and the current one
+     * @return The blended y-coordinate
+     */
+    private float y(int i, float alpha)
+    {
+        return lastY[i] + (yPos[i] - lastY[i]) * alpha;
+    }
+}
@@ -0,0 +1,275 @@
+package nova.game.engine.grid;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import nova.game.engine.GameSettings;
+
+/**
+ * The warping grid drawn behind the game.  The grid is a mesh of point
+ * masses, each tied to its neighbours by springs and anchored to its rest
+ * position by a weaker spring.  Explosions, gravity and the main ship
+ * push the masses around, and the springs pull the grid back into shape.
+ * <p>
+ * All node data is kept in primitive arrays.  Each time step reads the
+ * current positions and writes the next ones into a second set of arrays,
+ * so bands of rows can be integrated on the fork-join pool at once.  The
+ * grid is drawn from a GridSnapshot rather than from these arrays.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.1
+ */
+public class SpringGrid
+{
+    public static final SpringGrid instance = new SpringGrid();
+
+    //number of nodes across and down
+    private static final int COLS = 100;
+    private static final int ROWS = 75;
+
+    //number of rows of nodes integrated by a single worker task
+    private static final int BAND_SIZE = 8;
+
+    private static final float STIFFNESS = 0.28f; //pull of a stretched spring
+    private static final float ANCHOR = 0.02f; //pull back towards the rest position
+    private static final float DAMPING = 0.94f; //fraction of velocity kept each step
+
+    //offsets from a node to its left, right, upper and lower neighbours
+    private static final int[] NEIGHBOURS = {-1, 1, -COLS, COLS};
+
+    private float spacingX;
+    private float spacingY;
+
+    private float[] xPos;
+    private float[] yPos;
+    private float[] xVel;
+    private float[] yVel;
+    private float[] nextXPos;
+    private float[] nextYPos;
+    private float[] nextXVel;
+    private float[] nextYVel;
+
+    /**
+     * Initializes every node at its rest position.
+     */
+    private SpringGrid()
+    {
+        spacingX = (float)GameSettings.WIDTH / (COLS - 1);
+        spacingY = (float)GameSettings.HEIGHT / (ROWS - 1);
+
+        xPos = new float[COLS * ROWS];
+        yPos = new float[COLS * ROWS];
+        xVel = new float[COLS * ROWS];
+        yVel = new float[COLS * ROWS];
+        nextXPos = new float[COLS * ROWS];
+        nextYPos = new float[COLS * ROWS];
+        nextXVel = new float[COLS * ROWS];
+        nextYVel = new float[COLS * ROWS];
+
+        for(int row=0; row<ROWS; row++)
+        {
+            for(int col=0; col<COLS; col++)
+            {
+                xPos[row * COLS + col] = col * spacingX;
+                yPos[row * COLS + col] = row * spacingY;
+            }
+        }
+        System.arraycopy(xPos, 0, nextXPos, 0, xPos.length);
+        System.arraycopy(yPos, 0, nextYPos, 0, yPos.length);
+    }
+
+    /**
+     * Moves every node one time step, then makes the new positions current.
+     */
+    public void act()
+    {
+        ForkJoinPool.commonPool().invoke(new GridTask(1, ROWS - 1));
+
+        float[] temp = xPos;
+        xPos = nextXPos;
+        nextXPos = temp;
+        temp = yPos;
+        yPos = nextYPos;
+        nextYPos = temp;
+        temp = xVel;
+        xVel = nextXVel;
+        nextXVel = temp;
+        temp = yVel;
+        yVel = nextYVel;
+        nextYVel = temp;
+    }
+
+    /**
+     * Helper method that integrates a band of rows.  Nodes on the border
+     * of the grid are pinned and never move.
+     *
+     * @param firstRow First row (inclusive)
+     * @param lastRow Last row (exclusive)
+     */
+    private void integrate(int firstRow, int lastRow)
+    {
+        for(int row=firstRow; row<lastRow; row++)
+        {
+            for(int col=1; col<COLS-1; col++)
+            {
+                int i = row * COLS + col;
+                float x = xPos[i];
+                float y = yPos[i];
+
+                float fx = ANCHOR * (col * spacingX - x);
+                float fy = ANCHOR * (row * spacingY - y);
+
+                //springs only pull when stretched, so the grid never buckles
+                for(int n=0; n<NEIGHBOURS.length; n++)
+                {
+                    int j = i + NEIGHBOURS[n];
+                    float rest = (n < 2) ? spacingX : spacingY;
+                    float dx = xPos[j] - x;
+                    float dy = yPos[j] - y;
+                    float length = (float)Math.sqrt(dx*dx + dy*dy);
+                    if(length > rest)
+                    {
+                        float f = STIFFNESS * (length - rest) / length;
+                        fx += f * dx;
+                        fy += f * dy;
+                    }
+                }
+
+                float vx = (xVel[i] + fx) * DAMPING;
+                float vy = (yVel[i] + fy) * DAMPING;
+                nextXVel[i] = vx;
+                nextYVel[i] = vy;
+                nextXPos[i] = x + vx;
+                nextYPos[i] = y + vy;
+            }
+        }
+    }
+
+    /**
+     * Pushes every node within the given radius away from a point, or pulls
+     * it in if the strength is negative.  The force falls off linearly to
+     * nothing at the edge of the radius.
+     *
+     * @param x x-coordinate of the center of the force
+     * @param y y-coordinate of the center of the force
+     * @param radius Distance the force reaches
+     * @param strength Force at the center
+     */
+    public void applyRadialForce(double x, double y, double radius, double strength)
+    {
+        int col1 = Math.max(1, (int)((x - radius) / spacingX));
+        int col2 = Math.min(COLS - 2, (int)((x + radius) / spacingX) + 1);
+        int row1 = Math.max(1, (int)((y - radius) / spacingY));
+        int row2 = Math.min(ROWS - 2, (int)((y + radius) / spacingY) + 1);
+
+        for(int row=row1; row<=row2; row++)
+        {
+            for(int col=col1; col<=col2; col++)
+            {
+                int i = row * COLS + col;
+                double dx = xPos[i] - x;
+                double dy = yPos[i] - y;
+                double dist = Math.sqrt(dx*dx + dy*dy);
+                if(dist < radius && dist > 0)
+                {
+                    double f = strength * (1 - dist/radius) / dist;
+                    xVel[i] += (float)(f * dx);
+                    yVel[i] += (float)(f * dy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes every node within the given radius in a single direction.
+     * The force falls off linearly to nothing at the edge of the radius.
+     *
+     * @param x x-coordinate of the center of the force
+     * @param y y-coordinate of the center of the force
+     * @param radius Distance the force reaches
+     * @param fx Force along the x-axis at the center
+     * @param fy Force along the y-axis at the center
+     */
+    public void applyDirectedForce(double x, double y, double radius, double fx, double fy)
+    {
+        int col1 = Math.max(1, (int)((x - radius) / spacingX));
+        int col2 = Math.min(COLS - 2, (int)((x + radius) / spacingX) + 1);
+        int row1 = Math.max(1, (int)((y - radius) / spacingY));
+        int row2 = Math.min(ROWS - 2, (int)((y + radius) / spacingY) + 1);
+
+        for(int row=row1; row<=row2; row++)
+        {
+            for(int col=col1; col<=col2; col++)
+            {
+                int i = row * COLS + col;
+                double dx = xPos[i] - x;
+                double dy = yPos[i] - y;
+                double dist = Math.sqrt(dx*dx + dy*dy);
+                if(dist < radius)
+                {
+                    double falloff = 1 - dist/radius;
+                    xVel[i] += (float)(fx * falloff);
+                    yVel[i] += (float)(fy * falloff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the current and previous positions of every node into a
+     * snapshot, so that the grid can be painted by another thread while
+     * the next step is integrated.
+     *
+     * @param s The snapshot to fill in
+     */
+    public void record(GridSnapshot s)
+    {
+        //after act() the arrays for the next step hold the previous positions
+        s.set(COLS, ROWS, nextXPos, nextYPos, xPos, yPos);
+    }
+
+    /**
+     * Fork-join task that integrates a band of rows, splitting itself
+     * in half until the band is no larger than BAND_SIZE.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private class GridTask extends RecursiveAction
+    {
+        //version of the serialized form, which is never used
+        private static final long serialVersionUID = 1L;
+
+        private int firstRow;
+        private int lastRow;
+
+        /**
+         * Initializes this task over the given band of rows.
+         *
+         * @param first First row (inclusive)
+         * @param last Last row (exclusive)
+         */
+        public GridTask(int first, int last)
+        {
+            firstRow = first;
+            lastRow = last;
+        }
+
+        /**
+         * Integrates the band, or splits it if it is too large.
+         */
+        protected void compute()
+        {
+            if(lastRow - firstRow <= BAND_SIZE)
+            {
+                integrate(firstRow, lastRow);
+            }
+            else
+            {
+                int mid = (firstRow + lastRow) >>> 1;
+                invokeAll(new GridTask(firstRow, mid),
+                          new GridTask(mid, lastRow));
+            }
+        }
+    }
+}
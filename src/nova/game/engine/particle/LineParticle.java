@@ -1,9 +1,10 @@
 package nova.game.engine.particle;
 
 import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.geom.Line2D;
-import java.util.Random;
+import java.util.SplittableRandom;
+
+import nova.game.engine.WorldRandom;
 
 /**
  * This class represents a single line-shaped particle.  Upon creation,
@@ -14,18 +15,22 @@ import java.util.Random;
  * converted back into cartesian.
  *
  * @author Kyle Morgan (knmorgan)
- * @version 0.9
+ * @version 1.0
  */
 public class LineParticle extends Particle
 {
-    private static Random randGen = new Random();
-
     private Line line;
     private double vx;
     private double vy;
     private double va;
     private double degrade;
     private double currentLife;
+    private double xOffset;
+    private double yOffset;
+    private double lastXOffset;
+    private double lastYOffset;
+    private double xForce;
+    private double yForce;
 
     /**
      * Constructor that accepts two endpoints and a degrade value.
@@ -54,15 +59,8 @@ public class LineParticle extends Particle
      */
     public LineParticle(double x1, double y1, double x2, double y2, double d, Color c)
     {
-        double cx = (x1 + x2) / 2.0;
-        double cy = (y1 + y2) / 2.0;
-        double angle = Math.atan2(y2-y1, x2-x1);
-        double radius = Math.sqrt(Math.pow(x2-x1,2)+Math.pow(y2-y1,2))/2;
-        line = new Line(cx, cy, angle, radius);
-        degrade = d;
-        color = c;
-
-        initParticle();
+        line = new Line();
+        reset(x1, y1, x2, y2, d, c);
     }
 
     /**
@@ -96,19 +94,44 @@ public class LineParticle extends Particle
      */
     private static Color randColor()
     {
-        return AVAILABLE_COLORS[randGen.nextInt(AVAILABLE_COLORS.length)];
+        return AVAILABLE_COLORS[WorldRandom.instance.getParticles().nextInt(AVAILABLE_COLORS.length)];
     }
 
     /**
-     * Helper method to set up this particle.
+     * Reinitializes this particle with two new endpoints, a degrade value
+     * and a color so that it can be reused.  If the passed color is null,
+     * then a random color is chosen.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     * @param d Dictates how quickly the particle will degrade
+     * @param c The color of this particle
      */
-    private void initParticle()
+    public void reset(double x1, double y1, double x2, double y2, double d, Color c)
     {
+        double cx = (x1 + x2) / 2.0;
+        double cy = (y1 + y2) / 2.0;
+        double angle = Math.atan2(y2-y1, x2-x1);
+        double radius = Math.sqrt(Math.pow(x2-x1,2)+Math.pow(y2-y1,2))/2;
+        line.set(cx, cy, angle, radius);
+        degrade = d;
+        color = (c == null) ? randColor() : c;
+
+        SplittableRandom randGen = WorldRandom.instance.getParticles();
         double a = randGen.nextDouble() * Math.PI * 2;
         vx = randGen.nextDouble() * 2.5 * Math.cos(a);
         vy = randGen.nextDouble() * 2.5 * Math.sin(a);
         va = randGen.nextDouble() * (Math.PI/16) - (Math.PI/32);
         currentLife = 1.0;
+
+        xOffset = 0;
+        yOffset = 0;
+        lastXOffset = 0;
+        lastYOffset = 0;
+        xForce = 0;
+        yForce = 0;
     }
 
     /**
@@ -118,6 +141,45 @@ public class LineParticle extends Particle
     public void act()
     {
         currentLife -= degrade;
+        lastXOffset = xOffset;
+        lastYOffset = yOffset;
+        xOffset += xForce;
+        yOffset += yForce;
+        xForce *= FORCE_DAMPING;
+        yForce *= FORCE_DAMPING;
+    }
+
+    /**
+     * Pushes this particle.  Since the particle's own motion is derived
+     * from its life, the push is tracked as a separate offset.
+     *
+     * @param fx Force along the x-axis
+     * @param fy Force along the y-axis
+     */
+    public void applyForce(double fx, double fy)
+    {
+        xForce += fx;
+        yForce += fy;
+    }
+
+    /**
+     * Returns the x position of the midpoint of this particle.
+     *
+     * @return x-coordinate of this particle
+     */
+    public double getX()
+    {
+        return line.cx + (1 - currentLife) / degrade * vx + xOffset;
+    }
+
+    /**
+     * Returns the y position of the midpoint of this particle.
+     *
+     * @return y-coordinate of this particle
+     */
+    public double getY()
+    {
+        return line.cy + (1 - currentLife) / degrade * vy + yOffset;
     }
 
     /**
@@ -131,21 +193,23 @@ public class LineParticle extends Particle
     }
 
     /**
-     * Paints this particle to the screen.
+     * Records this particle as a line, along with where its endpoints were
+     * at the previous step.
      *
-     * @param g The Graphics object being drawn to
+     * @param s The snapshot being filled in
      */
-    public void paint(Graphics g)
+    public void record(ParticleSnapshot s)
     {
         if(!isDone())
         {
+            //m counts the steps this particle has acted for
             double m = (1 - currentLife) / degrade;
-            double tx = m * vx;
-            double ty = m * vy;
-            double ta = m * va;
+            double lastM = Math.max(0, m - 1);
+            double lastLife = Math.min(1, currentLife + degrade);
 
-            g.setColor(color);
-            line.paint(g, tx, ty, ta, currentLife);
+            int i = s.addLine(color);
+            line.store(s.lineCoords, i, lastM * vx + lastXOffset, lastM * vy + lastYOffset, lastM * va, lastLife);
+            line.store(s.lineCoords, i + 4, m * vx + xOffset, m * vy + yOffset, m * va, currentLife);
         }
     }
 
@@ -157,7 +221,7 @@ public class LineParticle extends Particle
      * @author Kyle Morgan (knmorgan)
      * @version 1.0
      */
-    private class Line
+    private static class Line
     {
         private double cx;
         private double cy;
@@ -165,14 +229,14 @@ public class LineParticle extends Particle
         private double radius;
 
         /**
-         * Initializes this line.
+         * Sets the midpoint and polar coordinates of this line.
          *
          * @param x x-coordinate of midpoint
          * @param y y-coordinate of midpoint
          * @param a Angle
          * @param r Radius (from midpoint to endpoint)
          */
-        public Line(double x, double y, double a, double r)
+        public void set(double x, double y, double a, double r)
         {
             cx = x;
             cy = y;
@@ -181,22 +245,27 @@ public class LineParticle extends Particle
         }
 
         /**
-         * Paints this line by converting polar coordinates to cartesian.
+         * Stores the endpoints of this line by converting polar coordinates
+         * to cartesian.
          *
-         * @param g The Graphics object being drawn to
+         * @param coords Array the endpoints are written to
+         * @param i Index of the first coordinate
          * @param tx Translated x-coordinate (relative)
          * @param ty Translated y-coordinate (relative)
          * @param ta Change in angle (relative)
          * @param scale The scale of the line
          */
-        public void paint(Graphics g, double tx, double ty, double ta, double scale)
+        public void store(float[] coords, int i, double tx, double ty, double ta, double scale)
         {
             double x = cx + tx;
             double y = cy + ty;
             double r = scale * radius;
             double cos = r * Math.cos(angle + ta);
             double sin = r * Math.sin(angle + ta);
-            g.drawLine((int)(x + cos), (int)(y + sin), (int)(x - cos), (int)(y - sin));
+            coords[i] = (float)(x + cos);
+            coords[i+1] = (float)(y + sin);
+            coords[i+2] = (float)(x - cos);
+            coords[i+3] = (float)(y - sin);
         }
     }
 }
@@ -1,19 +1,21 @@
 package nova.game.engine.particle;
 
 import java.awt.Color;
-import java.awt.Graphics;
 
 /**
  * Abstract class for a particle.
  *
  * @author Kyle Morgan (knmorgan)
- * @version 1.0
+ * @version 1.1
  */
 public abstract class Particle
 {
+    //fraction of any velocity gained from force fields kept each time step
+    protected static final double FORCE_DAMPING = 0.90;
+
     protected Color color;
 
-    protected static Color[] AVAILABLE_COLORS =
+    public static final Color[] AVAILABLE_COLORS =
     {
         Color.BLUE, Color.RED, Color.ORANGE,
         Color.YELLOW, Color.GREEN, Color.CYAN,
@@ -25,6 +27,29 @@ public abstract class Particle
      */
     public abstract void act();
 
+    /**
+     * Pushes this particle with the given force, on top of its own motion.
+     * The velocity gained this way decays over the following time steps.
+     *
+     * @param fx Force along the x-axis
+     * @param fy Force along the y-axis
+     */
+    public abstract void applyForce(double fx, double fy);
+
+    /**
+     * Returns the current x position of this particle.
+     *
+     * @return x-coordinate of this particle
+     */
+    public abstract double getX();
+
+    /**
+     * Returns the current y position of this particle.
+     *
+     * @return y-coordinate of this particle
+     */
+    public abstract double getY();
+
     /**
      * When this method returns true, the particle will be removed
      * from the engine.
@@ -34,9 +59,10 @@ public abstract class Particle
     public abstract boolean isDone();
 
     /**
-     * Used to paint this particle to the screen.
+     * Used to copy this particle into a snapshot, which is painted to the
+     * screen by the rendering thread.
      *
-     * @param g The Graphics object being drawn to
+     * @param s The snapshot being filled in
      */
-    public abstract void paint(Graphics g);
+    public abstract void record(ParticleSnapshot s);
 }
@@ -1,27 +1,95 @@
 package nova.game.engine.particle;
 
-import java.awt.Graphics;
+import java.awt.Color;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
-import nova.game.util.LinkList;
+import nova.game.engine.GameSettings;
 
 /**
  * Class is responsible for maintaining all the particles in the game.
+ * Particles are kept in a flat array so that, once there are enough of
+ * them, the array can be split into chunks and integrated on the
+ * fork-join pool while the rest of the time step carries on.  Finished
+ * point and line particles are returned to per-type pools and reused by
+ * the create methods, so steady gameplay does not produce particle garbage.
+ * <p>
+ * Other entities can push or pull particles by adding force fields.  Each
+ * time step with fields in play, the particles are sorted into a coarse
+ * grid of bins, and each field only looks at the bins within its radius.
  *
  * @author Kyle Morgan (knmorgan)
- * @version 1.0
+ * @version 1.1
  */
 public class ParticleEngine
 {
     public static ParticleEngine instance = new ParticleEngine();
 
-    private LinkList<Particle> particles;
+    //below this many particles, acting is done on the calling thread
+    private static final int PARALLEL_THRESHOLD = 2048;
+
+    //number of particles integrated by a single worker task
+    private static final int CHUNK_SIZE = 512;
+
+    //maximum number of free particles kept by each pool
+    private static final int POOL_CAPACITY = 16384;
+
+    //dimensions (width and height) of the bins used for force fields
+    private static final int BIN_SIZE = 32;
+    private static final int BIN_COLS = GameSettings.WIDTH / BIN_SIZE + 1;
+    private static final int BIN_ROWS = GameSettings.HEIGHT / BIN_SIZE + 1;
+
+    private Particle[] particles;
+    private int count;
+
+    //new particles are not created while this many are alive
+    private volatile int budget;
+
+    //whether the stream of particles behind the main ship is created
+    private volatile boolean exhaust;
+    private ForkJoinTask<?> pending;
+
+    private ParticlePool pointPool;
+    private ParticlePool linePool;
+
+    //force fields to be applied at the next time step
+    private double[] fieldX;
+    private double[] fieldY;
+    private double[] fieldRadius;
+    private double[] fieldStrength;
+    private int fieldCount;
+
+    //particles of bin b are binItems[binStart[b]] to binItems[binStart[b+1]-1]
+    private int[] binStart;
+    private int[] binCursor;
+    private int[] binItems;
+    private int[] particleBins;
 
     /**
-     * Initializes the list of particles.
+     * Initializes the list of particles and the particle pools.
      */
     private ParticleEngine()
     {
-        particles = new LinkList<Particle>();
+        particles = new Particle[1024];
+        count = 0;
+        budget = Integer.MAX_VALUE;
+        exhaust = true;
+        pointPool = new ParticlePool(POOL_CAPACITY);
+        linePool = new ParticlePool(POOL_CAPACITY);
+
+        fieldX = new double[16];
+        fieldY = new double[16];
+        fieldRadius = new double[16];
+        fieldStrength = new double[16];
+        fieldCount = 0;
+
+        binStart = new int[BIN_COLS * BIN_ROWS + 1];
+        binCursor = new int[BIN_COLS * BIN_ROWS];
+        binItems = new int[particles.length];
+        particleBins = new int[particles.length];
     }
 
     /**
@@ -30,16 +98,212 @@ public class ParticleEngine
      */
     public void act()
     {
-        particles.startOver();
-        while(particles.hasNext())
+        beginAct();
+        finishAct();
+    }
+
+    /**
+     * Starts acting on all particles in the engine.  If there are enough
+     * particles, the work is handed to the fork-join pool and this method
+     * returns immediately so the caller can do other work (such as collision
+     * checking) in the meantime.  Must be followed by a call to finishAct().
+     * Any force fields added since the last time step are applied first.
+     */
+    public void beginAct()
+    {
+        applyForceFields();
+
+        if(count < PARALLEL_THRESHOLD)
+        {
+            for(int i=0; i<count; i++)
+            {
+                particles[i].act();
+            }
+        }
+        else
+        {
+            pending = ForkJoinPool.commonPool().submit(new ActTask(particles, 0, count));
+        }
+    }
+
+    /**
+     * Waits for any particles still being acted upon, then removes the
+     * particles that are done and returns them to their pools.  Surviving
+     * particles keep their relative order, so the result is the same
+     * regardless of how the work was split.
+     */
+    public void finishAct()
+    {
+        if(pending != null)
+        {
+            pending.join();
+            pending = null;
+        }
+
+        int alive = 0;
+        for(int i=0; i<count; i++)
         {
-            Particle p = particles.next();
-            p.act();
-            if(p.isDone())
+            Particle p = particles[i];
+            if(!p.isDone())
+            {
+                particles[alive++] = p;
+            }
+            else
             {
-                particles.remove();
+                release(p);
             }
         }
+        for(int i=alive; i<count; i++)
+        {
+            particles[i] = null;
+        }
+        count = alive;
+    }
+
+    /**
+     * Adds a force field that will act on all particles within the given
+     * radius at the next time step.  The force is strongest at the center
+     * and falls off linearly to nothing at the edge.
+     *
+     * @param x x-coordinate of the center of the field
+     * @param y y-coordinate of the center of the field
+     * @param radius Distance the field reaches
+     * @param strength Force at the center - positive pushes particles
+     *                 away, negative pulls them in
+     */
+    public void addForceField(double x, double y, double radius, double strength)
+    {
+        if(fieldCount == fieldX.length)
+        {
+            fieldX = Arrays.copyOf(fieldX, fieldCount * 2);
+            fieldY = Arrays.copyOf(fieldY, fieldCount * 2);
+            fieldRadius = Arrays.copyOf(fieldRadius, fieldCount * 2);
+            fieldStrength = Arrays.copyOf(fieldStrength, fieldCount * 2);
+        }
+        fieldX[fieldCount] = x;
+        fieldY[fieldCount] = y;
+        fieldRadius[fieldCount] = radius;
+        fieldStrength[fieldCount] = strength;
+        fieldCount++;
+    }
+
+    /**
+     * Helper method that applies and then discards the pending force fields.
+     */
+    private void applyForceFields()
+    {
+        if(fieldCount == 0)
+        {
+            return;
+        }
+
+        binParticles();
+        if(count < PARALLEL_THRESHOLD)
+        {
+            applyForceFields(0, BIN_ROWS);
+        }
+        else
+        {
+            ForkJoinPool.commonPool().invoke(new FieldTask(0, BIN_ROWS));
+        }
+        fieldCount = 0;
+    }
+
+    /**
+     * Helper method that applies every pending force field to the particles
+     * in a band of bin rows.  Each particle lies in exactly one bin, so
+     * separate bands can be worked on at the same time.
+     *
+     * @param firstRow First row of bins (inclusive)
+     * @param lastRow Last row of bins (exclusive)
+     */
+    private void applyForceFields(int firstRow, int lastRow)
+    {
+        for(int f=0; f<fieldCount; f++)
+        {
+            double x = fieldX[f];
+            double y = fieldY[f];
+            double r = fieldRadius[f];
+            double strength = fieldStrength[f];
+
+            int col1 = binColumn(x - r);
+            int col2 = binColumn(x + r);
+            int row1 = Math.max(firstRow, binRow(y - r));
+            int row2 = Math.min(lastRow - 1, binRow(y + r));
+
+            for(int row=row1; row<=row2; row++)
+            {
+                for(int col=col1; col<=col2; col++)
+                {
+                    int bin = row * BIN_COLS + col;
+                    for(int i=binStart[bin]; i<binStart[bin+1]; i++)
+                    {
+                        Particle p = particles[binItems[i]];
+                        double dx = p.getX() - x;
+                        double dy = p.getY() - y;
+                        double dist = Math.sqrt(dx*dx + dy*dy);
+                        if(dist < r && dist > 0)
+                        {
+                            double force = strength * (1 - dist/r) / dist;
+                            p.applyForce(force * dx, force * dy);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that sorts the particles into bins with a counting sort.
+     * Particles outside the game bounds are placed in the nearest edge bin.
+     */
+    private void binParticles()
+    {
+        if(particleBins.length < count)
+        {
+            particleBins = new int[particles.length];
+            binItems = new int[particles.length];
+        }
+
+        Arrays.fill(binStart, 0);
+        for(int i=0; i<count; i++)
+        {
+            int bin = binRow(particles[i].getY()) * BIN_COLS + binColumn(particles[i].getX());
+            particleBins[i] = bin;
+            binStart[bin+1]++;
+        }
+        for(int b=0; b<binCursor.length; b++)
+        {
+            binStart[b+1] += binStart[b];
+        }
+
+        System.arraycopy(binStart, 0, binCursor, 0, binCursor.length);
+        for(int i=0; i<count; i++)
+        {
+            binItems[binCursor[particleBins[i]]++] = i;
+        }
+    }
+
+    /**
+     * Converts an x-coordinate into a column of bins.
+     *
+     * @param x The x-coordinate
+     * @return The column, clamped to the grid
+     */
+    private static int binColumn(double x)
+    {
+        return Math.max(0, Math.min(BIN_COLS - 1, (int)(x / BIN_SIZE)));
+    }
+
+    /**
+     * Converts a y-coordinate into a row of bins.
+     *
+     * @param y The y-coordinate
+     * @return The row, clamped to the grid
+     */
+    private static int binRow(double y)
+    {
+        return Math.max(0, Math.min(BIN_ROWS - 1, (int)(y / BIN_SIZE)));
     }
 
     /**
@@ -49,36 +313,164 @@ public class ParticleEngine
      */
     public void addParticle(Particle p)
     {
-        particles.add(p);
+        if(count == particles.length)
+        {
+            Particle[] grown = new Particle[particles.length * 2];
+            System.arraycopy(particles, 0, grown, 0, count);
+            particles = grown;
+        }
+        particles[count++] = p;
+    }
+
+    /**
+     * Sets the maximum number of particles alive at once.  Bursts created
+     * while the budget is used up are cut short, and particles already
+     * alive are left to finish.
+     *
+     * @param b The particle budget
+     */
+    public void setParticleBudget(int b)
+    {
+        budget = b;
+    }
+
+    /**
+     * Sets whether the main ship's exhaust particles are created.  They
+     * can be left out when trails are drawn behind the ship instead.
+     *
+     * @param e Whether or not to create exhaust particles
+     */
+    public void setExhaust(boolean e)
+    {
+        exhaust = e;
     }
 
     /**
-     * Creates 100 particles at a specified location.
+     * Creates 100 particles at a specified location, or as many as the
+     * particle budget allows.
      *
      * @param x The x-coordinate of the burst of particles
      * @param y The y-coordinate of the burst of particles
      */
     public void createParticles(double x, double y)
     {
-        for(int i=0; i<100; i++)
+        int limit = Math.min(100, budget - count);
+        for(int i=0; i<limit; i++)
         {
-            particles.add(new PointParticle(x, y));
+            PointParticle p = (PointParticle)pointPool.obtain();
+            if(p == null)
+            {
+                pointPool.countAllocation();
+                p = new PointParticle(x, y);
+            }
+            else
+            {
+                p.reset(x, y, null);
+            }
+            addParticle(p);
         }
     }
 
     /**
-     * Creates 10 line particles at the specificed location
+     * Creates 10 line particles at the specificed location, used for the
+     * main ship's exhaust.  Nothing is created if exhaust is switched off.
      * @param x The x-coordinate of the burst of particles
      * @param y The y-coordinate of the burst of particles
      */
     public void createLineParticles(double x, double y)
     {
+        if(!exhaust)
+        {
+            return;
+        }
+
         for(int i=0; i<10; i++)
         {
-            particles.add(new LineParticle(x-3, y, x+3, y, .04));
+            createLineParticle(x-3, y, x+3, y, .04, null);
+        }
+    }
+
+    /**
+     * Creates a single line particle from the given line, such as
+     * one of the lines of a destroyed ship.
+     *
+     * @param l Line that endpoints are taken from
+     * @param d Dictates how quickly the particle will degrade
+     * @param c The color of the particle
+     */
+    public void createLineParticle(Line2D l, double d, Color c)
+    {
+        createLineParticle(l.getX1(), l.getY1(), l.getX2(), l.getY2(), d, c);
+    }
+
+    /**
+     * Helper method that takes a line particle from the pool, or
+     * constructs one if the pool is empty, and adds it to the engine.
+     * Nothing is created if the particle budget is used up.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     * @param d Dictates how quickly the particle will degrade
+     * @param c The color of the particle, or null for a random one
+     */
+    private void createLineParticle(double x1, double y1, double x2, double y2, double d, Color c)
+    {
+        if(count >= budget)
+        {
+            return;
+        }
+        LineParticle p = (LineParticle)linePool.obtain();
+        if(p == null)
+        {
+            linePool.countAllocation();
+            p = new LineParticle(x1, y1, x2, y2, d, c);
+        }
+        else
+        {
+            p.reset(x1, y1, x2, y2, d, c);
+        }
+        addParticle(p);
+    }
+
+    /**
+     * Helper method that returns a finished particle to its pool.
+     *
+     * @param p The finished particle
+     */
+    private void release(Particle p)
+    {
+        if(p instanceof PointParticle)
+        {
+            pointPool.release(p);
+        }
+        else if(p instanceof LineParticle)
+        {
+            linePool.release(p);
         }
     }
 
+    /**
+     * Returns the pool of finished point particles.
+     *
+     * @return The point particle pool
+     */
+    public ParticlePool getPointPool()
+    {
+        return pointPool;
+    }
+
+    /**
+     * Returns the pool of finished line particles.
+     *
+     * @return The line particle pool
+     */
+    public ParticlePool getLinePool()
+    {
+        return linePool;
+    }
+
     /**
      * Returns the number of particles currently in the engine.
      *
@@ -86,20 +478,117 @@ public class ParticleEngine
      */
     public int numParticles()
     {
-        return particles.size();
+        return count;
+    }
+
+    /**
+     * Copies every particle in the engine into a snapshot, replacing what
+     * was there.  Must not be called while particles are acting.
+     *
+     * @param s The snapshot to fill in
+     */
+    public void record(ParticleSnapshot s)
+    {
+        s.clear();
+        for(int i=0; i<count; i++)
+        {
+            particles[i].record(s);
+        }
     }
 
     /**
-     * Paints all particles in the engine.
+     * Fork-join task that acts on a range of particles, splitting
+     * itself in half until the range is no larger than CHUNK_SIZE.
      *
-     * @param g The Graphics object being drawn to
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
      */
-    public void paint(Graphics g)
+    private static class ActTask extends RecursiveAction
     {
-        particles.startOver();
-        while(particles.hasNext())
+        //version of the serialized form, which is never used
+        private static final long serialVersionUID = 1L;
+
+        private Particle[] particles;
+        private int start;
+        private int end;
+
+        /**
+         * Initializes this task over the given range.
+         *
+         * @param p The particles being acted upon
+         * @param s First index (inclusive)
+         * @param e Last index (exclusive)
+         */
+        public ActTask(Particle[] p, int s, int e)
         {
-            particles.next().paint(g);
+            particles = p;
+            start = s;
+            end = e;
+        }
+
+        /**
+         * Acts on the range, or splits it if it is too large.
+         */
+        protected void compute()
+        {
+            if(end - start <= CHUNK_SIZE)
+            {
+                for(int i=start; i<end; i++)
+                {
+                    particles[i].act();
+                }
+            }
+            else
+            {
+                int mid = (start + end) >>> 1;
+                invokeAll(new ActTask(particles, start, mid),
+                          new ActTask(particles, mid, end));
+            }
+        }
+    }
+
+    /**
+     * Fork-join task that applies the pending force fields to a band of
+     * bin rows, splitting itself in half until the band is a single row.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private class FieldTask extends RecursiveAction
+    {
+        //version of the serialized form
+        private static final long serialVersionUID = 1L;
+
+        private int firstRow;
+        private int lastRow;
+
+        /**
+         * Initializes this task over the given band of rows.
+         *
+         * @param first First row of bins (inclusive)
+         * @param last Last row of bins (exclusive)
+         */
+        public FieldTask(int first, int last)
+        {
+            firstRow = first;
+            lastRow = last;
+        }
+
+        /**
+         * Applies the fields to the band, or splits it if it is too large.
+         */
+        protected void compute()
+        {
+            if(lastRow - firstRow <= 1)
+            {
+                applyForceFields(firstRow, lastRow);
+            }
+            else
+            {
+                int mid = (firstRow + lastRow) >>> 1;
+                invokeAll(new FieldTask(firstRow, mid),
+                          new FieldTask(mid, lastRow));
+            }
         }
     }
 }
@@ -0,0 +1,120 @@
+package nova.game.engine.particle;
+
+/**
+ * A free list of finished particles of a single type, so that new
+ * particles can be handed out without allocating.  Pools are owned and
+ * used by the ParticleEngine, and are only touched by the thread that
+ * runs the engine.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class ParticlePool
+{
+    private Particle[] free;
+    private int size;
+    private int highWater;
+    private long allocated;
+    private long dropped;
+
+    /**
+     * Initializes an empty pool that will hold at most the given number
+     * of free particles.  Particles released beyond that are left to the
+     * garbage collector.
+     *
+     * @param capacity Maximum number of free particles kept
+     */
+    public ParticlePool(int capacity)
+    {
+        free = new Particle[capacity];
+        size = 0;
+        highWater = 0;
+        allocated = 0;
+        dropped = 0;
+    }
+
+    /**
+     * Takes a free particle from the pool.
+     *
+     * @return A free particle, or null if the pool is empty
+     */
+    Particle obtain()
+    {
+        if(size == 0)
+        {
+            return null;
+        }
+        Particle p = free[--size];
+        free[size] = null;
+        return p;
+    }
+
+    /**
+     * Records that a particle had to be constructed because the pool
+     * was empty.
+     */
+    void countAllocation()
+    {
+        allocated++;
+    }
+
+    /**
+     * Returns a finished particle to the pool.
+     *
+     * @param p The finished particle
+     */
+    void release(Particle p)
+    {
+        if(size < free.length)
+        {
+            free[size++] = p;
+            highWater = Math.max(highWater, size);
+        }
+        else
+        {
+            dropped++;
+        }
+    }
+
+    /**
+     * Returns the number of particles currently waiting in the pool.
+     *
+     * @return Number of free particles
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the largest number of free particles the pool has held.
+     *
+     * @return High-water mark of the pool
+     */
+    public int getHighWaterMark()
+    {
+        return highWater;
+    }
+
+    /**
+     * Returns the number of particles constructed because the pool was
+     * empty.  Once the game reaches a steady state this should stop growing.
+     *
+     * @return Total particles allocated for this pool
+     */
+    public long getAllocated()
+    {
+        return allocated;
+    }
+
+    /**
+     * Returns the number of finished particles left to the garbage
+     * collector because the pool was full.
+     *
+     * @return Total particles dropped by this pool
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+}
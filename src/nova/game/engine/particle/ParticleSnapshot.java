@@ -0,0 +1,209 @@
+package nova.game.engine.particle;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import nova.game.render.QualitySettings;
+import nova.game.render.SpriteAtlas;
+import nova.game.render.Surface;
+import nova.game.render.VectorBatch;
+
+/**
+ * A copy of everything needed to draw the particles, taken at the end of a
+ * time step.  Each dot and line is stored with both its current position
+ * and its position at the step before, so the renderer can draw it part of
+ * the way between the two.
+ * <p>
+ * The arrays grow as needed and are reused from step to step.  Dots are
+ * either copied from the sprite atlas one at a time, or added onto the
+ * frame all at once, which makes overlapping dots brighter.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class ParticleSnapshot
+{
+    //dots are stored as four coordinates: last x, last y, x, y
+    float[] dotCoords;
+    int[] dotColors;
+    int[] dotAlphas;
+    Color[] dotFallbacks;
+    int dotCount;
+
+    //positions and colors of dots being added, filled in while painting
+    private int[] addedCoords;
+    private int[] addedColors;
+
+    //lines are stored as eight coordinates: the last endpoints, then the
+    //current endpoints
+    float[] lineCoords;
+    Color[] lineColors;
+    int lineCount;
+
+    /**
+     * Initializes an empty snapshot.
+     */
+    public ParticleSnapshot()
+    {
+        dotCoords = new float[4 * 1024];
+        dotColors = new int[1024];
+        dotAlphas = new int[1024];
+        dotFallbacks = new Color[1024];
+        addedCoords = new int[2 * 1024];
+        addedColors = new int[1024];
+        lineCoords = new float[8 * 256];
+        lineColors = new Color[256];
+    }
+
+    /**
+     * Removes every dot and line.
+     */
+    public void clear()
+    {
+        dotCount = 0;
+        lineCount = 0;
+    }
+
+    /**
+     * Returns the number of dots and lines in this snapshot.
+     *
+     * @return Number of particles
+     */
+    public int size()
+    {
+        return dotCount + lineCount;
+    }
+
+    /**
+     * Adds a dot.
+     *
+     * @param lx x-coordinate at the previous step
+     * @param ly y-coordinate at the previous step
+     * @param x x-coordinate now
+     * @param y y-coordinate now
+     * @param colorIndex Index of the color in the sprite atlas, or -1
+     * @param c The color, used if it has no index
+     * @param alpha Alpha of the dot, from 0 to 255
+     */
+    void addDot(double lx, double ly, double x, double y, int colorIndex, Color c, int alpha)
+    {
+        if(dotCount == dotColors.length)
+        {
+            int size = dotCount * 2;
+            dotCoords = Arrays.copyOf(dotCoords, 4 * size);
+            dotColors = Arrays.copyOf(dotColors, size);
+            dotAlphas = Arrays.copyOf(dotAlphas, size);
+            dotFallbacks = Arrays.copyOf(dotFallbacks, size);
+        }
+
+        int i = 4 * dotCount;
+        dotCoords[i] = (float)lx;
+        dotCoords[i+1] = (float)ly;
+        dotCoords[i+2] = (float)x;
+        dotCoords[i+3] = (float)y;
+        dotColors[dotCount] = colorIndex;
+        dotAlphas[dotCount] = alpha;
+        dotFallbacks[dotCount] = c;
+        dotCount++;
+    }
+
+    /**
+     * Adds a line, returning where its eight coordinates should be written
+     * in lineCoords.
+     *
+     * @param c The color of the line
+     * @return Index of the line's first coordinate
+     */
+    int addLine(Color c)
+    {
+        if(lineCount == lineColors.length)
+        {
+            int size = lineCount * 2;
+            lineCoords = Arrays.copyOf(lineCoords, 8 * size);
+            lineColors = Arrays.copyOf(lineColors, size);
+        }
+
+        lineColors[lineCount] = c;
+        return 8 * lineCount++;
+    }
+
+    /**
+     * Paints every particle part of the way between the previous step and
+     * the current one.  Dots are either added onto the frame or copied from
+     * the sprite atlas, and lines are added to the vector batch.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    public void paint(Surface g, float alpha)
+    {
+        if(QualitySettings.instance.isAdditiveParticles())
+        {
+            addDots(g, alpha);
+        }
+        else
+        {
+            paintDots(g, alpha);
+        }
+
+        for(int l=0; l<lineCount; l++)
+        {
+            int i = 8 * l;
+            VectorBatch.instance.drawLine(lineCoords[i] + (lineCoords[i+4] - lineCoords[i]) * alpha,
+                                          lineCoords[i+1] + (lineCoords[i+5] - lineCoords[i+1]) * alpha,
+                                          lineCoords[i+2] + (lineCoords[i+6] - lineCoords[i+2]) * alpha,
+                                          lineCoords[i+3] + (lineCoords[i+7] - lineCoords[i+3]) * alpha,
+                                          lineColors[l]);
+        }
+    }
+
+    /**
+     * Helper method that adds every dot onto the frame in a single call.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    private void addDots(Surface g, float alpha)
+    {
+        if(addedColors.length < dotCount)
+        {
+            addedCoords = new int[2 * dotColors.length];
+            addedColors = new int[dotColors.length];
+        }
+
+        for(int d=0; d<dotCount; d++)
+        {
+            int i = 4 * d;
+            addedCoords[2*d] = (int)(dotCoords[i] + (dotCoords[i+2] - dotCoords[i]) * alpha);
+            addedCoords[2*d+1] = (int)(dotCoords[i+1] + (dotCoords[i+3] - dotCoords[i+1]) * alpha);
+            addedColors[d] = (dotAlphas[d] << 24) | (dotFallbacks[d].getRGB() & 0xFFFFFF);
+        }
+        g.addDots(addedCoords, addedColors, dotCount, 4);
+    }
+
+    /**
+     * Helper method that paints every dot over the frame, one at a time.
+     *
+     * @param g The surface being drawn to
+     * @param alpha How far between the previous step (0) and the current one (1)
+     */
+    private void paintDots(Surface g, float alpha)
+    {
+        for(int d=0; d<dotCount; d++)
+        {
+            int i = 4 * d;
+            int x = (int)(dotCoords[i] + (dotCoords[i+2] - dotCoords[i]) * alpha);
+            int y = (int)(dotCoords[i+1] + (dotCoords[i+3] - dotCoords[i+1]) * alpha);
+            if(dotColors[d] >= 0)
+            {
+                SpriteAtlas.instance.drawDot(g, x, y, dotColors[d], dotAlphas[d]);
+            }
+            else
+            {
+                Color c = dotFallbacks[d];
+                g.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), dotAlphas[d]));
+                g.fillDot(x, y, 4);
+            }
+        }
+    }
+}
@@ -1,26 +1,31 @@
 package nova.game.engine.particle;
 
 import java.awt.Color;
-import java.awt.Graphics;
-import java.util.Random;
+import java.util.SplittableRandom;
+
+import nova.game.engine.WorldRandom;
+import nova.game.render.SpriteAtlas;
 
 /**
  * Class represents a single particle that is represented by a point,
  * or a small circle when painted.
  *
  * @author Kyle Morgan (knmorgan)
- * @version 1.0
+ * @version 1.1
  */
 public class PointParticle extends Particle
 {
-    private static Random randGen = new Random();
-
     private double xPos;
     private double yPos;
+    private double lastX;
+    private double lastY;
     private double vx;
     private double vy;
     private double xDrag;
     private double yDrag;
+    private double xForce;
+    private double yForce;
+    private int colorIndex;
 
     /**
      * Initializes the PointParticle at the specified location.
@@ -30,9 +35,7 @@ public class PointParticle extends Particle
      */
     public PointParticle(double x, double y)
     {
-        xPos = x;
-        yPos = y;
-        initParticle(null);
+        reset(x, y, null);
     }
 
     /**
@@ -45,19 +48,28 @@ public class PointParticle extends Particle
      */
     public PointParticle(double x, double y, Color c)
     {
-        xPos = x;
-        yPos = y;
-        initParticle(c);
+        reset(x, y, c);
     }
 
     /**
-     * Helper method used to initialize this particle.  If the passed
-     * color is null, then a random color is chosen.
+     * Reinitializes this particle at the specified location so that
+     * it can be reused.  If the passed color is null, then a random
+     * color is chosen.
      *
-     * @param c Specified color
+     * @param x x-coordinate of this particle
+     * @param y y-coordinate of this particle
+     * @param c Color of this particle
      */
-    private void initParticle(Color c)
+    public void reset(double x, double y, Color c)
     {
+        xPos = x;
+        yPos = y;
+        lastX = x;
+        lastY = y;
+        xForce = 0;
+        yForce = 0;
+
+        SplittableRandom randGen = WorldRandom.instance.getParticles();
         double a = randGen.nextDouble() * Math.PI * 2;
         vx = (randGen.nextDouble() * 15.0 + 5) * Math.cos(a);
         vy = (randGen.nextDouble() * 15.0 + 5) * Math.sin(a);
@@ -66,12 +78,14 @@ public class PointParticle extends Particle
         xDrag = vx / drag;
         yDrag = vy / drag;
 
-        if(color == null)
+        if(c == null)
         {
-            color = AVAILABLE_COLORS[randGen.nextInt(AVAILABLE_COLORS.length)];
+            colorIndex = randGen.nextInt(AVAILABLE_COLORS.length);
+            color = AVAILABLE_COLORS[colorIndex];
         }
         else
         {
+            colorIndex = SpriteAtlas.instance.indexOf(c);
             color = c;
         }
     }
@@ -81,10 +95,47 @@ public class PointParticle extends Particle
      */
     public void act()
     {
-        xPos += vx;
-        yPos += vy;
+        lastX = xPos;
+        lastY = yPos;
+        xPos += vx + xForce;
+        yPos += vy + yForce;
         vx -= xDrag;
         vy -= yDrag;
+        xForce *= FORCE_DAMPING;
+        yForce *= FORCE_DAMPING;
+    }
+
+    /**
+     * Pushes this particle.  The particle's own velocity is left alone
+     * so that it still finishes at the same time.
+     *
+     * @param fx Force along the x-axis
+     * @param fy Force along the y-axis
+     */
+    public void applyForce(double fx, double fy)
+    {
+        xForce += fx;
+        yForce += fy;
+    }
+
+    /**
+     * Returns the x position of this particle.
+     *
+     * @return x-coordinate of this particle
+     */
+    public double getX()
+    {
+        return xPos;
+    }
+
+    /**
+     * Returns the y position of this particle.
+     *
+     * @return y-coordinate of this particle
+     */
+    public double getY()
+    {
+        return yPos;
     }
 
     /**
@@ -98,21 +149,18 @@ public class PointParticle extends Particle
     }
 
     /**
-     * Paints this particle.
+     * Records this particle as a dot, along with where it was at the
+     * previous step.  Its alpha fades as it slows down.
      *
-     * @param g The Graphics object being drawn to
+     * @param s The snapshot being filled in
      */
-    public void paint(Graphics g)
+    public void record(ParticleSnapshot s)
     {
         if(!isDone())
         {
             double v = Math.sqrt(vx*vx + vy*vy);
-            Color c = new Color(color.getRed(),
-                                color.getGreen(),
-                                color.getBlue(),
-                                (int)Math.min(v*50, 255));
-            g.setColor(c);
-            g.fillOval((int)xPos-2, (int)yPos-2, 4, 4);
+            int alpha = (int)Math.min(v*50, 255);
+            s.addDot(lastX, lastY, xPos, yPos, colorIndex, color, alpha);
         }
     }
 }
@@ -0,0 +1,64 @@
+package nova.game.gui;
+
+/**
+ * The ways a finished frame can be copied from the buffer the world is
+ * drawn into onto the canvas.  Which one is fastest depends on the Java2D
+ * pipeline in use, so the choice is made by PipelineProbe.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public enum BlitPath
+{
+    //the buffer is stretched straight onto the canvas
+    BUFFERED("buffered"),
+
+    //the buffer is copied into a VolatileImage, which is then stretched
+    //onto the canvas by the graphics card
+    VOLATILE("volatile"),
+
+    //the buffer is copied into an image in the format of the screen, which
+    //is then stretched onto the canvas
+    COMPATIBLE("compatible");
+
+    private final String label;
+
+    /**
+     * Initializes a blit path.
+     *
+     * @param l Name shown for the path, and saved with the choice
+     */
+    private BlitPath(String l)
+    {
+        label = l;
+    }
+
+    /**
+     * Returns the name of the path.
+     *
+     * @return The name
+     */
+    public String getLabel()
+    {
+        return label;
+    }
+
+    /**
+     * Returns the path with a given name.
+     *
+     * @param l The name
+     * @return The path, or BUFFERED if there is none with that name
+     */
+    public static BlitPath fromLabel(String l)
+    {
+        BlitPath[] paths = values();
+        for(int i=0; i<paths.length; i++)
+        {
+            if(paths[i].label.equals(l))
+            {
+                return paths[i];
+            }
+        }
+        return BUFFERED;
+    }
+}
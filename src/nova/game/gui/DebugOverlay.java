@@ -0,0 +1,227 @@
+package nova.game.gui;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.event.KeyEvent;
+
+import nova.game.engine.Engine;
+import nova.game.engine.EventHandler;
+import nova.game.engine.GameLoop;
+import nova.game.engine.GameSettings;
+import nova.game.engine.particle.ParticleEngine;
+import nova.game.render.Bloom;
+import nova.game.render.QualitySettings;
+import nova.game.render.QualityTier;
+import nova.game.render.ResolutionScaler;
+import nova.game.render.ShipSpriteCache;
+import nova.game.render.VectorBatch;
+
+/**
+ * Draws rendering statistics in the corner of the screen while the game is
+ * in development mode.  F3 shows or hides the overlay, F4 switches line
+ * batching on and off, F5 switches between ship sprites and vectors, F6
+ * switches dynamic resolution on and off, and F7 moves to the next quality
+ * tier, so that each can be compared.  F8 benchmarks every quality tier,
+ * F9 switches the world between Java2D and the tiled software rasterizer,
+ * F10 switches between additive and painted particles, F11 switches
+ * trails on and off, and F12 dumps the next frame's display list.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class DebugOverlay
+{
+    public static final DebugOverlay instance = new DebugOverlay();
+
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color TEXT_COLOR = new Color(255, 255, 255, 200);
+    private static final int LINE_HEIGHT = 14;
+
+    private boolean visible;
+    private boolean toggleDown;
+    private boolean batchDown;
+    private boolean spritesDown;
+    private boolean scalingDown;
+    private boolean tierDown;
+    private boolean benchmarkDown;
+    private boolean rendererDown;
+    private boolean additiveDown;
+    private boolean trailsDown;
+    private boolean dumpDown;
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private DebugOverlay() { }
+
+    /**
+     * Handles the keys that control the overlay.  A key only takes effect
+     * when it is first pressed, not for as long as it is held.
+     *
+     * @param scaler Scaler choosing the resolution of the world
+     * @param benchmark Benchmark of the quality tiers
+     */
+    private void handleKeyEvents(ResolutionScaler scaler, TierBenchmark benchmark)
+    {
+        boolean down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F3);
+        if(down && !toggleDown)
+        {
+            visible = !visible;
+        }
+        toggleDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F4);
+        if(down && !batchDown)
+        {
+            VectorBatch.instance.setBatching(!VectorBatch.instance.isBatching());
+        }
+        batchDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F5);
+        if(down && !spritesDown)
+        {
+            ShipSpriteCache.instance.setEnabled(!ShipSpriteCache.instance.isEnabled());
+        }
+        spritesDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F6);
+        if(down && !scalingDown)
+        {
+            scaler.setDynamic(!scaler.isDynamic());
+        }
+        scalingDown = down;
+
+        //the benchmark chooses the tier while it runs
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F7);
+        if(down && !tierDown && !benchmark.isRunning())
+        {
+            QualitySettings.instance.setTier(QualitySettings.instance.getTier().next());
+        }
+        tierDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F8);
+        if(down && !benchmarkDown)
+        {
+            benchmark.start();
+        }
+        benchmarkDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F9);
+        if(down && !rendererDown)
+        {
+            NovaPanel.instance.setSoftwareRendering(!NovaPanel.instance.isSoftwareRendering());
+        }
+        rendererDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F10);
+        if(down && !additiveDown)
+        {
+            QualitySettings.instance.setAdditiveParticles(!QualitySettings.instance.isAdditiveParticles());
+        }
+        additiveDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F11);
+        if(down && !trailsDown)
+        {
+            QualitySettings.instance.setTrails(!QualitySettings.instance.isTrails());
+        }
+        trailsDown = down;
+
+        down = EventHandler.instance.isKeyPressed(KeyEvent.VK_F12);
+        if(down && !dumpDown)
+        {
+            NovaPanel.instance.dumpNextFrame();
+        }
+        dumpDown = down;
+    }
+
+    /**
+     * Renders the overlay if it is visible.
+     *
+     * @param g The Graphics object being drawn to
+     * @param renderTime Time taken to render the last frame, in nanoseconds
+     * @param scaler Scaler choosing the resolution of the world
+     * @param benchmark Benchmark of the quality tiers
+     */
+    public void render(Graphics g, long renderTime, ResolutionScaler scaler, TierBenchmark benchmark)
+    {
+        if(!GameSettings.DEV_MODE)
+        {
+            return;
+        }
+
+        handleKeyEvents(scaler, benchmark);
+        if(visible)
+        {
+            g.setFont(FONT);
+            g.setColor(TEXT_COLOR);
+
+            int y = LINE_HEIGHT;
+            g.drawString("frame: " + renderTime / 1000 + " us", 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("world (avg): " + scaler.getAverageFrameTime() / 1000 + " us", 5, y);
+            y += LINE_HEIGHT;
+            GameLoop loop = Engine.instance.getGameLoop();
+            g.drawString("steps: " + loop.getSteps() + " (" + loop.getDrops() + " times behind)", 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("scale (F6): " + Math.round(scaler.getScale() * 100) + "% "
+                         + (scaler.isDynamic() ? "dynamic" : "fixed"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("cpu: " + cpuUsage(WindowActivity.FOCUSED) + ", "
+                         + cpuUsage(WindowActivity.UNFOCUSED) + ", "
+                         + cpuUsage(WindowActivity.MINIMIZED), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("pipeline: " + PipelineProbe.instance.getDescription(), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("renderer (F9): " + (NovaPanel.instance.isSoftwareRendering()
+                         ? "software, tiles " + NovaPanel.instance.getTiledSurface().getLastTime() / 1000 + " us"
+                         : "java2d"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("quality (F7): " + QualitySettings.instance.getTier().getLabel()
+                         + (benchmark.isRunning() ? " - benchmarking" : ""), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("trails (F11): " + (QualitySettings.instance.isTrails() ? "on" : "off"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("bloom: " + (QualitySettings.instance.getTier().usesBloom()
+                         ? Bloom.instance.getLastTime() / 1000 + " us" : "off"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("particles: " + ParticleEngine.instance.numParticles()
+                         + (QualitySettings.instance.isAdditiveParticles() ? " additive (F10)" : " painted (F10)"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("batching (F4): " + (VectorBatch.instance.isBatching() ? "on" : "off"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("display list (F12 dumps): " + NovaPanel.instance.getFrameCalls() + " calls", 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("line draw calls: " + VectorBatch.instance.getDrawCalls(), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("color changes: " + VectorBatch.instance.getStateChanges(), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("ship sprites (F5): " + (ShipSpriteCache.instance.isEnabled() ? "on" : "off"), 5, y);
+            y += LINE_HEIGHT;
+            g.drawString("sprites cached: " + ShipSpriteCache.instance.size()
+                         + " (" + ShipSpriteCache.instance.getMisses() + " new)", 5, y);
+
+            for(QualityTier t : QualityTier.values())
+            {
+                long cost = benchmark.getResult(t);
+                y += LINE_HEIGHT;
+                g.drawString("benchmark (F8) " + t.getLabel() + ": "
+                             + (cost == 0 ? "-" : cost / 1000 + " us"), 5, y);
+            }
+        }
+    }
+
+    /**
+     * Helper method that describes the CPU usage of the process while the
+     * window has been doing something.
+     *
+     * @param a The activity
+     * @return The description, such as "focused 45%"
+     */
+    private String cpuUsage(WindowActivity a)
+    {
+        int usage = IdleThrottle.instance.getCpuUsage(a);
+        return a.getLabel() + " " + (usage < 0 ? "-" : usage + "%");
+    }
+}
@@ -2,24 +2,51 @@ package nova.game.gui;
 
 import java.awt.image.BufferStrategy;
 import java.awt.Canvas;
+import java.awt.DisplayMode;
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
 
 /**
  * This class is used to provide hardware accelerated graphics
  * for 2D Java games.  Game should create a subclass of GameCanvas
  * to override the render() method.  The GameCanvas will handle
  * the rest of the graphics rendering.
+ * <p>
+ * Rendering is active: frames are drawn by calling renderFrame() rather
+ * than asking AWT to repaint, so they are never delayed or merged by the
+ * AWT event queue.  startRendering() draws frames on a thread of their
+ * own, paced to the refresh rate of the display, or to a fraction of it
+ * while the window is idle.  Paint requests from AWT only ask that thread
+ * for a frame, so the AWT event thread never waits for one to be drawn.
  *
  * @author Kyle Morgan (knmorgan)
- * @version 1.0
+ * @version 1.2
  */
 public abstract class GameCanvas extends Canvas
 {
+    //refresh rate used when the display doesn't report one
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
     //number of buffers used
     private int numBuffers;
 
+    //created once the canvas is displayable, and kept from then on
+    private BufferStrategy strategy;
+
     //used to calculate rendering time
-    private long renderTime;
+    private volatile long renderTime;
+
+    private volatile Thread renderThread;
+    private volatile boolean rendering;
+
+    //refreshes of the display per frame drawn
+    private volatile int frameInterval;
+
+    //set when a frame is wanted before the next one is due - guarded by
+    //frameLock, which the rendering thread waits on between frames
+    private final Object frameLock = new Object();
+    private boolean frameRequested;
 
     /**
      * Initializes the GameCanvas with 2 buffers.
@@ -37,10 +64,12 @@ public abstract class GameCanvas extends Canvas
     public GameCanvas(int buffers)
     {
         numBuffers = buffers;
+        frameInterval = 1;
+        setIgnoreRepaint(true);
     }
 
     /**
-     * Returns the time (in milliseconds) of the last render.
+     * Returns the time (in nanoseconds) of the last render.
      * Can be used to calculate frame rate.
      *
      * @return Last render time
@@ -51,19 +80,208 @@ public abstract class GameCanvas extends Canvas
     }
 
     /**
-     * Handles double buffered and should NOT be overriden.
+     * Returns the number of refreshes of the display per frame drawn by
+     * the rendering thread.
+     *
+     * @return Refreshes per frame
      */
-    public void paint(Graphics g)
+    public int getFrameInterval()
+    {
+        return frameInterval;
+    }
+
+    /**
+     * Sets the number of refreshes of the display per frame drawn by the
+     * rendering thread, so that frames can be drawn less often.
+     *
+     * @param n Refreshes per frame, at least 1
+     */
+    public void setFrameInterval(int n)
+    {
+        frameInterval = Math.max(1, n);
+    }
+
+    /**
+     * Renders and shows a single frame.  Called by the rendering thread,
+     * and never from the AWT event thread.  The buffer strategy is created
+     * the first time this is called once the canvas is displayable.  If
+     * the contents of the buffers are lost while drawing, the frame is
+     * drawn again.  Does nothing if the canvas is not yet displayable.
+     */
+    public synchronized void renderFrame()
     {
-        long time = System.currentTimeMillis();
+        if(!isDisplayable())
+        {
+            return;
+        }
+
+        long time = System.nanoTime();
+
+        if(strategy == null)
+        {
+            createBufferStrategy(numBuffers);
+            strategy = getBufferStrategy();
+        }
 
-        createBufferStrategy(numBuffers);
-        BufferStrategy strat = getBufferStrategy();
-        render(strat.getDrawGraphics());
-        strat.getDrawGraphics().dispose();
-        strat.show();
+        do
+        {
+            do
+            {
+                Graphics g = strategy.getDrawGraphics();
+                try
+                {
+                    render(g);
+                }
+                finally
+                {
+                    g.dispose();
+                }
+            }
+            while(strategy.contentsRestored());
 
-        renderTime = System.currentTimeMillis() - time;
+            strategy.show();
+        }
+        while(strategy.contentsLost());
+
+        Toolkit.getDefaultToolkit().sync();
+        renderTime = System.nanoTime() - time;
+    }
+
+    /**
+     * Starts drawing frames on a separate thread, one per refresh of the
+     * display.  Does nothing if frames are already being drawn.
+     */
+    public synchronized void startRendering()
+    {
+        if(renderThread != null)
+        {
+            return;
+        }
+
+        rendering = true;
+        renderThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                renderLoop();
+            }
+        }, "Nova Renderer");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    /**
+     * Stops the rendering thread.  The frame being drawn is finished first.
+     */
+    public synchronized void stopRendering()
+    {
+        rendering = false;
+        renderThread = null;
+        synchronized(frameLock)
+        {
+            frameLock.notifyAll();
+        }
+    }
+
+    /**
+     * Asks the rendering thread to draw a frame right away instead of
+     * waiting until the next one is due.  Does nothing if frames aren't
+     * being drawn.
+     */
+    public void requestFrame()
+    {
+        synchronized(frameLock)
+        {
+            frameRequested = true;
+            frameLock.notifyAll();
+        }
+    }
+
+    /**
+     * Helper method that draws frames until rendering is stopped.
+     */
+    private void renderLoop()
+    {
+        long refreshNanos = 1000000000L / getRefreshRate();
+        long next = System.nanoTime();
+        //a thread that has been stopped leaves at once, even if another has
+        //been started since
+        Thread self = Thread.currentThread();
+        while(rendering && renderThread == self)
+        {
+            renderFrame();
+
+            next += refreshNanos * frameInterval;
+            if(next - System.nanoTime() <= 0)
+            {
+                //running behind - draw the next frame right away
+                next = System.nanoTime();
+            }
+
+            try
+            {
+                waitForFrame(next, self);
+            }
+            catch(InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Helper method that waits until the next frame is due, a frame is
+     * requested or rendering is stopped.
+     *
+     * @param next The time the next frame is due, from System.nanoTime()
+     * @param self The rendering thread
+     * @throws InterruptedException If the thread is interrupted
+     */
+    private void waitForFrame(long next, Thread self) throws InterruptedException
+    {
+        synchronized(frameLock)
+        {
+            long wait = next - System.nanoTime();
+            while(wait > 0 && !frameRequested && rendering && renderThread == self)
+            {
+                frameLock.wait(wait / 1000000, (int)(wait % 1000000));
+                wait = next - System.nanoTime();
+            }
+            frameRequested = false;
+        }
+    }
+
+    /**
+     * Returns the refresh rate of the display this canvas is on.
+     *
+     * @return Refresh rate, in hertz
+     */
+    public int getRefreshRate()
+    {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if(gc != null)
+        {
+            int rate = gc.getDevice().getDisplayMode().getRefreshRate();
+            if(rate != DisplayMode.REFRESH_RATE_UNKNOWN)
+            {
+                return rate;
+            }
+        }
+        return DEFAULT_REFRESH_RATE;
+    }
+
+    /**
+     * Drops the buffer strategy when the canvas loses its peer, so that
+     * a new one is created if the canvas is shown again.
+     */
+    public synchronized void removeNotify()
+    {
+        if(strategy != null)
+        {
+            strategy.dispose();
+            strategy = null;
+        }
+        super.removeNotify();
     }
 
     /**
@@ -74,6 +292,15 @@ public abstract class GameCanvas extends Canvas
      */
     public abstract void render(Graphics g);
 
+    /**
+     * Handles any paint requests that still arrive from AWT by asking the
+     * rendering thread for a frame - should NOT be overriden.
+     */
+    public void paint(Graphics g)
+    {
+        requestFrame();
+    }
+
     /**
      * Should NOT be overriden.
      */
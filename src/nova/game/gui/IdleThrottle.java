@@ -0,0 +1,233 @@
+package nova.game.gui;
+
+import java.awt.Frame;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+import nova.game.engine.StateManager;
+
+/**
+ * Cuts the work done by the game while its window isn't being used.
+ * While the window is in the background, frames are drawn at a fraction
+ * of the refresh rate and the current state is told it is idle, so the
+ * game pauses and the menu particles slow down.  While the window is
+ * minimized or hidden, nothing is drawn and the current state is hidden,
+ * which stops its simulation altogether.
+ * <p>
+ * The CPU time used by the process is measured separately for each
+ * activity, so the savings can be seen in the debug overlay.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class IdleThrottle extends WindowAdapter
+{
+    public static final IdleThrottle instance = new IdleThrottle();
+
+    //refreshes of the display per frame drawn while the window is in the
+    //background
+    private static final int IDLE_FRAME_INTERVAL = 4;
+
+    private WindowActivity activity;
+    private boolean focused;
+    private boolean minimized;
+    private boolean hidden;
+
+    //CPU and wall-clock time spent in each activity, in nanoseconds
+    private long[] cpuTimes;
+    private long[] wallTimes;
+    private long lastCpu;
+    private long lastWall;
+
+    /**
+     * Private constructor - can't instantiate.  The window is assumed to
+     * have focus until told otherwise.
+     */
+    private IdleThrottle()
+    {
+        activity = WindowActivity.FOCUSED;
+        focused = true;
+        cpuTimes = new long[WindowActivity.values().length];
+        wallTimes = new long[WindowActivity.values().length];
+        lastCpu = getProcessCpuTime();
+        lastWall = System.nanoTime();
+    }
+
+    /**
+     * Starts following the activity of a window.
+     *
+     * @param frame The window
+     */
+    public void attach(Frame frame)
+    {
+        frame.addWindowListener(this);
+        frame.addWindowStateListener(this);
+        frame.addWindowFocusListener(this);
+        frame.addComponentListener(new ComponentAdapter()
+        {
+            public void componentHidden(ComponentEvent e)
+            {
+                hidden = true;
+                update();
+            }
+
+            public void componentShown(ComponentEvent e)
+            {
+                hidden = false;
+                update();
+            }
+        });
+    }
+
+    /**
+     * Returns what the window is doing.
+     *
+     * @return The activity
+     */
+    public synchronized WindowActivity getActivity()
+    {
+        return activity;
+    }
+
+    /**
+     * Returns the average CPU usage of the process while the window has
+     * been doing something.
+     *
+     * @param a The activity
+     * @return CPU usage, as a percentage of one processor, or -1 if it
+     *         can't be measured or no time has been spent in the activity
+     */
+    public synchronized int getCpuUsage(WindowActivity a)
+    {
+        sample();
+        int i = a.ordinal();
+        if(lastCpu < 0 || wallTimes[i] == 0)
+        {
+            return -1;
+        }
+        return (int)(cpuTimes[i] * 100 / wallTimes[i]);
+    }
+
+    /**
+     * Notes that the window has been minimized.
+     *
+     * @param e The event
+     */
+    public void windowIconified(WindowEvent e)
+    {
+        minimized = true;
+        update();
+    }
+
+    /**
+     * Notes that the window has been restored.
+     *
+     * @param e The event
+     */
+    public void windowDeiconified(WindowEvent e)
+    {
+        minimized = false;
+        update();
+    }
+
+    /**
+     * Notes that the window has gained focus.
+     *
+     * @param e The event
+     */
+    public void windowGainedFocus(WindowEvent e)
+    {
+        focused = true;
+        update();
+    }
+
+    /**
+     * Notes that the window has lost focus.
+     *
+     * @param e The event
+     */
+    public void windowLostFocus(WindowEvent e)
+    {
+        focused = false;
+        update();
+    }
+
+    /**
+     * Helper method that works out the activity of the window, and slows
+     * or stops the game if it has changed.  Only the activity and the CPU
+     * times are updated while holding the lock; the game is slowed or
+     * stopped after letting go of it, since drawing a frame (which holds
+     * the canvas) can ask for the CPU usage (which needs the lock).
+     */
+    private void update()
+    {
+        WindowActivity last;
+        WindowActivity next;
+        synchronized(this)
+        {
+            next = (minimized || hidden) ? WindowActivity.MINIMIZED
+                   : (focused ? WindowActivity.FOCUSED : WindowActivity.UNFOCUSED);
+            if(next == activity)
+            {
+                return;
+            }
+
+            //time up to now belongs to the activity being left
+            sample();
+            last = activity;
+            activity = next;
+        }
+
+        if(next == WindowActivity.MINIMIZED)
+        {
+            NovaPanel.instance.stopRendering();
+            StateManager.instance.currentState().hide();
+            return;
+        }
+
+        if(last == WindowActivity.MINIMIZED)
+        {
+            StateManager.instance.currentState().show();
+            NovaPanel.instance.startRendering();
+        }
+        boolean idle = (next == WindowActivity.UNFOCUSED);
+        StateManager.instance.currentState().setIdle(idle);
+        NovaPanel.instance.setFrameInterval(idle ? IDLE_FRAME_INTERVAL : 1);
+    }
+
+    /**
+     * Helper method that adds the time since the last sample to the
+     * current activity.
+     */
+    private void sample()
+    {
+        long cpu = getProcessCpuTime();
+        long wall = System.nanoTime();
+        if(cpu >= 0 && lastCpu >= 0)
+        {
+            cpuTimes[activity.ordinal()] += cpu - lastCpu;
+            wallTimes[activity.ordinal()] += wall - lastWall;
+        }
+        lastCpu = cpu;
+        lastWall = wall;
+    }
+
+    /**
+     * Helper method that returns the CPU time used by the whole process.
+     *
+     * @return CPU time, in nanoseconds, or -1 if it can't be measured
+     */
+    private long getProcessCpuTime()
+    {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if(os instanceof com.sun.management.OperatingSystemMXBean)
+        {
+            return ((com.sun.management.OperatingSystemMXBean)os).getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -4,6 +4,8 @@ import java.awt.Frame;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 
+import nova.game.engine.Engine;
+
 /**
  * This is the main frame of the application.
  *
@@ -13,7 +15,9 @@ import java.awt.event.WindowEvent;
 public class NovaFrame extends Frame
 {
     /**
-     * Initializes this frame and adds a NovaPanel instance to it.
+     * Initializes this frame, adds a NovaPanel instance to it and
+     * starts drawing frames.  Drawing slows or stops while the frame
+     * isn't being used.
      */
     public NovaFrame()
     {
@@ -25,9 +29,12 @@ public class NovaFrame extends Frame
         {
             public void windowClosing(WindowEvent e)
             {
+                Engine.instance.shutdown();
                 System.exit(0);
             }
         });
+        IdleThrottle.instance.attach(this);
         setVisible(true);
+        NovaPanel.instance.startRendering();
     }
 }
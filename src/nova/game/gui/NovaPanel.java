@@ -1,17 +1,52 @@
 package nova.game.gui;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
 
 import nova.game.engine.GameSettings;
 import nova.game.engine.EventHandler;
 import nova.game.engine.StateManager;
+import nova.game.render.Bloom;
+import nova.game.render.DisplayList;
+import nova.game.render.Graphics2DSurface;
+import nova.game.render.QualitySettings;
+import nova.game.render.QualityTier;
+import nova.game.render.ResolutionScaler;
+import nova.game.render.ShipSpriteCache;
+import nova.game.render.SpriteAtlas;
+import nova.game.render.SvgExporter;
+import nova.game.render.TiledSurface;
+import nova.game.render.Trails;
+import nova.game.render.VectorBatch;
 
 /**
  * This class is responsible for rendering the current state of the game.
+ * The world is rendered at an internal resolution, chosen by a
+ * ResolutionScaler to keep frames within the time between refreshes,
+ * and then scaled up to the size of the window.  How carefully the world
+ * is drawn is set by the current quality tier.
+ * <p>
+ * The world is normally drawn with Java2D, but can instead be drawn by the
+ * tiled software rasterizer, which draws screen tiles in parallel straight
+ * into the pixels of the buffer.  When trails are switched on, the buffer
+ * is faded rather than cleared before each frame.
+ * <p>
+ * Each frame is first recorded as a display list, which is then replayed
+ * onto whichever surface draws it.  A recorded frame can also be dumped to
+ * a text file and an SVG image for looking at offline.
+ * <p>
+ * Which renderer is used to start with, and how the finished frame is
+ * copied onto the canvas, are chosen by the PipelineProbe.
  *
  * @author Kyle Morgan (knmorgan)
  * @version 0.9
@@ -20,11 +55,37 @@ public class NovaPanel extends GameCanvas
 {
     public static final NovaPanel instance = new NovaPanel();
 
+    //the world is drawn here at full resolution or below, then scaled
+    //to the size of the canvas
+    private BufferedImage worldBuffer;
+    private Graphics2DSurface worldSurface;
+    private TiledSurface tiledSurface;
+    private boolean software;
+    private DisplayList frameList;
+    private boolean dumpRequested;
+    private int dumps;
+    private BlitPath blitPath;
+    private VolatileImage volatileStage;
+    private BufferedImage compatibleStage;
+    private ResolutionScaler scaler;
+    private TierBenchmark benchmark;
+
     /**
      * Initializes this panel.
      */
     private NovaPanel()
     {
+        worldBuffer = new BufferedImage(GameSettings.WIDTH, GameSettings.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        worldSurface = new Graphics2DSurface();
+        worldSurface.setTarget(worldBuffer);
+        frameList = new DisplayList();
+        PipelineProbe.instance.choose();
+        blitPath = PipelineProbe.instance.getBlitPath();
+        setSoftwareRendering(PipelineProbe.instance.isSoftwareRendering());
+        scaler = new ResolutionScaler();
+        benchmark = new TierBenchmark(scaler);
+        //apply the starting tier's particle budget and ship drawing mode
+        QualitySettings.instance.setTier(QualitySettings.instance.getTier());
         addListeners();
         setFocusable(true);
         requestFocus();
@@ -41,20 +102,241 @@ public class NovaPanel extends GameCanvas
     }
 
     /**
-     * Renders this game with the current state.
+     * Returns the scaler that chooses the resolution the world is
+     * rendered at.
+     *
+     * @return The resolution scaler
+     */
+    public ResolutionScaler getResolutionScaler()
+    {
+        return scaler;
+    }
+
+    /**
+     * Returns whether the world is drawn by the tiled software rasterizer
+     * rather than by Java2D.
+     *
+     * @return True if drawn in software
+     */
+    public boolean isSoftwareRendering()
+    {
+        return software;
+    }
+
+    /**
+     * Sets whether the world is drawn by the tiled software rasterizer
+     * rather than by Java2D.  The rasterizer is only created the first
+     * time it is used, since writing to the buffer's pixels directly stops
+     * Java2D from accelerating it.
+     *
+     * @param s Whether or not to draw in software
+     */
+    public void setSoftwareRendering(boolean s)
+    {
+        if(s && tiledSurface == null)
+        {
+            tiledSurface = new TiledSurface(worldBuffer);
+        }
+        software = s;
+    }
+
+    /**
+     * Returns the tiled software rasterizer, or null if it has never been
+     * used.
+     *
+     * @return The tiled surface
+     */
+    public TiledSurface getTiledSurface()
+    {
+        return tiledSurface;
+    }
+
+    /**
+     * Asks for the next frame to be dumped, once it has been recorded, to
+     * a text listing of its draw calls and an SVG image in the working
+     * directory.
+     */
+    public void dumpNextFrame()
+    {
+        dumpRequested = true;
+    }
+
+    /**
+     * Returns the number of draw calls recorded for the last frame.
+     *
+     * @return Number of draw calls
+     */
+    public int getFrameCalls()
+    {
+        return frameList.size();
+    }
+
+    /**
+     * Renders this game with the current state.  The world is drawn into
+     * the top left corner of an off-screen buffer at the current scale,
+     * and that part of the buffer is then stretched over the whole canvas.
      */
     public void render(Graphics g)
     {
+        long time = System.nanoTime();
+        float scale = scaler.getScale();
+        int width = Math.round(GameSettings.WIDTH * scale);
+        int height = Math.round(GameSettings.HEIGHT * scale);
+
+        QualityTier tier = QualitySettings.instance.getTier();
+        boolean trails = QualitySettings.instance.isTrails();
+        if(trails)
+        {
+            Trails.instance.fade(worldBuffer, width, height, scale);
+        }
+
+        Graphics2D world = null;
+        if(software)
+        {
+            tiledSurface.setScale(scale);
+            if(!trails)
+            {
+                tiledSurface.clear(Color.BLACK);
+            }
+        }
+        else
+        {
+            world = worldBuffer.createGraphics();
+            world.clipRect(0, 0, width, height);
+            world.scale(scale, scale);
+            world.setRenderingHint(RenderingHints.KEY_RENDERING, tier.getRenderingHint());
+            if(!trails)
+            {
+                world.setColor(Color.BLACK);
+                world.fillRect(0, 0, GameSettings.WIDTH, GameSettings.HEIGHT);
+            }
+            worldSurface.setGraphics(world);
+
+            SpriteAtlas.instance.validate(world.getDeviceConfiguration());
+            ShipSpriteCache.instance.validate(world.getDeviceConfiguration());
+        }
+
+        //a frame being dumped is recorded without VolatileImages, so that
+        //all of it can be exported
+        GraphicsConfiguration gc = (software || dumpRequested) ? null : world.getDeviceConfiguration();
+        frameList.reset();
+        frameList.setDeviceConfiguration(gc);
+        tier.applyWorldHints(frameList);
+        VectorBatch.instance.begin(frameList);
+
+        StateManager.instance.currentState().render(frameList);
+
+        VectorBatch.instance.end();
+        if(dumpRequested)
+        {
+            dumpRequested = false;
+            dumpFrame();
+        }
+
+        if(software)
+        {
+            tiledSurface.draw(frameList);
+        }
+        else
+        {
+            frameList.replay(worldSurface);
+            worldSurface.setGraphics(null);
+            world.dispose();
+        }
+        //with trails the buffer is kept for the next frame, so bloom is
+        //applied to a copy of it
+        BufferedImage frame = worldBuffer;
+        if(tier.usesBloom())
+        {
+            if(trails)
+            {
+                frame = Trails.instance.copy(worldBuffer, width, height);
+            }
+            Bloom.instance.apply(frame, width, height, scale);
+        }
+
+        //smooth scaling is cheap on the graphics card, but in software it
+        //costs far more than drawing the world itself
         Graphics2D g2d = (Graphics2D)g;
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setStroke(new BasicStroke(2));
+        if(g2d.getDeviceConfiguration().getImageCapabilities().isAccelerated())
+        {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        Image shown = stage(g2d.getDeviceConfiguration(), frame, width, height);
+        g2d.drawImage(shown, 0, 0, getWidth(), getHeight(), 0, 0, width, height, null);
+        long elapsed = System.nanoTime() - time;
+        scaler.update(elapsed, 1000000000L / getRefreshRate());
+        benchmark.update(elapsed);
 
         g2d.scale((double)getWidth()/GameSettings.WIDTH,
                   (double)getHeight()/GameSettings.HEIGHT);
+        DebugOverlay.instance.render(g, getLastRenderTime(), scaler, benchmark);
+    }
+
+    /**
+     * Helper method that copies the top left corner of the frame into the
+     * image chosen to be stretched onto the canvas, if that isn't the
+     * frame itself.
+     *
+     * @param gc Configuration of the canvas
+     * @param frame The frame
+     * @param width Width of the part of the frame drawn to
+     * @param height Height of the part of the frame drawn to
+     * @return The image to stretch onto the canvas
+     */
+    private Image stage(GraphicsConfiguration gc, BufferedImage frame, int width, int height)
+    {
+        Graphics2D g;
+        Image staged;
+        if(blitPath == BlitPath.VOLATILE)
+        {
+            if(volatileStage == null || volatileStage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE)
+            {
+                volatileStage = gc.createCompatibleVolatileImage(GameSettings.WIDTH, GameSettings.HEIGHT);
+            }
+            g = volatileStage.createGraphics();
+            staged = volatileStage;
+        }
+        else if(blitPath == BlitPath.COMPATIBLE)
+        {
+            if(compatibleStage == null)
+            {
+                compatibleStage = gc.createCompatibleImage(GameSettings.WIDTH, GameSettings.HEIGHT,
+                                                           Transparency.OPAQUE);
+            }
+            g = compatibleStage.createGraphics();
+            staged = compatibleStage;
+        }
+        else
+        {
+            return frame;
+        }
+
+        g.drawImage(frame, 0, 0, width, height, 0, 0, width, height, null);
+        g.dispose();
+        return staged;
+    }
 
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, GameSettings.WIDTH, GameSettings.HEIGHT);
+    /**
+     * Helper method that writes the last recorded frame to a text file and
+     * an SVG image.
+     */
+    private void dumpFrame()
+    {
+        dumps++;
+        try
+        {
+            PrintWriter out = new PrintWriter(new FileWriter("frame" + dumps + ".txt"));
+            frameList.dump(out);
+            out.close();
 
-        StateManager.instance.currentState().render(g);
+            out = new PrintWriter(new FileWriter("frame" + dumps + ".svg"));
+            SvgExporter.instance.export(frameList, GameSettings.WIDTH, GameSettings.HEIGHT, out);
+            out.close();
+        }
+        catch(IOException e)
+        {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,482 @@
+package nova.game.gui;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Polygon;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import nova.game.engine.GameSettings;
+import nova.game.render.DisplayList;
+import nova.game.render.Graphics2DSurface;
+import nova.game.render.TiledSurface;
+
+/**
+ * Chooses how frames are drawn and shown on this machine.  Whether a
+ * VolatileImage, a TYPE_INT_RGB BufferedImage or an image in the format
+ * of the screen is fastest to copy onto the canvas depends on the Java2D
+ * pipeline in use, and so does whether Java2D or the software rasterizer
+ * draws the world faster.  At startup the probe times each blit path and
+ * both renderers on a made-up frame, and keeps the fastest.
+ * <p>
+ * The choice is saved in ~/.nova/pipeline.properties along with a
+ * signature of the pipeline, the screen and the JVM, and reused on later
+ * runs until the signature changes.  Running this class on its own probes
+ * the default screen again whatever was saved, which is how the probe is
+ * checked under Xvfb.  Without a screen nothing is probed and the
+ * defaults are used.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class PipelineProbe
+{
+    public static final PipelineProbe instance = new PipelineProbe();
+
+    //runs of each candidate before it is timed
+    private static final int WARMUP_RUNS = 10;
+
+    //most runs of each candidate timed
+    private static final int SAMPLE_RUNS = 40;
+
+    //longest time spent timing each candidate, in nanoseconds
+    private static final long SAMPLE_NANOS = 250000000L;
+
+    //lines, dots and ships drawn in the made-up frame
+    private static final int SCENE_LINES = 3000;
+    private static final int SCENE_DOTS = 500;
+    private static final int SCENE_SHIPS = 30;
+
+    //where the choice is saved
+    private static final File CACHE = new File(new File(System.getProperty("user.home"), ".nova"),
+                                               "pipeline.properties");
+
+    private BlitPath blitPath;
+    private boolean software;
+    private boolean cached;
+    private String pipeline;
+
+    //time taken by each blit path and renderer, in nanoseconds, or 0 if
+    //not timed
+    private long[] blitTimes;
+    private long java2DTime;
+    private long softwareTime;
+
+    /**
+     * Private constructor - can't instantiate.  Starts with the defaults.
+     */
+    private PipelineProbe()
+    {
+        blitPath = BlitPath.BUFFERED;
+        pipeline = "none";
+        blitTimes = new long[BlitPath.values().length];
+    }
+
+    /**
+     * Probes the default screen and saves the result, whatever was saved
+     * before.
+     *
+     * @param args Ignored
+     */
+    public static void main(String[] args)
+    {
+        if(GraphicsEnvironment.isHeadless())
+        {
+            System.out.println("pipeline: no screen to probe");
+            System.exit(1);
+        }
+
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                   .getDefaultScreenDevice().getDefaultConfiguration();
+        instance.probe(gc);
+        instance.save(gc);
+        BlitPath[] paths = BlitPath.values();
+        for(int i=0; i<paths.length; i++)
+        {
+            System.out.println("blit " + paths[i].getLabel() + ": " + instance.blitTimes[i] / 1000 + " us");
+        }
+        System.out.println("java2d renderer: " + instance.java2DTime / 1000 + " us");
+        System.out.println("software renderer: " + instance.softwareTime / 1000 + " us");
+        System.exit(0);
+    }
+
+    /**
+     * Returns the way frames are copied onto the canvas.
+     *
+     * @return The blit path
+     */
+    public BlitPath getBlitPath()
+    {
+        return blitPath;
+    }
+
+    /**
+     * Returns whether the world is drawn by the software rasterizer.
+     *
+     * @return True if drawn in software
+     */
+    public boolean isSoftwareRendering()
+    {
+        return software;
+    }
+
+    /**
+     * Returns a short description of the choice, for the debug overlay.
+     *
+     * @return The description
+     */
+    public String getDescription()
+    {
+        return pipeline + ", " + blitPath.getLabel() + " blit, "
+               + (software ? "software" : "java2d") + (cached ? " (saved)" : " (probed)");
+    }
+
+    /**
+     * Makes the choice for the default screen, reusing the saved choice if
+     * it was made for the same pipeline, or probing and saving it if not.
+     * The choice is logged.
+     */
+    public void choose()
+    {
+        if(GraphicsEnvironment.isHeadless())
+        {
+            return;
+        }
+
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                   .getDefaultScreenDevice().getDefaultConfiguration();
+        cached = load(gc);
+        if(!cached)
+        {
+            probe(gc);
+            save(gc);
+        }
+        System.out.println("pipeline: " + getDescription());
+    }
+
+    /**
+     * Times every blit path and both renderers with a configuration, and
+     * keeps the fastest of each.
+     *
+     * @param gc The configuration frames are shown with
+     */
+    public void probe(GraphicsConfiguration gc)
+    {
+        pipeline = pipelineName(gc);
+        cached = false;
+
+        //the canvas is stood in for by a VolatileImage, as the buffers of
+        //a BufferStrategy usually are
+        VolatileImage screen = gc.createCompatibleVolatileImage(GameSettings.WIDTH, GameSettings.HEIGHT);
+        BufferedImage frame = new BufferedImage(GameSettings.WIDTH, GameSettings.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BlitPath[] paths = BlitPath.values();
+        int best = 0;
+        for(int i=0; i<paths.length; i++)
+        {
+            blitTimes[i] = time(new BlitRun(gc, paths[i], frame, screen));
+            if(blitTimes[i] < blitTimes[best])
+            {
+                best = i;
+            }
+        }
+        blitPath = paths[best];
+        screen.flush();
+
+        final DisplayList scene = createScene();
+        final BufferedImage java2DImage = new BufferedImage(GameSettings.WIDTH, GameSettings.HEIGHT,
+                                                            BufferedImage.TYPE_INT_RGB);
+        final Graphics2DSurface java2D = new Graphics2DSurface();
+        java2D.setTarget(java2DImage);
+        java2DTime = time(new Runnable()
+        {
+            public void run()
+            {
+                Graphics2D g = java2DImage.createGraphics();
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, GameSettings.WIDTH, GameSettings.HEIGHT);
+                java2D.setGraphics(g);
+                scene.replay(java2D);
+                java2D.setGraphics(null);
+                g.dispose();
+            }
+        });
+
+        final TiledSurface tiled = new TiledSurface(new BufferedImage(GameSettings.WIDTH, GameSettings.HEIGHT,
+                                                                      BufferedImage.TYPE_INT_RGB));
+        softwareTime = time(new Runnable()
+        {
+            public void run()
+            {
+                tiled.clear(Color.BLACK);
+                tiled.draw(scene);
+            }
+        });
+        software = softwareTime < java2DTime;
+    }
+
+    /**
+     * Helper method that reads the saved choice, if it was made for the
+     * same pipeline, screen and JVM.
+     *
+     * @param gc The configuration frames are shown with
+     * @return True if a choice was read
+     */
+    private boolean load(GraphicsConfiguration gc)
+    {
+        if(!CACHE.isFile())
+        {
+            return false;
+        }
+
+        Properties props = new Properties();
+        try
+        {
+            FileInputStream in = new FileInputStream(CACHE);
+            try
+            {
+                props.load(in);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch(IOException e)
+        {
+            e.printStackTrace();
+            return false;
+        }
+
+        if(!signature(gc).equals(props.getProperty("signature")))
+        {
+            return false;
+        }
+        pipeline = pipelineName(gc);
+        blitPath = BlitPath.fromLabel(props.getProperty("blit"));
+        software = "software".equals(props.getProperty("renderer"));
+        return true;
+    }
+
+    /**
+     * Helper method that saves the choice, along with the times it was
+     * made from.
+     *
+     * @param gc The configuration frames are shown with
+     */
+    private void save(GraphicsConfiguration gc)
+    {
+        Properties props = new Properties();
+        props.setProperty("signature", signature(gc));
+        props.setProperty("blit", blitPath.getLabel());
+        props.setProperty("renderer", software ? "software" : "java2d");
+        BlitPath[] paths = BlitPath.values();
+        for(int i=0; i<paths.length; i++)
+        {
+            props.setProperty("time.blit." + paths[i].getLabel(), String.valueOf(blitTimes[i]));
+        }
+        props.setProperty("time.renderer.java2d", String.valueOf(java2DTime));
+        props.setProperty("time.renderer.software", String.valueOf(softwareTime));
+
+        try
+        {
+            CACHE.getParentFile().mkdirs();
+            FileOutputStream out = new FileOutputStream(CACHE);
+            try
+            {
+                props.store(out, "Nova pipeline probe");
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch(IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Helper method that describes everything the choice depends on: the
+     * Java2D pipeline and its settings, the screen, the JVM and the number
+     * of processors.
+     *
+     * @param gc The configuration frames are shown with
+     * @return The signature
+     */
+    private String signature(GraphicsConfiguration gc)
+    {
+        GraphicsDevice device = gc.getDevice();
+        return gc.getClass().getName()
+               + "|" + device.getIDstring()
+               + "|" + device.getDisplayMode().getWidth() + "x" + device.getDisplayMode().getHeight()
+               + "x" + device.getDisplayMode().getBitDepth()
+               + "|" + System.getProperty("sun.java2d.opengl")
+               + "|" + System.getProperty("sun.java2d.xrender")
+               + "|" + System.getProperty("sun.java2d.pmoffscreen")
+               + "|" + System.getProperty("os.name") + " " + System.getProperty("os.arch")
+               + "|" + System.getProperty("java.vm.version")
+               + "|" + Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Helper method that returns a short name for the Java2D pipeline,
+     * taken from the class of the configuration, such as XRGraphicsConfig.
+     *
+     * @param gc The configuration frames are shown with
+     * @return The name
+     */
+    private String pipelineName(GraphicsConfiguration gc)
+    {
+        return gc.getClass().getSimpleName();
+    }
+
+    /**
+     * Helper method that times a candidate, after running it a few times
+     * to let the JIT and Java2D settle.  Everything queued on the
+     * graphics card is finished before the clock is stopped.
+     *
+     * @param r The candidate
+     * @return Average time of a run, in nanoseconds
+     */
+    private long time(Runnable r)
+    {
+        for(int i=0; i<WARMUP_RUNS; i++)
+        {
+            r.run();
+        }
+
+        long start = System.nanoTime();
+        int runs = 0;
+        do
+        {
+            r.run();
+            runs++;
+        }
+        while(runs < SAMPLE_RUNS && System.nanoTime() - start < SAMPLE_NANOS);
+        Toolkit.getDefaultToolkit().sync();
+        return (System.nanoTime() - start) / runs;
+    }
+
+    /**
+     * Helper method that records a made-up frame like a busy moment in the
+     * game: thin particle lines, dots and a few ships.
+     *
+     * @return The frame
+     */
+    private DisplayList createScene()
+    {
+        DisplayList scene = new DisplayList();
+        Random randGen = new Random(1);
+        scene.setStroke(new BasicStroke(1));
+        for(int i=0; i<SCENE_LINES; i++)
+        {
+            scene.setColor(new Color(randGen.nextInt(0x1000000)));
+            double x = randGen.nextInt(GameSettings.WIDTH);
+            double y = randGen.nextInt(GameSettings.HEIGHT);
+            scene.drawLine(x, y, x + randGen.nextInt(21) - 10, y + randGen.nextInt(21) - 10);
+        }
+        for(int i=0; i<SCENE_DOTS; i++)
+        {
+            scene.fillDot(randGen.nextInt(GameSettings.WIDTH), randGen.nextInt(GameSettings.HEIGHT), 4);
+        }
+
+        Polygon ship = new Polygon(new int[] { -10, 10, -10 }, new int[] { -8, 0, 8 }, 3);
+        scene.setColor(Color.CYAN);
+        for(int i=0; i<SCENE_SHIPS; i++)
+        {
+            scene.fillPolygon(ship, randGen.nextInt(GameSettings.WIDTH), randGen.nextInt(GameSettings.HEIGHT),
+                              randGen.nextDouble() * Math.PI * 2);
+        }
+        return scene;
+    }
+
+    /**
+     * A single run of a blit path: a little of the frame is changed, as it
+     * would be by drawing the world, and the frame is then copied onto
+     * the stand-in for the canvas.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private class BlitRun implements Runnable
+    {
+        private GraphicsConfiguration gc;
+        private BlitPath path;
+        private BufferedImage frame;
+        private VolatileImage screen;
+        private VolatileImage volatileStage;
+        private BufferedImage compatibleStage;
+        private int runs;
+
+        /**
+         * Initializes a run of a blit path.
+         *
+         * @param c The configuration frames are shown with
+         * @param p The blit path
+         * @param f The frame
+         * @param s The stand-in for the canvas
+         */
+        public BlitRun(GraphicsConfiguration c, BlitPath p, BufferedImage f, VolatileImage s)
+        {
+            gc = c;
+            path = p;
+            frame = f;
+            screen = s;
+        }
+
+        /**
+         * Changes the frame and copies it onto the stand-in for the canvas.
+         */
+        public void run()
+        {
+            Graphics2D fg = frame.createGraphics();
+            fg.setColor(new Color(runs++ * 0x10101 & 0xFFFFFF));
+            fg.fillRect(0, 0, GameSettings.WIDTH, 8);
+            fg.dispose();
+
+            screen.validate(gc);
+            Graphics2D g = screen.createGraphics();
+            if(path == BlitPath.VOLATILE)
+            {
+                if(volatileStage == null || volatileStage.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE)
+                {
+                    volatileStage = gc.createCompatibleVolatileImage(GameSettings.WIDTH, GameSettings.HEIGHT);
+                }
+                Graphics2D sg = volatileStage.createGraphics();
+                sg.drawImage(frame, 0, 0, null);
+                sg.dispose();
+                g.drawImage(volatileStage, 0, 0, null);
+            }
+            else if(path == BlitPath.COMPATIBLE)
+            {
+                if(compatibleStage == null)
+                {
+                    compatibleStage = gc.createCompatibleImage(GameSettings.WIDTH, GameSettings.HEIGHT,
+                                                               Transparency.OPAQUE);
+                }
+                Graphics2D sg = compatibleStage.createGraphics();
+                sg.drawImage(frame, 0, 0, null);
+                sg.dispose();
+                g.drawImage(compatibleStage, 0, 0, null);
+            }
+            else
+            {
+                g.drawImage(frame, 0, 0, null);
+            }
+            g.dispose();
+        }
+    }
+}
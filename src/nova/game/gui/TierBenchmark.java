@@ -0,0 +1,141 @@
+package nova.game.gui;
+
+import nova.game.render.QualitySettings;
+import nova.game.render.QualityTier;
+import nova.game.render.ResolutionScaler;
+
+/**
+ * Measures what each quality tier costs to draw.  While running, the
+ * benchmark switches to each tier in turn, lets it settle for a number of
+ * frames, and then averages the time taken to draw the world over a
+ * number of frames.  The world is drawn at full resolution throughout so
+ * that the resolution scaler doesn't hide the difference between tiers.
+ * Once every tier has been measured, the tier and scale in use before the
+ * benchmark started are restored.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class TierBenchmark
+{
+    //frames skipped after switching tiers, while sprites and particles settle
+    private static final int WARMUP_FRAMES = 30;
+
+    //frames averaged for each tier
+    private static final int SAMPLE_FRAMES = 120;
+
+    private ResolutionScaler scaler;
+    private long[] results;
+    private boolean running;
+
+    private QualityTier restoreTier;
+    private float restoreScale;
+    private boolean restoreDynamic;
+
+    private int tier;
+    private int frame;
+    private long total;
+
+    /**
+     * Initializes the benchmark with no results.
+     *
+     * @param s Scaler choosing the resolution of the world
+     */
+    public TierBenchmark(ResolutionScaler s)
+    {
+        scaler = s;
+        results = new long[QualityTier.values().length];
+    }
+
+    /**
+     * Returns whether the benchmark is running.
+     *
+     * @return True if the benchmark is running
+     */
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * Returns the average time taken to draw the world at a tier during
+     * the last benchmark.
+     *
+     * @param t The tier
+     * @return Average frame time in nanoseconds, or 0 if not yet measured
+     */
+    public long getResult(QualityTier t)
+    {
+        return results[t.ordinal()];
+    }
+
+    /**
+     * Starts the benchmark from the lowest tier.  Does nothing if the
+     * benchmark is already running.
+     */
+    public void start()
+    {
+        if(running)
+        {
+            return;
+        }
+
+        restoreTier = QualitySettings.instance.getTier();
+        restoreScale = scaler.getScale();
+        restoreDynamic = scaler.isDynamic();
+        scaler.setDynamic(false);
+        scaler.setScale(ResolutionScaler.MAX_SCALE);
+
+        running = true;
+        select(0);
+    }
+
+    /**
+     * Records the time taken to draw a frame, moving on to the next tier
+     * once enough frames have been measured.  Should be called once per
+     * frame.
+     *
+     * @param frameNanos Time taken to draw the world, in nanoseconds
+     */
+    public void update(long frameNanos)
+    {
+        if(!running)
+        {
+            return;
+        }
+
+        frame++;
+        if(frame > WARMUP_FRAMES)
+        {
+            total += frameNanos;
+        }
+        if(frame == WARMUP_FRAMES + SAMPLE_FRAMES)
+        {
+            results[tier] = total / SAMPLE_FRAMES;
+            if(tier + 1 < results.length)
+            {
+                select(tier + 1);
+            }
+            else
+            {
+                running = false;
+                QualitySettings.instance.setTier(restoreTier);
+                scaler.setScale(restoreScale);
+                scaler.setDynamic(restoreDynamic);
+            }
+        }
+    }
+
+    /**
+     * Helper method that switches to a tier and starts measuring it.
+     *
+     * @param t Index of the tier
+     */
+    private void select(int t)
+    {
+        tier = t;
+        frame = 0;
+        total = 0;
+        QualitySettings.instance.setTier(QualityTier.values()[t]);
+    }
+}
@@ -0,0 +1,38 @@
+package nova.game.gui;
+
+/**
+ * What the game window is doing, which decides how much work the game
+ * does: everything runs at full rate while the window has focus, less
+ * while it is in the background, and nothing while it is minimized.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public enum WindowActivity
+{
+    FOCUSED("focused"),
+    UNFOCUSED("unfocused"),
+    MINIMIZED("minimized");
+
+    private final String label;
+
+    /**
+     * Initializes an activity.
+     *
+     * @param l Name shown for the activity
+     */
+    private WindowActivity(String l)
+    {
+        label = l;
+    }
+
+    /**
+     * Returns the name of the activity.
+     *
+     * @return The name
+     */
+    public String getLabel()
+    {
+        return label;
+    }
+}
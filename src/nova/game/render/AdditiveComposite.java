@@ -0,0 +1,272 @@
+package nova.game.render;
+
+import java.awt.Composite;
+import java.awt.CompositeContext;
+import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * A composite that adds colors onto what is already drawn instead of
+ * painting over it, so that overlapping particles get brighter rather than
+ * hiding each other.  Each channel of the source, scaled by its alpha, is
+ * added to the destination and clamped at 255.
+ * <p>
+ * Java2D has no additive mode of its own.  This composite can be set on a
+ * Graphics object like any other, and works on any pair of rasters, but is
+ * only fast when both are packed into ints, as TYPE_INT_RGB and
+ * TYPE_INT_ARGB images are.  Since Java2D sets up a composite for every
+ * shape drawn, drawing many small shapes with it is still slow; addDot
+ * does the same blending for a single dot directly on the pixels of an
+ * image, for drawing particles in bulk.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class AdditiveComposite implements Composite
+{
+    public static final AdditiveComposite instance = new AdditiveComposite();
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private AdditiveComposite() { }
+
+    /**
+     * Creates the context that does the blending for one drawing
+     * operation.
+     *
+     * @param srcColorModel Color model of what is being drawn
+     * @param dstColorModel Color model of what it is drawn onto
+     * @param hints Rendering hints, which are ignored
+     * @return The context
+     */
+    public CompositeContext createContext(ColorModel srcColorModel, ColorModel dstColorModel,
+                                          RenderingHints hints)
+    {
+        return new AdditiveContext(srcColorModel, dstColorModel);
+    }
+
+    /**
+     * Adds a round dot onto the pixels of a TYPE_INT_RGB or TYPE_INT_ARGB
+     * image.  Pixels on the edge of the dot are added in part, by how far
+     * their centers are inside it.  Only pixels inside the clip rectangle
+     * are changed, and the rest of the dot is drawn exactly as it would be
+     * without the clip.
+     *
+     * @param pixels Pixels of the image
+     * @param stride Distance between the starts of rows in pixels
+     * @param clipLeft x-coordinate of the left of the clip (inclusive)
+     * @param clipTop y-coordinate of the top of the clip (inclusive)
+     * @param clipRight x-coordinate of the right of the clip (exclusive)
+     * @param clipBottom y-coordinate of the bottom of the clip (exclusive)
+     * @param cx x-coordinate of the center, in pixels
+     * @param cy y-coordinate of the center, in pixels
+     * @param r Radius of the dot, in pixels
+     * @param argb Color of the dot, with alpha in the top byte
+     */
+    public void addDot(int[] pixels, int stride, int clipLeft, int clipTop, int clipRight, int clipBottom,
+                       float cx, float cy, float r, int argb)
+    {
+        int a = argb >>> 24;
+        if(a == 0)
+        {
+            return;
+        }
+        a += a >> 7;
+        int sr = (argb >> 16) & 0xFF;
+        int sg = (argb >> 8) & 0xFF;
+        int sb = argb & 0xFF;
+
+        int top = Math.max(clipTop, (int)Math.floor(cy - r));
+        int bottom = Math.min(clipBottom, (int)Math.ceil(cy + r));
+        int left = Math.max(clipLeft, (int)Math.floor(cx - r));
+        int right = Math.min(clipRight, (int)Math.ceil(cx + r));
+        for(int py=top; py<bottom; py++)
+        {
+            float dy = py + 0.5f - cy;
+            int i = py * stride;
+            for(int px=left; px<right; px++)
+            {
+                float dx = px + 0.5f - cx;
+                float coverage = r - (float)Math.sqrt(dx * dx + dy * dy) + 0.5f;
+                if(coverage <= 0)
+                {
+                    continue;
+                }
+                int c = (coverage >= 1) ? a : (int)(coverage * 256) * a >> 8;
+                pixels[i + px] = add(pixels[i + px], sr * c >> 8, sg * c >> 8, sb * c >> 8);
+            }
+        }
+    }
+
+    /**
+     * Helper method that adds to each color channel of a pixel, clamping
+     * at 255.  The alpha of the pixel is left as it is.
+     *
+     * @param p The pixel
+     * @param r Amount added to red
+     * @param g Amount added to green
+     * @param b Amount added to blue
+     * @return The new pixel
+     */
+    private static int add(int p, int r, int g, int b)
+    {
+        r = Math.min(255, ((p >> 16) & 0xFF) + r);
+        g = Math.min(255, ((p >> 8) & 0xFF) + g);
+        b = Math.min(255, (p & 0xFF) + b);
+        return (p & 0xFF000000) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Helper method that checks whether a raster stores each pixel as a
+     * single int with the usual layout of color channels.
+     *
+     * @param r The raster
+     * @param cm Color model of the raster
+     * @return True if the fast path can be used on it
+     */
+    private static boolean isPackedInt(Raster r, ColorModel cm)
+    {
+        if(!(r.getDataBuffer() instanceof DataBufferInt)
+           || !(r.getSampleModel() instanceof SinglePixelPackedSampleModel)
+           || !(cm instanceof DirectColorModel))
+        {
+            return false;
+        }
+
+        DirectColorModel dcm = (DirectColorModel)cm;
+        return dcm.getRedMask() == 0xFF0000 && dcm.getGreenMask() == 0xFF00 && dcm.getBlueMask() == 0xFF
+               && (dcm.getAlphaMask() == 0 || dcm.getAlphaMask() == 0xFF000000);
+    }
+
+    /**
+     * Helper method that returns the index in a packed int raster's data
+     * of one of its pixels.
+     *
+     * @param r The raster
+     * @param x x-coordinate of the pixel in the raster
+     * @param y y-coordinate of the pixel in the raster
+     * @return Index of the pixel
+     */
+    private static int indexOf(Raster r, int x, int y)
+    {
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel)r.getSampleModel();
+        return r.getDataBuffer().getOffset()
+               + sm.getOffset(x - r.getSampleModelTranslateX(), y - r.getSampleModelTranslateY());
+    }
+
+    /**
+     * The context that blends rasters for a single drawing operation.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private static class AdditiveContext implements CompositeContext
+    {
+        private ColorModel srcModel;
+        private ColorModel dstModel;
+
+        /**
+         * Initializes a context between the given color models.
+         *
+         * @param src Color model of what is being drawn
+         * @param dst Color model of what it is drawn onto
+         */
+        public AdditiveContext(ColorModel src, ColorModel dst)
+        {
+            srcModel = src;
+            dstModel = dst;
+        }
+
+        /**
+         * Adds the source onto the destination.
+         *
+         * @param src What is being drawn
+         * @param dstIn What it is drawn onto
+         * @param dstOut Where the result is written
+         */
+        public void compose(Raster src, Raster dstIn, WritableRaster dstOut)
+        {
+            int w = Math.min(src.getWidth(), dstIn.getWidth());
+            int h = Math.min(src.getHeight(), dstIn.getHeight());
+            if(isPackedInt(src, srcModel) && isPackedInt(dstIn, dstModel) && isPackedInt(dstOut, dstModel))
+            {
+                composePacked(src, dstIn, dstOut, w, h);
+                return;
+            }
+
+            Object srcPixel = null;
+            Object dstPixel = null;
+            for(int y=0; y<h; y++)
+            {
+                for(int x=0; x<w; x++)
+                {
+                    srcPixel = src.getDataElements(src.getMinX() + x, src.getMinY() + y, srcPixel);
+                    dstPixel = dstIn.getDataElements(dstIn.getMinX() + x, dstIn.getMinY() + y, dstPixel);
+                    int s = srcModel.getRGB(srcPixel);
+                    int a = s >>> 24;
+                    a += a >> 7;
+                    int d = add(dstModel.getRGB(dstPixel), ((s >> 16) & 0xFF) * a >> 8,
+                                ((s >> 8) & 0xFF) * a >> 8, (s & 0xFF) * a >> 8);
+                    dstPixel = dstModel.getDataElements(d, dstPixel);
+                    dstOut.setDataElements(dstOut.getMinX() + x, dstOut.getMinY() + y, dstPixel);
+                }
+            }
+        }
+
+        /**
+         * Helper method that adds one packed int raster onto another,
+         * working on their ints directly.
+         *
+         * @param src What is being drawn
+         * @param dstIn What it is drawn onto
+         * @param dstOut Where the result is written
+         * @param w Width of the area blended
+         * @param h Height of the area blended
+         */
+        private void composePacked(Raster src, Raster dstIn, WritableRaster dstOut, int w, int h)
+        {
+            int[] s = ((DataBufferInt)src.getDataBuffer()).getData();
+            int[] d = ((DataBufferInt)dstIn.getDataBuffer()).getData();
+            int[] o = ((DataBufferInt)dstOut.getDataBuffer()).getData();
+            boolean premultiplied = srcModel.isAlphaPremultiplied();
+            boolean opaque = !srcModel.hasAlpha();
+
+            for(int y=0; y<h; y++)
+            {
+                int si = indexOf(src, src.getMinX(), src.getMinY() + y);
+                int di = indexOf(dstIn, dstIn.getMinX(), dstIn.getMinY() + y);
+                int oi = indexOf(dstOut, dstOut.getMinX(), dstOut.getMinY() + y);
+                for(int x=0; x<w; x++)
+                {
+                    int p = s[si + x];
+                    int a = p >>> 24;
+                    a += a >> 7;
+                    if(premultiplied || opaque)
+                    {
+                        o[oi + x] = add(d[di + x], (p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF);
+                    }
+                    else if(a > 0)
+                    {
+                        o[oi + x] = add(d[di + x], ((p >> 16) & 0xFF) * a >> 8,
+                                        ((p >> 8) & 0xFF) * a >> 8, (p & 0xFF) * a >> 8);
+                    }
+                    else
+                    {
+                        o[oi + x] = d[di + x];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Releases resources held by this context, of which there are none.
+         */
+        public void dispose() { }
+    }
+}
@@ -0,0 +1,475 @@
+package nova.game.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Makes bright parts of the frame glow.  The frame is shrunk to a smaller
+ * copy, keeping only the pixels brighter than THRESHOLD, the copy is
+ * blurred, and the blurred copy is added back on top of the frame.
+ * <p>
+ * Everything is done directly on the int pixels of the frame rather than
+ * through Java2D, which has no fast blur.  The blur is a box blur run
+ * along the rows and then along the columns, using a running sum so its
+ * cost doesn't depend on the radius, and repeated PASSES times so that it
+ * is close to a gaussian.  Each step is split into bands of rows or
+ * columns that are run in parallel.
+ * <p>
+ * Most of a frame is too dark to glow, so the blur keeps track of which
+ * rows are black and skips them.  The three channels of a running sum are
+ * kept apart in a single long, so each pixel entering or leaving the box
+ * costs one addition.  The rows are blurred into unscaled sums, which the
+ * columns are blurred from directly, so each pass is only divided down
+ * once.  Bands of columns are blurred a row at a time, so the blur walks
+ * through memory in order rather than down columns.
+ * <p>
+ * The frame must be a TYPE_INT_RGB image.  Reading its pixels directly
+ * stops Java2D from caching it in video memory, which costs nothing here
+ * since the frame is redrawn every time it is shown anyway.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Bloom
+{
+    public static final Bloom instance = new Bloom();
+
+    //the frame is blurred at 1/DOWNSAMPLE of its width and height
+    private static final int DOWNSAMPLE = 2;
+
+    //radius of the blur at full resolution, in downsampled pixels
+    private static final int RADIUS = 3;
+
+    //number of times the box blur is applied
+    private static final int PASSES = 2;
+
+    //pixels with no color channel above this do not glow, which keeps
+    //the dim background grid from glowing
+    private static final int THRESHOLD = 96;
+
+    //brightness of the glow, out of 256 - thin lines are spread thinly
+    //by the blur, so the glow needs to be brighter than what it blurs
+    private static final int STRENGTH = 1024;
+
+    //rows or columns handled by a single task
+    private static final int BAND_SIZE = 16;
+
+    //steps run by tasks
+    private static final int SHRINK = 0;
+    private static final int BLUR_ROWS = 1;
+    private static final int BLUR_COLUMNS = 2;
+    private static final int ADD = 3;
+
+    private int[] frame;
+    private int stride;
+
+    //the blurred copy, and the sums of the rows blurred so far, with their
+    //channels spread out as by spread()
+    private int[] glow;
+    private long[] temp;
+
+    //rows of the glow and of the sums that may not be black
+    private boolean[] glowLit;
+    private boolean[] tempLit;
+    private int glowWidth;
+    private int glowHeight;
+
+    private int radius;
+    private int divisor;
+
+    private long lastTime;
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private Bloom() { }
+
+    /**
+     * Returns the time taken to apply bloom to the last frame.
+     *
+     * @return Time taken, in nanoseconds
+     */
+    public long getLastTime()
+    {
+        return lastTime;
+    }
+
+    /**
+     * Applies bloom to the top left corner of a frame.
+     *
+     * @param image The frame, a TYPE_INT_RGB image
+     * @param width Width of the part of the frame that was drawn to
+     * @param height Height of the part of the frame that was drawn to
+     * @param scale Scale the frame was drawn at, used to size the blur
+     */
+    public void apply(BufferedImage image, int width, int height, float scale)
+    {
+        long start = System.nanoTime();
+
+        frame = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        stride = image.getWidth();
+        glowWidth = width / DOWNSAMPLE;
+        glowHeight = height / DOWNSAMPLE;
+        if(glow == null || glow.length < glowWidth * glowHeight)
+        {
+            glow = new int[glowWidth * glowHeight];
+            temp = new long[glowWidth * glowHeight];
+        }
+        if(glowLit == null || glowLit.length < glowHeight)
+        {
+            glowLit = new boolean[glowHeight];
+            tempLit = new boolean[glowHeight];
+        }
+
+        //fixed point reciprocal of the number of pixels summed by a pass
+        //along the rows and then the columns
+        radius = Math.max(1, Math.round(RADIUS * scale));
+        divisor = (1 << 16) / ((2 * radius + 1) * (2 * radius + 1));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        pool.invoke(new BloomTask(SHRINK, 0, glowHeight));
+        for(int i=0; i<PASSES; i++)
+        {
+            pool.invoke(new BloomTask(BLUR_ROWS, 0, glowHeight));
+            pool.invoke(new BloomTask(BLUR_COLUMNS, 0, glowWidth));
+            spreadLit();
+        }
+        pool.invoke(new BloomTask(ADD, 0, glowHeight));
+
+        frame = null;
+        lastTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Helper method that works out which rows of the glow may not be
+     * black after the columns have been blurred: those within the radius
+     * of a row of the sums that wasn't.
+     */
+    private void spreadLit()
+    {
+        //last row of the sums seen that wasn't black
+        int last = -2 * radius - 1;
+        for(int y=0; y<glowHeight + radius; y++)
+        {
+            if(y < glowHeight && tempLit[y])
+            {
+                last = y;
+            }
+            if(y >= radius)
+            {
+                glowLit[y - radius] = y - last <= 2 * radius;
+            }
+        }
+    }
+
+    /**
+     * Helper method that fills rows of the glow with the average of each
+     * block of frame pixels, or black where the average is too dark.
+     *
+     * @param first First row (inclusive)
+     * @param last Last row (exclusive)
+     */
+    private void shrink(int first, int last)
+    {
+        int area = DOWNSAMPLE * DOWNSAMPLE;
+        for(int y=first; y<last; y++)
+        {
+            boolean lit = false;
+            for(int x=0; x<glowWidth; x++)
+            {
+                //red and blue are summed together, as they are far enough
+                //apart not to run into each other
+                int rb = 0;
+                int g = 0;
+                for(int dy=0; dy<DOWNSAMPLE; dy++)
+                {
+                    int i = (y * DOWNSAMPLE + dy) * stride + x * DOWNSAMPLE;
+                    for(int dx=0; dx<DOWNSAMPLE; dx++)
+                    {
+                        int p = frame[i + dx];
+                        rb += p & 0xFF00FF;
+                        g += p & 0xFF00;
+                    }
+                }
+                int r = (rb >>> 16) / area;
+                int b = (rb & 0xFFFF) / area;
+                g = (g >>> 8) / area;
+                if(r > THRESHOLD || g > THRESHOLD || b > THRESHOLD)
+                {
+                    glow[y * glowWidth + x] = (r << 16) | (g << 8) | b;
+                    lit = true;
+                }
+                else
+                {
+                    glow[y * glowWidth + x] = 0;
+                }
+            }
+            glowLit[y] = lit;
+        }
+    }
+
+    /**
+     * Helper method that box blurs rows of the glow into the sums, which
+     * are left unscaled.  Pixels past either end of a row count as black,
+     * and black rows are left black.
+     *
+     * @param first First row (inclusive)
+     * @param last Last row (exclusive)
+     */
+    private void blurRows(int first, int last)
+    {
+        for(int y=first; y<last; y++)
+        {
+            int start = y * glowWidth;
+            tempLit[y] = glowLit[y];
+            if(!glowLit[y])
+            {
+                Arrays.fill(temp, start, start + glowWidth, 0L);
+                continue;
+            }
+
+            long sum = 0;
+            for(int x=0; x<=radius && x<glowWidth; x++)
+            {
+                sum += spread(glow[start + x]);
+            }
+            for(int x=0; x<glowWidth; x++)
+            {
+                temp[start + x] = sum;
+                if(x + radius + 1 < glowWidth)
+                {
+                    sum += spread(glow[start + x + radius + 1]);
+                }
+                if(x - radius >= 0)
+                {
+                    sum -= spread(glow[start + x - radius]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that box blurs a band of columns of the sums back into
+     * the glow, dividing them down.  The band is worked through a row at a time,
+     * keeping a running sum for each column, and black rows are never
+     * added to or taken from the sums.  Pixels past either end of a
+     * column count as black.
+     *
+     * @param first First column (inclusive)
+     * @param last Last column (exclusive)
+     * @param sums Running sums, one for each column of the band
+     */
+    private void blurColumns(int first, int last, long[] sums)
+    {
+        int width = last - first;
+        Arrays.fill(sums, 0, width, 0);
+        for(int y=0; y<=radius && y<glowHeight; y++)
+        {
+            addRow(sums, y, first, width, 1);
+        }
+
+        for(int y=0; y<glowHeight; y++)
+        {
+            int start = y * glowWidth + first;
+            for(int x=0; x<width; x++)
+            {
+                glow[start + x] = average(sums[x]);
+            }
+            if(y + radius + 1 < glowHeight)
+            {
+                addRow(sums, y + radius + 1, first, width, 1);
+            }
+            if(y - radius >= 0)
+            {
+                addRow(sums, y - radius, first, width, -1);
+            }
+        }
+    }
+
+    /**
+     * Helper method that adds part of a row of the sums to, or takes it
+     * from, the running sums of a band of columns.  Does nothing if the
+     * row is black.
+     *
+     * @param sums Running sums of the band
+     * @param y The row
+     * @param first First column of the band
+     * @param width Number of columns in the band
+     * @param sign 1 to add the row, -1 to take it away
+     */
+    private void addRow(long[] sums, int y, int first, int width, int sign)
+    {
+        if(!tempLit[y])
+        {
+            return;
+        }
+        int start = y * glowWidth + first;
+        if(sign > 0)
+        {
+            for(int x=0; x<width; x++)
+            {
+                sums[x] += temp[start + x];
+            }
+        }
+        else
+        {
+            for(int x=0; x<width; x++)
+            {
+                sums[x] -= temp[start + x];
+            }
+        }
+    }
+
+    /**
+     * Helper method that spreads the channels of a pixel out in a long,
+     * with room between them for the sum of a whole box of pixels.
+     *
+     * @param p The pixel
+     * @return The channels, red in bits 42 up, green in bits 21 up and
+     *         blue in bits 0 up, each with room for sums of up to 8000
+     *         pixels
+     */
+    private static long spread(int p)
+    {
+        return ((long)(p & 0xFF0000) << 26) | ((long)(p & 0xFF00) << 13) | (p & 0xFF);
+    }
+
+    /**
+     * Helper method that turns the spread out sum of the pixels of a pass
+     * back into the pixel that is their average.
+     *
+     * @param sum The sum, as made by adding up spread()
+     * @return The average pixel
+     */
+    private int average(long sum)
+    {
+        int r = (int)(sum >>> 42);
+        int g = (int)(sum >>> 21) & 0x1FFFFF;
+        int b = (int)sum & 0x1FFFFF;
+        return ((r * divisor >> 16) << 16) | ((g * divisor >> 16) << 8) | (b * divisor >> 16);
+    }
+
+    /**
+     * Helper method that adds rows of the glow onto the frame, stretching
+     * each glow pixel over a block of frame pixels.
+     *
+     * @param first First row of the glow (inclusive)
+     * @param last Last row of the glow (exclusive)
+     */
+    private void add(int first, int last)
+    {
+        for(int y=first; y<last; y++)
+        {
+            if(!glowLit[y])
+            {
+                continue;
+            }
+
+            for(int x=0; x<glowWidth; x++)
+            {
+                int p = glow[y * glowWidth + x];
+                if(p == 0)
+                {
+                    continue;
+                }
+                int gr = Math.min(255, ((p >> 16) & 0xFF) * STRENGTH >> 8);
+                int gg = Math.min(255, ((p >> 8) & 0xFF) * STRENGTH >> 8);
+                int gb = Math.min(255, (p & 0xFF) * STRENGTH >> 8);
+                int light = (gr << 16) | (gg << 8) | gb;
+
+                for(int dy=0; dy<DOWNSAMPLE; dy++)
+                {
+                    int i = (y * DOWNSAMPLE + dy) * stride + x * DOWNSAMPLE;
+                    for(int dx=0; dx<DOWNSAMPLE; dx++)
+                    {
+                        frame[i + dx] = addSaturated(frame[i + dx] & 0xFFFFFF, light);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method that adds the channels of two pixels, stopping at 255
+     * rather than carrying into the next channel.  All three channels are
+     * added at once: the low 7 bits of each are added first, and the top
+     * bits then give the top bit of each sum and whether it overflowed.
+     *
+     * @param a The first pixel
+     * @param b The second pixel
+     * @return The sum
+     */
+    private static int addSaturated(int a, int b)
+    {
+        int sum = (a & 0x7F7F7F) + (b & 0x7F7F7F);
+        sum ^= (a ^ b) & 0x808080;
+        int overflow = ((a & b) | ((a | b) & ~sum)) & 0x808080;
+        return sum | ((overflow >>> 7) * 0xFF);
+    }
+
+    /**
+     * Fork-join task that runs one step of the bloom over a band of rows
+     * or columns, splitting itself in half until the band is no larger
+     * than BAND_SIZE.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private class BloomTask extends RecursiveAction
+    {
+        //version of the serialized form, which is never used
+        private static final long serialVersionUID = 1L;
+
+        private int step;
+        private int first;
+        private int last;
+
+        /**
+         * Initializes this task over the given band.
+         *
+         * @param s The step to run
+         * @param f First row or column (inclusive)
+         * @param l Last row or column (exclusive)
+         */
+        public BloomTask(int s, int f, int l)
+        {
+            step = s;
+            first = f;
+            last = l;
+        }
+
+        /**
+         * Runs the step over the band, or splits it if it is too large.
+         */
+        protected void compute()
+        {
+            if(last - first > BAND_SIZE)
+            {
+                int mid = (first + last) >>> 1;
+                invokeAll(new BloomTask(step, first, mid),
+                          new BloomTask(step, mid, last));
+                return;
+            }
+
+            if(step == SHRINK)
+            {
+                shrink(first, last);
+            }
+            else if(step == BLUR_ROWS)
+            {
+                blurRows(first, last);
+            }
+            else if(step == BLUR_COLUMNS)
+            {
+                blurColumns(first, last, new long[last - first]);
+            }
+            else
+            {
+                add(first, last);
+            }
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * A recording of a frame.  A display list is a surface that draws nothing
+ * when its draw methods are called; instead each call is written into a
+ * list, along with the color, stroke and antialiasing it was made with.
+ * The list can then be replayed onto any other surface, any number of
+ * times, or handed to something that reads it directly, such as the tiled
+ * rasterizer or the SVG exporter.
+ * <p>
+ * Calls are stored in flat arrays that grow as needed and are reused from
+ * frame to frame, so once the arrays are large enough, recording a frame
+ * creates nothing.  Colors, strokes, polygons and images are stored by
+ * reference, so they must not be changed until the list has been replayed.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class DisplayList implements Surface
+{
+    //kinds of recorded calls
+    static final int LINE = 0;
+    static final int LINES = 1;
+    static final int DOT = 2;
+    static final int ADDED_DOT = 3;
+    static final int POLYGON = 4;
+    static final int IMAGE = 5;
+
+    //names of the kinds of calls, used when dumping a list
+    private static final String[] NAMES = {"line", "lines", "dot", "added-dot", "polygon", "image"};
+
+    private static final BasicStroke DEFAULT_STROKE = new BasicStroke(1);
+
+    private GraphicsConfiguration config;
+    private Color color;
+    private BasicStroke stroke;
+    private boolean antialiased;
+
+    //recorded calls: what kind each is, the state it was made with, the
+    //polygon or image it draws, and where its arguments start in args
+    int[] kinds;
+    Color[] colors;
+    BasicStroke[] strokes;
+    boolean[] antialiasing;
+    Object[] targets;
+    int[] argStarts;
+    double[] args;
+    int count;
+    private int argCount;
+
+    //space used to replay runs of lines and dots as single calls
+    private float[] lineCoords;
+    private int[] dotCoords;
+    private int[] dotColors;
+
+    /**
+     * Initializes an empty list.
+     */
+    public DisplayList()
+    {
+        color = Color.WHITE;
+        stroke = DEFAULT_STROKE;
+        antialiased = false;
+
+        kinds = new int[1024];
+        colors = new Color[1024];
+        strokes = new BasicStroke[1024];
+        antialiasing = new boolean[1024];
+        targets = new Object[1024];
+        argStarts = new int[1024];
+        args = new double[4096];
+
+        lineCoords = new float[1024];
+        dotCoords = new int[2 * 256];
+        dotColors = new int[256];
+    }
+
+    /**
+     * Returns the number of calls recorded.
+     *
+     * @return Number of calls
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Forgets every recorded call.
+     */
+    public void reset()
+    {
+        Arrays.fill(colors, 0, count, null);
+        Arrays.fill(strokes, 0, count, null);
+        Arrays.fill(targets, 0, count, null);
+        count = 0;
+        argCount = 0;
+    }
+
+    /**
+     * Returns the configuration given to whatever draws into this list,
+     * which should be that of the surface the list will be replayed onto.
+     *
+     * @return The configuration, or null if there is none
+     */
+    public GraphicsConfiguration getDeviceConfiguration()
+    {
+        return config;
+    }
+
+    /**
+     * Sets the configuration given to whatever draws into this list.  It
+     * should be null if the list will be replayed onto a surface that
+     * can't draw VolatileImages.
+     *
+     * @param gc The configuration, or null if there is none
+     */
+    public void setDeviceConfiguration(GraphicsConfiguration gc)
+    {
+        config = gc;
+    }
+
+    /**
+     * Returns the color shapes are drawn in.
+     *
+     * @return The current color
+     */
+    public Color getColor()
+    {
+        return color;
+    }
+
+    /**
+     * Sets the color shapes are drawn in.
+     *
+     * @param c The new color
+     */
+    public void setColor(Color c)
+    {
+        color = c;
+    }
+
+    /**
+     * Returns the stroke lines are drawn with.
+     *
+     * @return The current stroke
+     */
+    public BasicStroke getStroke()
+    {
+        return stroke;
+    }
+
+    /**
+     * Sets the stroke lines are drawn with.
+     *
+     * @param s The new stroke
+     */
+    public void setStroke(BasicStroke s)
+    {
+        stroke = s;
+    }
+
+    /**
+     * Returns whether lines and shapes are antialiased.
+     *
+     * @return True if antialiased
+     */
+    public boolean isAntialiased()
+    {
+        return antialiased;
+    }
+
+    /**
+     * Switches antialiasing of lines and shapes on or off.
+     *
+     * @param aa Whether or not to antialias
+     */
+    public void setAntialiased(boolean aa)
+    {
+        antialiased = aa;
+    }
+
+    /**
+     * Records a line.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     */
+    public void drawLine(double x1, double y1, double x2, double y2)
+    {
+        record(LINE, null, 4);
+        args[argCount++] = x1;
+        args[argCount++] = y1;
+        args[argCount++] = x2;
+        args[argCount++] = y2;
+    }
+
+    /**
+     * Records a number of separate lines as a single call.
+     *
+     * @param coords Endpoints of the lines, four values per line
+     * @param length Number of values used from coords
+     */
+    public void drawLines(float[] coords, int length)
+    {
+        int lines = length / 4;
+        record(LINES, null, 1 + 4 * lines);
+        args[argCount++] = lines;
+        for(int i=0; i<4*lines; i++)
+        {
+            args[argCount++] = coords[i];
+        }
+    }
+
+    /**
+     * Records a round dot.
+     *
+     * @param x x-coordinate of the center
+     * @param y y-coordinate of the center
+     * @param size Diameter of the dot
+     */
+    public void fillDot(int x, int y, int size)
+    {
+        record(DOT, null, 3);
+        args[argCount++] = x;
+        args[argCount++] = y;
+        args[argCount++] = size;
+    }
+
+    /**
+     * Records a number of dots added onto what is already drawn, as one
+     * call per dot.  Runs of them are replayed as a single call.
+     *
+     * @param coords Centers of the dots, two values per dot: x, y
+     * @param argb Color of each dot, with alpha in the top byte
+     * @param n Number of dots
+     * @param size Diameter of the dots
+     */
+    public void addDots(int[] coords, int[] argb, int n, int size)
+    {
+        for(int i=0; i<n; i++)
+        {
+            record(ADDED_DOT, null, 4);
+            args[argCount++] = coords[2*i];
+            args[argCount++] = coords[2*i+1];
+            args[argCount++] = size;
+            args[argCount++] = argb[i];
+        }
+    }
+
+    /**
+     * Records a polygon, rotated about the origin and then moved to the
+     * given point.
+     *
+     * @param p The polygon
+     * @param x x-coordinate the polygon's origin is moved to
+     * @param y y-coordinate the polygon's origin is moved to
+     * @param rot Rotation of the polygon
+     */
+    public void fillPolygon(Polygon p, double x, double y, double rot)
+    {
+        record(POLYGON, p, 3);
+        args[argCount++] = x;
+        args[argCount++] = y;
+        args[argCount++] = rot;
+    }
+
+    /**
+     * Records a copy of part of an image.
+     *
+     * @param img The image
+     * @param dx x-coordinate of the left of the copy
+     * @param dy y-coordinate of the top of the copy
+     * @param sx x-coordinate of the left of the part of the image copied
+     * @param sy y-coordinate of the top of the part of the image copied
+     * @param w Width of the part copied
+     * @param h Height of the part copied
+     */
+    public void drawImage(Image img, int dx, int dy, int sx, int sy, int w, int h)
+    {
+        record(IMAGE, img, 6);
+        args[argCount++] = dx;
+        args[argCount++] = dy;
+        args[argCount++] = sx;
+        args[argCount++] = sy;
+        args[argCount++] = w;
+        args[argCount++] = h;
+    }
+
+    /**
+     * Replays every recorded call onto a surface, in order.  The color,
+     * stroke and antialiasing of the surface are only changed when they
+     * differ from the call before.
+     *
+     * @param s The surface
+     */
+    public void replay(Surface s)
+    {
+        //antialiasing is -1 until it has been set, then 0 or 1
+        Color lastColor = null;
+        BasicStroke lastStroke = null;
+        int lastAntialiased = -1;
+        for(int call=0; call<count; call++)
+        {
+            if(kinds[call] == ADDED_DOT)
+            {
+                call = replayDots(s, call) - 1;
+                continue;
+            }
+
+            if(colors[call] != lastColor)
+            {
+                lastColor = colors[call];
+                s.setColor(lastColor);
+            }
+            if(strokes[call] != lastStroke)
+            {
+                lastStroke = strokes[call];
+                s.setStroke(lastStroke);
+            }
+            int aa = antialiasing[call] ? 1 : 0;
+            if(aa != lastAntialiased)
+            {
+                lastAntialiased = aa;
+                s.setAntialiased(antialiasing[call]);
+            }
+
+            int a = argStarts[call];
+            switch(kinds[call])
+            {
+                case LINE:
+                    s.drawLine(args[a], args[a+1], args[a+2], args[a+3]);
+                    break;
+                case LINES:
+                    int length = 4 * (int)args[a];
+                    if(lineCoords.length < length)
+                    {
+                        lineCoords = new float[length];
+                    }
+                    for(int i=0; i<length; i++)
+                    {
+                        lineCoords[i] = (float)args[a+1+i];
+                    }
+                    s.drawLines(lineCoords, length);
+                    break;
+                case DOT:
+                    s.fillDot((int)args[a], (int)args[a+1], (int)args[a+2]);
+                    break;
+                case POLYGON:
+                    s.fillPolygon((Polygon)targets[call], args[a], args[a+1], args[a+2]);
+                    break;
+                default:
+                    s.drawImage((Image)targets[call], (int)args[a], (int)args[a+1],
+                                (int)args[a+2], (int)args[a+3], (int)args[a+4], (int)args[a+5]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes every recorded call as a line of text, with a count of each
+     * kind of call at the top, for looking at what a frame is made of.
+     *
+     * @param out Where the calls are written
+     */
+    public void dump(PrintWriter out)
+    {
+        int[] totals = new int[NAMES.length];
+        for(int call=0; call<count; call++)
+        {
+            totals[kinds[call]]++;
+        }
+        out.println("# " + count + " calls");
+        for(int k=0; k<NAMES.length; k++)
+        {
+            out.println("# " + NAMES[k] + ": " + totals[k]);
+        }
+
+        for(int call=0; call<count; call++)
+        {
+            int a = argStarts[call];
+            int end = (call + 1 < count) ? argStarts[call+1] : argCount;
+            out.print(NAMES[kinds[call]]);
+            for(int i=a; i<end; i++)
+            {
+                out.print(' ');
+                out.print((float)args[i]);
+            }
+            if(kinds[call] != ADDED_DOT)
+            {
+                out.print(" color=" + Integer.toHexString(colors[call].getRGB()));
+                out.print(" width=" + strokes[call].getLineWidth());
+                out.print(" aa=" + antialiasing[call]);
+            }
+            if(targets[call] != null)
+            {
+                out.print(" target=" + targets[call].getClass().getSimpleName()
+                          + "@" + Integer.toHexString(System.identityHashCode(targets[call])));
+            }
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * Helper method that replays a run of added dots as a single call.
+     *
+     * @param s The surface
+     * @param first The first call of the run
+     * @return The call after the run
+     */
+    private int replayDots(Surface s, int first)
+    {
+        int size = (int)args[argStarts[first] + 2];
+        int end = first;
+        while(end < count && kinds[end] == ADDED_DOT && (int)args[argStarts[end] + 2] == size)
+        {
+            end++;
+        }
+
+        int n = end - first;
+        if(dotColors.length < n)
+        {
+            dotCoords = new int[2 * n];
+            dotColors = new int[n];
+        }
+        for(int i=0; i<n; i++)
+        {
+            int a = argStarts[first + i];
+            dotCoords[2*i] = (int)args[a];
+            dotCoords[2*i+1] = (int)args[a+1];
+            dotColors[i] = (int)args[a+3];
+        }
+        s.addDots(dotCoords, dotColors, n, size);
+        return end;
+    }
+
+    /**
+     * Helper method that records a call with the current state, making
+     * room for it and its arguments.
+     *
+     * @param kind What kind of call it is
+     * @param target The polygon or image it draws, if any
+     * @param argLength Number of arguments it takes
+     */
+    private void record(int kind, Object target, int argLength)
+    {
+        if(count == kinds.length)
+        {
+            int length = count * 2;
+            kinds = Arrays.copyOf(kinds, length);
+            colors = Arrays.copyOf(colors, length);
+            strokes = Arrays.copyOf(strokes, length);
+            antialiasing = Arrays.copyOf(antialiasing, length);
+            targets = Arrays.copyOf(targets, length);
+            argStarts = Arrays.copyOf(argStarts, length);
+        }
+        if(argCount + argLength > args.length)
+        {
+            args = Arrays.copyOf(args, Math.max(args.length * 2, argCount + argLength));
+        }
+
+        kinds[count] = kind;
+        colors[count] = color;
+        strokes[count] = stroke;
+        antialiasing[count] = antialiased;
+        targets[count] = target;
+        argStarts[count] = argCount;
+        count++;
+    }
+}
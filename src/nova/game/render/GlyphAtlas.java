@@ -0,0 +1,262 @@
+package nova.game.render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * A sheet of pre-rendered characters in a single font and color.  Drawing
+ * text with a TrueType font means laying out and rasterizing the glyphs
+ * every time, while copying them from an image is cheap.  Numbers can be
+ * drawn straight from an int, so scores never need to be turned into
+ * Strings.
+ * <p>
+ * Only the printable ASCII characters are held, and each one is placed by
+ * its own advance, so kerning is ignored.  The sheet is built once, and
+ * is an ordinary image so Java2D can keep a copy of it in video memory.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class GlyphAtlas
+{
+    //range of characters held in the sheet
+    private static final char FIRST_CHAR = ' ';
+    private static final char LAST_CHAR = '~';
+
+    private BufferedImage sheet;
+    private int[] cellX;
+    private int[] advances;
+    private int pad;
+    private int cellHeight;
+    private int ascent;
+    private int descent;
+    private int height;
+
+    //digits of the number being drawn, least significant first
+    private int[] digits;
+
+    /**
+     * Builds the sheet for the given font and color.
+     *
+     * @param font The font the characters are drawn in
+     * @param color The color the characters are drawn in
+     */
+    public GlyphAtlas(Font font, Color color)
+    {
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D sg = scratch.createGraphics();
+        sg.setFont(font);
+        FontMetrics fm = sg.getFontMetrics();
+        sg.dispose();
+
+        ascent = fm.getAscent();
+        descent = fm.getDescent();
+        height = fm.getHeight();
+
+        //room around each glyph for any part of it outside its advance
+        pad = Math.max(2, font.getSize() / 4);
+        cellHeight = ascent + descent + 2 * pad;
+
+        int n = LAST_CHAR - FIRST_CHAR + 1;
+        cellX = new int[n];
+        advances = new int[n];
+        int x = 0;
+        for(int i=0; i<n; i++)
+        {
+            cellX[i] = x;
+            advances[i] = fm.charWidth((char)(FIRST_CHAR + i));
+            x += advances[i] + 2 * pad;
+        }
+
+        sheet = new BufferedImage(x, cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(color);
+        for(int i=0; i<n; i++)
+        {
+            g.drawString(String.valueOf((char)(FIRST_CHAR + i)), cellX[i] + pad, pad + ascent);
+        }
+        g.dispose();
+
+        digits = new int[20];
+    }
+
+    /**
+     * Returns the ascent of the font.
+     *
+     * @return Ascent, in pixels
+     */
+    public int getAscent()
+    {
+        return ascent;
+    }
+
+    /**
+     * Returns the descent of the font.
+     *
+     * @return Descent, in pixels
+     */
+    public int getDescent()
+    {
+        return descent;
+    }
+
+    /**
+     * Returns the standard height of a line of text in the font.
+     *
+     * @return Line height, in pixels
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Returns how far a character may be drawn outside its advance and
+     * the ascent and descent of the font.
+     *
+     * @return Padding around each character, in pixels
+     */
+    public int getPad()
+    {
+        return pad;
+    }
+
+    /**
+     * Returns the advance of a character.
+     *
+     * @param c The character
+     * @return Advance, in pixels, or 0 if the character isn't held
+     */
+    public int charWidth(char c)
+    {
+        if(c < FIRST_CHAR || c > LAST_CHAR)
+        {
+            return 0;
+        }
+        return advances[c - FIRST_CHAR];
+    }
+
+    /**
+     * Returns the width of a String.
+     *
+     * @param s The String
+     * @return Width, in pixels
+     */
+    public int stringWidth(String s)
+    {
+        int width = 0;
+        for(int i=0; i<s.length(); i++)
+        {
+            width += charWidth(s.charAt(i));
+        }
+        return width;
+    }
+
+    /**
+     * Returns the width of a number.
+     *
+     * @param value The number
+     * @return Width, in pixels
+     */
+    public int intWidth(int value)
+    {
+        int count = splitDigits(value);
+        int width = (value < 0) ? charWidth('-') : 0;
+        for(int i=0; i<count; i++)
+        {
+            width += charWidth((char)('0' + digits[i]));
+        }
+        return width;
+    }
+
+    /**
+     * Draws a character.
+     *
+     * @param g The surface being drawn to
+     * @param c The character
+     * @param x x-coordinate of the left of the character
+     * @param y y-coordinate of the baseline
+     * @return x-coordinate after the character
+     */
+    public int drawChar(Surface g, char c, int x, int y)
+    {
+        if(c < FIRST_CHAR || c > LAST_CHAR)
+        {
+            return x;
+        }
+
+        int i = c - FIRST_CHAR;
+        int sx = cellX[i];
+        int width = advances[i] + 2 * pad;
+        int dx = x - pad;
+        int dy = y - ascent - pad;
+        g.drawImage(sheet, dx, dy, sx, 0, width, cellHeight);
+        return x + advances[i];
+    }
+
+    /**
+     * Draws a String.
+     *
+     * @param g The surface being drawn to
+     * @param s The String
+     * @param x x-coordinate of the left of the String
+     * @param y y-coordinate of the baseline
+     * @return x-coordinate after the String
+     */
+    public int drawString(Surface g, String s, int x, int y)
+    {
+        for(int i=0; i<s.length(); i++)
+        {
+            x = drawChar(g, s.charAt(i), x, y);
+        }
+        return x;
+    }
+
+    /**
+     * Draws a number without creating a String.
+     *
+     * @param g The surface being drawn to
+     * @param value The number
+     * @param x x-coordinate of the left of the number
+     * @param y y-coordinate of the baseline
+     * @return x-coordinate after the number
+     */
+    public int drawInt(Surface g, int value, int x, int y)
+    {
+        int count = splitDigits(value);
+        if(value < 0)
+        {
+            x = drawChar(g, '-', x, y);
+        }
+        for(int i=count-1; i>=0; i--)
+        {
+            x = drawChar(g, (char)('0' + digits[i]), x, y);
+        }
+        return x;
+    }
+
+    /**
+     * Helper method that splits a number into its decimal digits.
+     *
+     * @param value The number
+     * @return The number of digits
+     */
+    private int splitDigits(int value)
+    {
+        long v = Math.abs((long)value);
+        int count = 0;
+        do
+        {
+            digits[count++] = (int)(v % 10);
+            v /= 10;
+        }
+        while(v > 0);
+        return count;
+    }
+}
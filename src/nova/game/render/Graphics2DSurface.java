@@ -0,0 +1,299 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * A surface that draws with a Java2D Graphics object, which may belong to
+ * the screen or to an image.  The same surface can be pointed at a new
+ * Graphics object every frame, so nothing is created while drawing.
+ * <p>
+ * Java2D has no additive blending, so added dots are drawn with
+ * AdditiveComposite.  When the Graphics object draws into a TYPE_INT_RGB
+ * image and the surface is told which one, the dots are added straight
+ * into the image's pixels instead, which is far faster than having Java2D
+ * set up the composite for every dot.  Doing so stops Java2D from
+ * accelerating the image.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Graphics2DSurface implements Surface
+{
+    private Graphics2D graphics;
+    private BufferedImage target;
+    private int[] targetPixels;
+    private Line2D.Double line;
+    private Path2D.Float path;
+
+    /**
+     * Initializes a surface with nothing to draw to yet.
+     */
+    public Graphics2DSurface()
+    {
+        line = new Line2D.Double();
+        path = new Path2D.Float();
+    }
+
+    /**
+     * Initializes a surface that draws to the given Graphics object.
+     *
+     * @param g The Graphics object being drawn to
+     */
+    public Graphics2DSurface(Graphics2D g)
+    {
+        this();
+        graphics = g;
+    }
+
+    /**
+     * Returns the Graphics object being drawn to.
+     *
+     * @return The Graphics object
+     */
+    public Graphics2D getGraphics()
+    {
+        return graphics;
+    }
+
+    /**
+     * Sets the Graphics object being drawn to.
+     *
+     * @param g The Graphics object
+     */
+    public void setGraphics(Graphics2D g)
+    {
+        graphics = g;
+    }
+
+    /**
+     * Sets the image the Graphics object draws into, so that dots can be
+     * added straight into its pixels.
+     *
+     * @param img The image, or null if it isn't a TYPE_INT_RGB image
+     */
+    public void setTarget(BufferedImage img)
+    {
+        target = (img != null && img.getType() == BufferedImage.TYPE_INT_RGB) ? img : null;
+        targetPixels = null;
+    }
+
+    /**
+     * Returns the configuration of the Graphics object.
+     *
+     * @return The configuration
+     */
+    public GraphicsConfiguration getDeviceConfiguration()
+    {
+        return graphics.getDeviceConfiguration();
+    }
+
+    /**
+     * Returns the color shapes are drawn in.
+     *
+     * @return The current color
+     */
+    public Color getColor()
+    {
+        return graphics.getColor();
+    }
+
+    /**
+     * Sets the color shapes are drawn in.
+     *
+     * @param c The new color
+     */
+    public void setColor(Color c)
+    {
+        graphics.setColor(c);
+    }
+
+    /**
+     * Returns the stroke lines are drawn with.
+     *
+     * @return The current stroke
+     */
+    public BasicStroke getStroke()
+    {
+        return (BasicStroke)graphics.getStroke();
+    }
+
+    /**
+     * Sets the stroke lines are drawn with.
+     *
+     * @param s The new stroke
+     */
+    public void setStroke(BasicStroke s)
+    {
+        graphics.setStroke(s);
+    }
+
+    /**
+     * Returns whether lines and shapes are antialiased.
+     *
+     * @return True if antialiased
+     */
+    public boolean isAntialiased()
+    {
+        return graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON;
+    }
+
+    /**
+     * Switches antialiasing of lines and shapes on or off.
+     *
+     * @param aa Whether or not to antialias
+     */
+    public void setAntialiased(boolean aa)
+    {
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                                  aa ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+    }
+
+    /**
+     * Draws a line.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     */
+    public void drawLine(double x1, double y1, double x2, double y2)
+    {
+        line.setLine(x1, y1, x2, y2);
+        graphics.draw(line);
+    }
+
+    /**
+     * Draws a number of separate lines as a single path.
+     *
+     * @param coords Endpoints of the lines, four values per line
+     * @param length Number of values used from coords
+     */
+    public void drawLines(float[] coords, int length)
+    {
+        path.reset();
+        for(int i=0; i<length; i+=4)
+        {
+            path.moveTo(coords[i], coords[i+1]);
+            path.lineTo(coords[i+2], coords[i+3]);
+        }
+        graphics.draw(path);
+    }
+
+    /**
+     * Fills a round dot centered on the given point.
+     *
+     * @param x x-coordinate of the center
+     * @param y y-coordinate of the center
+     * @param size Diameter of the dot
+     */
+    public void fillDot(int x, int y, int size)
+    {
+        graphics.fillOval(x - size/2, y - size/2, size, size);
+    }
+
+    /**
+     * Fills a polygon, rotated about the origin and then moved to the
+     * given point.
+     *
+     * @param p The polygon
+     * @param x x-coordinate the polygon's origin is moved to
+     * @param y y-coordinate the polygon's origin is moved to
+     * @param rot Rotation of the polygon
+     */
+    public void fillPolygon(Polygon p, double x, double y, double rot)
+    {
+        AffineTransform oldTransform = graphics.getTransform();
+        graphics.translate(x, y);
+        graphics.rotate(rot);
+        graphics.fill(p);
+        graphics.setTransform(oldTransform);
+    }
+
+    /**
+     * Adds a number of round dots onto what is already drawn, each in its
+     * own color.  The dots are written straight into the target image if
+     * the Graphics object is only scaled and moved, and are otherwise
+     * filled through AdditiveComposite.
+     *
+     * @param coords Centers of the dots, two values per dot: x, y
+     * @param colors Color of each dot, with alpha in the top byte
+     * @param count Number of dots
+     * @param size Diameter of the dots
+     */
+    public void addDots(int[] coords, int[] colors, int count, int size)
+    {
+        AffineTransform t = graphics.getTransform();
+        int scaling = AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE
+                      | AffineTransform.TYPE_GENERAL_SCALE;
+        if(target == null || (t.getType() & ~scaling) != 0)
+        {
+            Color oldColor = graphics.getColor();
+            Composite oldComposite = graphics.getComposite();
+            graphics.setComposite(AdditiveComposite.instance);
+            for(int i=0; i<count; i++)
+            {
+                graphics.setColor(new Color(colors[i], true));
+                fillDot(coords[2*i], coords[2*i+1], size);
+            }
+            graphics.setComposite(oldComposite);
+            graphics.setColor(oldColor);
+            return;
+        }
+
+        if(targetPixels == null)
+        {
+            targetPixels = ((DataBufferInt)target.getRaster().getDataBuffer()).getData();
+        }
+
+        //the clip is kept in game units, and the pixels are in device units
+        Rectangle bounds = new Rectangle(0, 0, target.getWidth(), target.getHeight());
+        Shape clip = graphics.getClip();
+        if(clip != null)
+        {
+            bounds = bounds.intersection(t.createTransformedShape(clip).getBounds());
+        }
+
+        float sx = (float)t.getScaleX();
+        float sy = (float)t.getScaleY();
+        float tx = (float)t.getTranslateX();
+        float ty = (float)t.getTranslateY();
+        float r = size * sx / 2;
+        for(int i=0; i<count; i++)
+        {
+            AdditiveComposite.instance.addDot(targetPixels, target.getWidth(),
+                                              bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height,
+                                              coords[2*i] * sx + tx, coords[2*i+1] * sy + ty, r, colors[i]);
+        }
+    }
+
+    /**
+     * Copies part of an image.
+     *
+     * @param img The image
+     * @param dx x-coordinate of the left of the copy
+     * @param dy y-coordinate of the top of the copy
+     * @param sx x-coordinate of the left of the part of the image copied
+     * @param sy y-coordinate of the top of the part of the image copied
+     * @param width Width of the part copied
+     * @param height Height of the part copied
+     */
+    public void drawImage(Image img, int dx, int dy, int sx, int sy, int width, int height)
+    {
+        graphics.drawImage(img, dx, dy, dx + width, dy + height,
+                           sx, sy, sx + width, sy + height, null);
+    }
+}
@@ -0,0 +1,107 @@
+package nova.game.render;
+
+import nova.game.engine.particle.ParticleEngine;
+
+/**
+ * Holds the quality tier the game is currently drawn at.  Selecting a
+ * tier applies the parts of it that live outside of the renderer: the
+ * particle budget and the choice between ship sprites and vectors.
+ * <p>
+ * Whether particles are added onto the frame or painted over it, and
+ * whether moving things leave trails, are set separately from the tier,
+ * since they change how the game looks.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class QualitySettings
+{
+    public static final QualitySettings instance = new QualitySettings();
+
+    private volatile QualityTier tier;
+    private volatile boolean additiveParticles;
+    private volatile boolean trails;
+
+    /**
+     * Initializes the settings at the default tier.  The tier is not
+     * applied until it is first selected.
+     */
+    private QualitySettings()
+    {
+        tier = QualityTier.getDefault();
+        additiveParticles = true;
+    }
+
+    /**
+     * Returns the tier currently drawn at.
+     *
+     * @return The current tier
+     */
+    public QualityTier getTier()
+    {
+        return tier;
+    }
+
+    /**
+     * Returns whether particle dots are added onto the frame, so that
+     * overlapping dots get brighter, rather than painted over it.
+     *
+     * @return True if particles are additive
+     */
+    public boolean isAdditiveParticles()
+    {
+        return additiveParticles;
+    }
+
+    /**
+     * Sets whether particle dots are added onto the frame or painted over
+     * it.
+     *
+     * @param a Whether or not particles are additive
+     */
+    public void setAdditiveParticles(boolean a)
+    {
+        additiveParticles = a;
+    }
+
+    /**
+     * Returns whether each frame is drawn over a faded copy of the last,
+     * leaving trails behind moving things.
+     *
+     * @return True if trails are drawn
+     */
+    public boolean isTrails()
+    {
+        return trails;
+    }
+
+    /**
+     * Sets whether trails are drawn.  The main ship's exhaust particles
+     * are only made without trails, since the ship leaves a trail of its
+     * own.
+     *
+     * @param t Whether or not to draw trails
+     */
+    public void setTrails(boolean t)
+    {
+        if(t && !trails)
+        {
+            Trails.instance.reset();
+        }
+        trails = t;
+        ParticleEngine.instance.setExhaust(!t);
+    }
+
+    /**
+     * Switches to a tier, setting the particle budget and ship drawing
+     * mode to match it.
+     *
+     * @param t The tier to switch to
+     */
+    public void setTier(QualityTier t)
+    {
+        tier = t;
+        ParticleEngine.instance.setParticleBudget(t.getParticleBudget());
+        ShipSpriteCache.instance.setEnabled(t.usesShipSprites());
+    }
+}
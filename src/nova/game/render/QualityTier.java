@@ -0,0 +1,168 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.RenderingHints;
+
+import nova.game.engine.GameSettings;
+
+/**
+ * A named level of rendering quality.  Each tier bundles the rendering
+ * hints and stroke widths the world is drawn with, the number of
+ * particles allowed on screen at once, whether ships are drawn from
+ * sprites or as vectors, and whether bloom is applied to the frame.
+ * <p>
+ * Antialiasing is only worth its cost on the ships, which are large, slow
+ * moving and looked at closely.  The grid and particles are always drawn
+ * without it, and ships are only antialiased when GameSettings.ANTIALIASED
+ * is set.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public enum QualityTier
+{
+    LOW("low", false, 1, 1.5f, 2000, true, false, RenderingHints.VALUE_RENDER_SPEED),
+    MEDIUM("medium", true, 1, 2, 8000, true, true, RenderingHints.VALUE_RENDER_DEFAULT),
+    HIGH("high", true, 2, 2, Integer.MAX_VALUE, false, true, RenderingHints.VALUE_RENDER_QUALITY);
+
+    private final String label;
+    private final boolean shipAntialiasing;
+    private final BasicStroke lineStroke;
+    private final BasicStroke shipStroke;
+    private final int particleBudget;
+    private final boolean shipSprites;
+    private final boolean bloom;
+    private final Object rendering;
+
+    /**
+     * Initializes a tier.
+     *
+     * @param l Name shown for the tier
+     * @param aa Whether or not ships are antialiased
+     * @param lineWidth Width of particle lines
+     * @param shipWidth Width of the lines of ships
+     * @param budget Maximum number of particles alive at once
+     * @param sprites Whether ships are drawn from sprites or as vectors
+     * @param b Whether or not bloom is applied
+     * @param r Value of the KEY_RENDERING hint
+     */
+    private QualityTier(String l, boolean aa, float lineWidth, float shipWidth,
+                        int budget, boolean sprites, boolean b, Object r)
+    {
+        label = l;
+        shipAntialiasing = aa;
+        lineStroke = new BasicStroke(lineWidth);
+        shipStroke = new BasicStroke(shipWidth);
+        particleBudget = budget;
+        shipSprites = sprites;
+        bloom = b;
+        rendering = r;
+    }
+
+    /**
+     * Returns the tier the game starts at: the best tier without
+     * antialiasing costs if antialiasing is switched off in the settings.
+     *
+     * @return The default tier
+     */
+    public static QualityTier getDefault()
+    {
+        return GameSettings.ANTIALIASED ? MEDIUM : LOW;
+    }
+
+    /**
+     * Returns the next tier up, wrapping around to the lowest.
+     *
+     * @return The next tier
+     */
+    public QualityTier next()
+    {
+        QualityTier[] tiers = values();
+        return tiers[(ordinal() + 1) % tiers.length];
+    }
+
+    /**
+     * Returns the name shown for this tier.
+     *
+     * @return Name of the tier
+     */
+    public String getLabel()
+    {
+        return label;
+    }
+
+    /**
+     * Returns the maximum number of particles alive at once.
+     *
+     * @return The particle budget
+     */
+    public int getParticleBudget()
+    {
+        return particleBudget;
+    }
+
+    /**
+     * Returns whether ships are drawn from sprites at this tier.
+     *
+     * @return True for sprites, false for vectors
+     */
+    public boolean usesShipSprites()
+    {
+        return shipSprites;
+    }
+
+    /**
+     * Returns whether bloom is applied to the frame at this tier.
+     *
+     * @return True if the frame is bloomed
+     */
+    public boolean usesBloom()
+    {
+        return bloom;
+    }
+
+    /**
+     * Returns whether ships are antialiased at this tier.
+     *
+     * @return True if ships are antialiased
+     */
+    public boolean isShipAntialiased()
+    {
+        return shipAntialiasing && GameSettings.ANTIALIASED;
+    }
+
+    /**
+     * Returns the value of the KEY_RENDERING hint for surfaces drawn by
+     * Java2D.
+     *
+     * @return The rendering hint
+     */
+    public Object getRenderingHint()
+    {
+        return rendering;
+    }
+
+    /**
+     * Sets up a surface for drawing the world: no antialiasing, and the
+     * stroke used for particle lines.
+     *
+     * @param s The surface the world is drawn to
+     */
+    public void applyWorldHints(Surface s)
+    {
+        s.setAntialiased(false);
+        s.setStroke(lineStroke);
+    }
+
+    /**
+     * Sets up a surface for drawing ships, antialiasing them if this tier
+     * calls for it.
+     *
+     * @param s The surface the ships are drawn to
+     */
+    public void applyShipHints(Surface s)
+    {
+        s.setAntialiased(isShipAntialiased());
+        s.setStroke(shipStroke);
+    }
+}
@@ -0,0 +1,130 @@
+package nova.game.render;
+
+/**
+ * Chooses the resolution the world is rendered at.  The scale is a
+ * fraction of the game's full resolution: when frames take longer to draw
+ * than the time between refreshes, the scale is lowered a step at a time,
+ * and when there is plenty of time to spare it is raised again.
+ * <p>
+ * Frame times are averaged so a single slow frame doesn't change the
+ * scale, and after each change the scaler waits a while before changing
+ * it again, so that it doesn't flicker between two scales.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class ResolutionScaler
+{
+    //range of scales and the size of each change
+    public static final float MIN_SCALE = 0.5f;
+    public static final float MAX_SCALE = 1.0f;
+    private static final float STEP = 0.05f;
+
+    //weight of the newest frame in the average frame time
+    private static final double SMOOTHING = 0.1;
+
+    //the scale is only raised while frames take less than this fraction
+    //of the budget
+    private static final double HEADROOM = 0.7;
+
+    //number of frames to wait after changing the scale
+    private static final int COOLDOWN = 30;
+
+    private boolean dynamic;
+    private float scale;
+    private double average;
+    private int cooldown;
+
+    /**
+     * Initializes the scaler at full resolution, with dynamic scaling on.
+     */
+    public ResolutionScaler()
+    {
+        dynamic = true;
+        scale = MAX_SCALE;
+        average = 0;
+        cooldown = 0;
+    }
+
+    /**
+     * Returns the current scale.
+     *
+     * @return Fraction of full resolution the world is rendered at
+     */
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets the scale.  If dynamic scaling is on, the scale will still
+     * change as frame times change.
+     *
+     * @param s Fraction of full resolution, from MIN_SCALE to MAX_SCALE
+     */
+    public void setScale(float s)
+    {
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, s));
+        cooldown = COOLDOWN;
+    }
+
+    /**
+     * Returns whether the scale changes with frame time.
+     *
+     * @return True if scaling is dynamic
+     */
+    public boolean isDynamic()
+    {
+        return dynamic;
+    }
+
+    /**
+     * Switches dynamic scaling on or off.  When off, the scale stays
+     * where it is.
+     *
+     * @param d Whether or not the scale changes with frame time
+     */
+    public void setDynamic(boolean d)
+    {
+        dynamic = d;
+    }
+
+    /**
+     * Returns the average time taken to draw a frame.
+     *
+     * @return Average frame time, in nanoseconds
+     */
+    public long getAverageFrameTime()
+    {
+        return (long)average;
+    }
+
+    /**
+     * Records the time taken to draw a frame, and changes the scale if
+     * frames are taking too long or there is plenty of time to spare.
+     *
+     * @param frameNanos Time taken to draw the last frame, in nanoseconds
+     * @param budgetNanos Time available for each frame, in nanoseconds
+     */
+    public void update(long frameNanos, long budgetNanos)
+    {
+        average = (average == 0) ? frameNanos : average + (frameNanos - average) * SMOOTHING;
+
+        if(!dynamic)
+        {
+            return;
+        }
+        if(cooldown > 0)
+        {
+            cooldown--;
+        }
+        else if(average > budgetNanos && scale > MIN_SCALE)
+        {
+            setScale(scale - STEP);
+        }
+        else if(average < budgetNanos * HEADROOM && scale < MAX_SCALE)
+        {
+            setScale(scale + STEP);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package nova.game.render;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+
+import nova.game.engine.GameSettings;
+import nova.game.ship.Ship;
+import nova.game.util.LongIntMap;
+
+/**
+ * Draws ships from pre-rendered sprites instead of antialiased vectors.
+ * Each sprite is a ship of one type, in one animation phase, at one of
+ * ROTATIONS evenly spaced angles.  Sprites are rendered the first time
+ * they are needed into cells of a single VolatileImage sheet.
+ * <p>
+ * The sheet is a fixed size, set by MEMORY_CAP.  Once every cell is in use
+ * the sprite used least recently is replaced, so triangle ships, which
+ * have thousands of phases, can't push out the sprites in use every frame.
+ * Ship types are told apart by color, since every ship has a unique color.
+ * <p>
+ * Sprite mode can be switched off, in which case ships are drawn as
+ * vectors as before.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class ShipSpriteCache
+{
+    public static final ShipSpriteCache instance = new ShipSpriteCache();
+
+    //number of angles each ship is rendered at
+    public static final int ROTATIONS = 64;
+
+    //width and height of a cell - large enough for the largest ship at
+    //any angle, plus room for the stroke
+    private static final int CELL_SIZE = 76;
+
+    //bytes of video memory the sheet may use
+    private static final int MEMORY_CAP = 4 * 1024 * 1024;
+
+    //stroke ships are rendered with
+    private static final BasicStroke STROKE = new BasicStroke(2);
+
+    private static final int COLUMNS = 16;
+    private static final int CAPACITY = MEMORY_CAP / (CELL_SIZE * CELL_SIZE * 4);
+
+    private boolean enabled;
+    private VolatileImage sheet;
+
+    private LongIntMap cells;
+    private long[] cellKeys;
+    private int used;
+
+    //cells in order of use, most recent first
+    private int[] newer;
+    private int[] older;
+    private int newest;
+    private int oldest;
+
+    private int misses;
+    private int lastMisses;
+
+    /**
+     * Initializes an empty cache.
+     */
+    private ShipSpriteCache()
+    {
+        enabled = true;
+        cells = new LongIntMap(CAPACITY);
+        cellKeys = new long[CAPACITY];
+        newer = new int[CAPACITY];
+        older = new int[CAPACITY];
+        clear();
+    }
+
+    /**
+     * Returns whether ships are drawn from sprites.
+     *
+     * @return True for sprites, false for vectors
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Switches between drawing ships from sprites and as vectors.
+     *
+     * @param e Whether or not to draw ships from sprites
+     */
+    public void setEnabled(boolean e)
+    {
+        enabled = e;
+    }
+
+    /**
+     * Returns the number of sprites currently cached.
+     *
+     * @return Number of cached sprites
+     */
+    public int size()
+    {
+        return used;
+    }
+
+    /**
+     * Returns the number of sprites that had to be rendered during the
+     * last frame.
+     *
+     * @return Number of sprites rendered
+     */
+    public int getMisses()
+    {
+        return lastMisses;
+    }
+
+    /**
+     * Makes sure the sheet is usable with the given configuration,
+     * creating it if necessary.  If its contents were lost, every sprite
+     * is forgotten and rendered again as needed.  Should be called before
+     * drawing each frame.
+     *
+     * @param gc The configuration of the surface being drawn to
+     */
+    public void validate(GraphicsConfiguration gc)
+    {
+        lastMisses = misses;
+        misses = 0;
+        if(!enabled)
+        {
+            return;
+        }
+
+        int status = (sheet == null) ? VolatileImage.IMAGE_INCOMPATIBLE : sheet.validate(gc);
+        if(status == VolatileImage.IMAGE_INCOMPATIBLE)
+        {
+            if(sheet != null)
+            {
+                sheet.flush();
+            }
+            int rows = (CAPACITY + COLUMNS - 1) / COLUMNS;
+            sheet = gc.createCompatibleVolatileImage(COLUMNS * CELL_SIZE, rows * CELL_SIZE,
+                                                     Transparency.TRANSLUCENT);
+            clear();
+        }
+        else if(status == VolatileImage.IMAGE_RESTORED)
+        {
+            clear();
+        }
+    }
+
+    /**
+     * Helper method that forgets every sprite.
+     */
+    private void clear()
+    {
+        cells.clear();
+        used = 0;
+        newest = -1;
+        oldest = -1;
+    }
+
+    /**
+     * Draws a ship centered on the given point, using the sprite closest
+     * to the given rotation.
+     *
+     * @param g The surface being drawn to, which must be drawn by Java2D
+     * @param s The ship, used for its color and shape
+     * @param x x-coordinate of the ship
+     * @param y y-coordinate of the ship
+     * @param rot Rotation of the ship
+     * @param phase Animation phase of the ship
+     */
+    public void draw(Surface g, Ship s, double x, double y, double rot, int phase)
+    {
+        int bucket = (int)Math.round(rot / (Math.PI * 2) * ROTATIONS) % ROTATIONS;
+        if(bucket < 0)
+        {
+            bucket += ROTATIONS;
+        }
+        long key = ((long)(s.getColor().getRGB() & 0xFFFFFF) << 32) | ((long)phase << 8) | bucket;
+
+        int cell = cells.get(key);
+        if(cell < 0)
+        {
+            cell = allocate(key);
+            renderSprite(cell, s, bucket * Math.PI * 2 / ROTATIONS, phase);
+        }
+        else
+        {
+            touch(cell);
+        }
+
+        int sx = (cell % COLUMNS) * CELL_SIZE;
+        int sy = (cell / COLUMNS) * CELL_SIZE;
+        int dx = (int)Math.round(x) - CELL_SIZE/2;
+        int dy = (int)Math.round(y) - CELL_SIZE/2;
+        g.drawImage(sheet, dx, dy, sx, sy, CELL_SIZE, CELL_SIZE);
+    }
+
+    /**
+     * Helper method that finds a cell for a new sprite, replacing the
+     * least recently used sprite if the sheet is full.
+     *
+     * @param key Key of the new sprite
+     * @return Index of the cell
+     */
+    private int allocate(long key)
+    {
+        int cell;
+        if(used < CAPACITY)
+        {
+            cell = used++;
+        }
+        else
+        {
+            cell = oldest;
+            cells.remove(cellKeys[cell]);
+            unlink(cell);
+        }
+
+        cellKeys[cell] = key;
+        cells.put(key, cell);
+        link(cell);
+        return cell;
+    }
+
+    /**
+     * Helper method that marks a cell as the most recently used.
+     *
+     * @param cell Index of the cell
+     */
+    private void touch(int cell)
+    {
+        if(cell != newest)
+        {
+            unlink(cell);
+            link(cell);
+        }
+    }
+
+    /**
+     * Helper method that adds a cell to the front of the usage list.
+     *
+     * @param cell Index of the cell
+     */
+    private void link(int cell)
+    {
+        newer[cell] = -1;
+        older[cell] = newest;
+        if(newest >= 0)
+        {
+            newer[newest] = cell;
+        }
+        newest = cell;
+        if(oldest < 0)
+        {
+            oldest = cell;
+        }
+    }
+
+    /**
+     * Helper method that removes a cell from the usage list.
+     *
+     * @param cell Index of the cell
+     */
+    private void unlink(int cell)
+    {
+        if(newer[cell] >= 0)
+        {
+            older[newer[cell]] = older[cell];
+        }
+        else
+        {
+            newest = older[cell];
+        }
+
+        if(older[cell] >= 0)
+        {
+            newer[older[cell]] = newer[cell];
+        }
+        else
+        {
+            oldest = newer[cell];
+        }
+    }
+
+    /**
+     * Helper method that renders a ship into a cell of the sheet.
+     *
+     * @param cell Index of the cell
+     * @param s The ship
+     * @param rot Rotation to render the ship at
+     * @param phase Animation phase to render the ship at
+     */
+    private void renderSprite(int cell, Ship s, double rot, int phase)
+    {
+        int sx = (cell % COLUMNS) * CELL_SIZE;
+        int sy = (cell / COLUMNS) * CELL_SIZE;
+
+        Graphics2D g = sheet.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(sx, sy, CELL_SIZE, CELL_SIZE);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.clipRect(sx, sy, CELL_SIZE, CELL_SIZE);
+        if(GameSettings.ANTIALIASED)
+        {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        }
+        g.setStroke(STROKE);
+        s.drawShape(new Graphics2DSurface(g), sx + CELL_SIZE/2, sy + CELL_SIZE/2, rot, phase);
+        g.dispose();
+        misses++;
+    }
+}
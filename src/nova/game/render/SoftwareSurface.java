@@ -0,0 +1,634 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A surface that draws straight into the pixels of an image, without
+ * Java2D.  Nothing here needs a display, so frames can be drawn on a
+ * server or in a test and the cost of drawing them measured on its own.
+ * <p>
+ * Lines are drawn with Bresenham's algorithm, or with Wu's algorithm when
+ * antialiased, and are thickened by drawing side by side copies.  Dots are
+ * filled by their distance from the center, and polygons by scanline, and
+ * are always aliased.  Images are copied from BufferedImages only; since
+ * VolatileImages can't be drawn, getDeviceConfiguration returns null so
+ * that callers fall back to drawing shapes.
+ * <p>
+ * Everything is scaled by the surface's scale, so the game can be drawn
+ * at a smaller size than it is laid out at.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class SoftwareSurface implements Surface
+{
+    private static final BasicStroke DEFAULT_STROKE = new BasicStroke(1);
+
+    private BufferedImage image;
+    private int[] pixels;
+    private int width;
+    private int height;
+    private float scale;
+
+    //pixels outside this rectangle are never drawn to
+    private int clipLeft;
+    private int clipTop;
+    private int clipRight;
+    private int clipBottom;
+
+    private Color color;
+    private int rgb;
+    private int alpha;
+    private BasicStroke stroke;
+    private boolean antialiased;
+
+    //transformed vertices of the polygon being filled, and the points
+    //where a row crosses its edges
+    private float[] polyX;
+    private float[] polyY;
+    private float[] crossings;
+
+    //pixels of the part of an image being copied
+    private int[] imagePixels;
+
+    /**
+     * Initializes a surface that draws into the given image.
+     *
+     * @param img The image, which must be TYPE_INT_RGB
+     */
+    public SoftwareSurface(BufferedImage img)
+    {
+        if(img.getType() != BufferedImage.TYPE_INT_RGB)
+        {
+            throw new IllegalArgumentException("image must be TYPE_INT_RGB");
+        }
+
+        image = img;
+        pixels = ((DataBufferInt)img.getRaster().getDataBuffer()).getData();
+        width = img.getWidth();
+        height = img.getHeight();
+        scale = 1;
+        setClip(0, 0, width, height);
+
+        setColor(Color.WHITE);
+        stroke = DEFAULT_STROKE;
+        antialiased = false;
+
+        polyX = new float[16];
+        polyY = new float[16];
+        crossings = new float[16];
+        imagePixels = new int[1024];
+    }
+
+    /**
+     * Returns the image being drawn to.
+     *
+     * @return The image
+     */
+    public BufferedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Returns the scale everything is drawn at.
+     *
+     * @return Pixels per game unit
+     */
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets the scale everything is drawn at.
+     *
+     * @param s Pixels per game unit
+     */
+    public void setScale(float s)
+    {
+        scale = s;
+    }
+
+    /**
+     * Limits drawing to a rectangle of pixels.  The clip only decides
+     * which pixels are written; shapes are rasterized exactly as they would
+     * be without it, so a frame drawn in clipped pieces matches one drawn
+     * whole.
+     *
+     * @param x x-coordinate of the left of the rectangle
+     * @param y y-coordinate of the top of the rectangle
+     * @param w Width of the rectangle
+     * @param h Height of the rectangle
+     */
+    public void setClip(int x, int y, int w, int h)
+    {
+        clipLeft = Math.max(0, x);
+        clipTop = Math.max(0, y);
+        clipRight = Math.min(width, x + w);
+        clipBottom = Math.min(height, y + h);
+    }
+
+    /**
+     * Fills the whole image with a color.
+     *
+     * @param c The color
+     */
+    public void clear(Color c)
+    {
+        Arrays.fill(pixels, c.getRGB() & 0xFFFFFF);
+    }
+
+    /**
+     * Returns null, since this surface isn't drawn by Java2D.
+     *
+     * @return null
+     */
+    public GraphicsConfiguration getDeviceConfiguration()
+    {
+        return null;
+    }
+
+    /**
+     * Returns the color shapes are drawn in.
+     *
+     * @return The current color
+     */
+    public Color getColor()
+    {
+        return color;
+    }
+
+    /**
+     * Sets the color shapes are drawn in.
+     *
+     * @param c The new color
+     */
+    public void setColor(Color c)
+    {
+        color = c;
+        rgb = c.getRGB() & 0xFFFFFF;
+        alpha = c.getAlpha();
+    }
+
+    /**
+     * Returns the stroke lines are drawn with.
+     *
+     * @return The current stroke
+     */
+    public BasicStroke getStroke()
+    {
+        return stroke;
+    }
+
+    /**
+     * Sets the stroke lines are drawn with.  Only the width is used.
+     *
+     * @param s The new stroke
+     */
+    public void setStroke(BasicStroke s)
+    {
+        stroke = s;
+    }
+
+    /**
+     * Returns whether lines and dots are antialiased.
+     *
+     * @return True if antialiased
+     */
+    public boolean isAntialiased()
+    {
+        return antialiased;
+    }
+
+    /**
+     * Switches antialiasing of lines and dots on or off.
+     *
+     * @param aa Whether or not to antialias
+     */
+    public void setAntialiased(boolean aa)
+    {
+        antialiased = aa;
+    }
+
+    /**
+     * Draws a line, as several side by side lines if the stroke is wide.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     */
+    public void drawLine(double x1, double y1, double x2, double y2)
+    {
+        float fx1 = (float)x1 * scale;
+        float fy1 = (float)y1 * scale;
+        float fx2 = (float)x2 * scale;
+        float fy2 = (float)y2 * scale;
+        if((fx1 < 0 && fx2 < 0) || (fy1 < 0 && fy2 < 0)
+           || (fx1 >= width && fx2 >= width) || (fy1 >= height && fy2 >= height))
+        {
+            return;
+        }
+
+        //copies are spread across the line's minor axis
+        int thickness = Math.max(1, Math.round(stroke.getLineWidth() * scale));
+        boolean steep = Math.abs(fy2 - fy1) > Math.abs(fx2 - fx1);
+        for(int k=0; k<thickness; k++)
+        {
+            float offset = k - (thickness - 1) / 2f;
+            float ox = steep ? offset : 0;
+            float oy = steep ? 0 : offset;
+            if(antialiased)
+            {
+                wuLine(fx1 + ox, fy1 + oy, fx2 + ox, fy2 + oy);
+            }
+            else
+            {
+                bresenhamLine((int)Math.floor(fx1 + ox), (int)Math.floor(fy1 + oy),
+                              (int)Math.floor(fx2 + ox), (int)Math.floor(fy2 + oy));
+            }
+        }
+    }
+
+    /**
+     * Draws a number of separate lines.
+     *
+     * @param coords Endpoints of the lines, four values per line
+     * @param length Number of values used from coords
+     */
+    public void drawLines(float[] coords, int length)
+    {
+        for(int i=0; i<length; i+=4)
+        {
+            drawLine(coords[i], coords[i+1], coords[i+2], coords[i+3]);
+        }
+    }
+
+    /**
+     * Fills a round dot centered on the given point.  When antialiased,
+     * pixels on the edge are covered by how far their centers are inside.
+     *
+     * @param x x-coordinate of the center
+     * @param y y-coordinate of the center
+     * @param size Diameter of the dot
+     */
+    public void fillDot(int x, int y, int size)
+    {
+        float cx = x * scale;
+        float cy = y * scale;
+        float r = size * scale / 2;
+
+        int top = Math.max(clipTop, (int)Math.floor(cy - r));
+        int bottom = Math.min(clipBottom, (int)Math.ceil(cy + r));
+        int left = Math.max(clipLeft, (int)Math.floor(cx - r));
+        int right = Math.min(clipRight, (int)Math.ceil(cx + r));
+        for(int py=top; py<bottom; py++)
+        {
+            float dy = py + 0.5f - cy;
+            for(int px=left; px<right; px++)
+            {
+                float dx = px + 0.5f - cx;
+                float d = (float)Math.sqrt(dx * dx + dy * dy);
+                if(antialiased)
+                {
+                    float coverage = Math.max(0, Math.min(1, r - d + 0.5f));
+                    plot(px, py, (int)(coverage * 256));
+                }
+                else if(d < r)
+                {
+                    plot(px, py, 256);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills a polygon, rotated about the origin and then moved to the
+     * given point.  Pixels are filled if their centers are inside the
+     * polygon by the even-odd rule.
+     *
+     * @param p The polygon
+     * @param x x-coordinate the polygon's origin is moved to
+     * @param y y-coordinate the polygon's origin is moved to
+     * @param rot Rotation of the polygon
+     */
+    public void fillPolygon(Polygon p, double x, double y, double rot)
+    {
+        int n = p.npoints;
+        if(n > polyX.length)
+        {
+            polyX = new float[n];
+            polyY = new float[n];
+            crossings = new float[n];
+        }
+
+        double cos = Math.cos(rot);
+        double sin = Math.sin(rot);
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for(int i=0; i<n; i++)
+        {
+            polyX[i] = (float)((x + p.xpoints[i] * cos - p.ypoints[i] * sin) * scale);
+            polyY[i] = (float)((y + p.xpoints[i] * sin + p.ypoints[i] * cos) * scale);
+            minY = Math.min(minY, polyY[i]);
+            maxY = Math.max(maxY, polyY[i]);
+        }
+
+        int top = Math.max(clipTop, (int)Math.floor(minY));
+        int bottom = Math.min(clipBottom, (int)Math.ceil(maxY));
+        for(int py=top; py<bottom; py++)
+        {
+            float cy = py + 0.5f;
+            int count = 0;
+            for(int i=0, j=n-1; i<n; j=i++)
+            {
+                if((polyY[i] <= cy) != (polyY[j] <= cy))
+                {
+                    float cx = polyX[i] + (cy - polyY[i]) * (polyX[j] - polyX[i]) / (polyY[j] - polyY[i]);
+
+                    //insertion sort, since there are only ever a few
+                    int k = count++;
+                    while(k > 0 && crossings[k-1] > cx)
+                    {
+                        crossings[k] = crossings[k-1];
+                        k--;
+                    }
+                    crossings[k] = cx;
+                }
+            }
+
+            for(int c=0; c+1<count; c+=2)
+            {
+                int start = Math.max(clipLeft, (int)Math.ceil(crossings[c] - 0.5f));
+                int end = Math.min(clipRight, (int)Math.ceil(crossings[c+1] - 0.5f));
+                for(int px=start; px<end; px++)
+                {
+                    plot(px, py, 256);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a number of round dots onto what is already drawn, each in its
+     * own color.
+     *
+     * @param coords Centers of the dots, two values per dot: x, y
+     * @param colors Color of each dot, with alpha in the top byte
+     * @param count Number of dots
+     * @param size Diameter of the dots
+     */
+    public void addDots(int[] coords, int[] colors, int count, int size)
+    {
+        for(int i=0; i<count; i++)
+        {
+            addDot(coords[2*i], coords[2*i+1], size, colors[i]);
+        }
+    }
+
+    /**
+     * Adds a single round dot onto what is already drawn.
+     *
+     * @param x x-coordinate of the center
+     * @param y y-coordinate of the center
+     * @param size Diameter of the dot
+     * @param argb Color of the dot, with alpha in the top byte
+     */
+    void addDot(int x, int y, int size, int argb)
+    {
+        AdditiveComposite.instance.addDot(pixels, width, clipLeft, clipTop, clipRight, clipBottom,
+                                          x * scale, y * scale, size * scale / 2, argb);
+    }
+
+    /**
+     * Copies part of an image, blending it by its alpha.  Only
+     * BufferedImages can be copied; anything else is ignored.
+     *
+     * @param img The image
+     * @param dx x-coordinate of the left of the copy
+     * @param dy y-coordinate of the top of the copy
+     * @param sx x-coordinate of the left of the part of the image copied
+     * @param sy y-coordinate of the top of the part of the image copied
+     * @param w Width of the part copied
+     * @param h Height of the part copied
+     */
+    public void drawImage(Image img, int dx, int dy, int sx, int sy, int w, int h)
+    {
+        if(!(img instanceof BufferedImage) || w <= 0 || h <= 0)
+        {
+            return;
+        }
+
+        int left = Math.round(dx * scale);
+        int top = Math.round(dy * scale);
+        int dw = Math.round((dx + w) * scale) - left;
+        int dh = Math.round((dy + h) * scale) - top;
+        int startX = Math.max(clipLeft, left);
+        int startY = Math.max(clipTop, top);
+        int endX = Math.min(clipRight, left + dw);
+        int endY = Math.min(clipBottom, top + dh);
+        if(startX >= endX || startY >= endY)
+        {
+            return;
+        }
+
+        //only the part of the image that lands inside the clip is read
+        int firstRow = (startY - top) * h / dh;
+        int firstColumn = (startX - left) * w / dw;
+        int rw = (endX - 1 - left) * w / dw + 1 - firstColumn;
+        int rh = (endY - 1 - top) * h / dh + 1 - firstRow;
+
+        BufferedImage src = (BufferedImage)img;
+        if(imagePixels.length < rw * rh)
+        {
+            imagePixels = new int[rw * rh];
+        }
+
+        //the int image types are copied as they are stored, anything else
+        //is converted to ARGB
+        int type = src.getType();
+        boolean premultiplied = (type == BufferedImage.TYPE_INT_ARGB_PRE);
+        boolean opaque = (type == BufferedImage.TYPE_INT_RGB);
+        if(type == BufferedImage.TYPE_INT_ARGB || premultiplied || opaque)
+        {
+            src.getRaster().getDataElements(sx + firstColumn, sy + firstRow, rw, rh, imagePixels);
+        }
+        else
+        {
+            src.getRGB(sx + firstColumn, sy + firstRow, rw, rh, imagePixels, 0, rw);
+        }
+
+        for(int py=startY; py<endY; py++)
+        {
+            int row = ((py - top) * h / dh - firstRow) * rw;
+            int i = py * width;
+            for(int px=startX; px<endX; px++)
+            {
+                int s = imagePixels[row + (px - left) * w / dw - firstColumn];
+                int a = opaque ? 255 : s >>> 24;
+                if(a == 0)
+                {
+                    continue;
+                }
+                a += a >> 7;
+
+                int d = pixels[i + px];
+                int dr = (d >> 16) & 0xFF;
+                int dg = (d >> 8) & 0xFF;
+                int db = d & 0xFF;
+                int sr = (s >> 16) & 0xFF;
+                int sg = (s >> 8) & 0xFF;
+                int sb = s & 0xFF;
+                if(premultiplied)
+                {
+                    dr = sr + (dr * (256 - a) >> 8);
+                    dg = sg + (dg * (256 - a) >> 8);
+                    db = sb + (db * (256 - a) >> 8);
+                }
+                else
+                {
+                    dr += (sr - dr) * a >> 8;
+                    dg += (sg - dg) * a >> 8;
+                    db += (sb - db) * a >> 8;
+                }
+                pixels[i + px] = (Math.min(255, dr) << 16) | (Math.min(255, dg) << 8) | Math.min(255, db);
+            }
+        }
+    }
+
+    /**
+     * Helper method that draws an aliased, one pixel wide line with
+     * Bresenham's algorithm.
+     *
+     * @param x0 x-coordinate of the first pixel
+     * @param y0 y-coordinate of the first pixel
+     * @param x1 x-coordinate of the last pixel
+     * @param y1 y-coordinate of the last pixel
+     */
+    private void bresenhamLine(int x0, int y0, int x1, int y1)
+    {
+        int dx = Math.abs(x1 - x0);
+        int dy = -Math.abs(y1 - y0);
+        int sx = (x0 < x1) ? 1 : -1;
+        int sy = (y0 < y1) ? 1 : -1;
+        int err = dx + dy;
+        while(true)
+        {
+            plot(x0, y0, 256);
+            if(x0 == x1 && y0 == y1)
+            {
+                break;
+            }
+            int e2 = 2 * err;
+            if(e2 >= dy)
+            {
+                err += dy;
+                x0 += sx;
+            }
+            if(e2 <= dx)
+            {
+                err += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    /**
+     * Helper method that draws an antialiased, one pixel wide line with
+     * Wu's algorithm: at each step along the major axis, the two pixels
+     * either side of the line share its coverage.
+     *
+     * @param x0 x-coordinate of first endpoint, in pixels
+     * @param y0 y-coordinate of first endpoint, in pixels
+     * @param x1 x-coordinate of second endpoint, in pixels
+     * @param y1 y-coordinate of second endpoint, in pixels
+     */
+    private void wuLine(float x0, float y0, float x1, float y1)
+    {
+        boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        if(steep)
+        {
+            float t = x0;
+            x0 = y0;
+            y0 = t;
+            t = x1;
+            x1 = y1;
+            y1 = t;
+        }
+        if(x0 > x1)
+        {
+            float t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+
+        //measure from pixel centers
+        x0 -= 0.5f;
+        y0 -= 0.5f;
+        x1 -= 0.5f;
+        y1 -= 0.5f;
+
+        float gradient = (x1 == x0) ? 0 : (y1 - y0) / (x1 - x0);
+        int start = Math.round(x0);
+        int end = Math.round(x1);
+        float y = y0 + gradient * (start - x0);
+        for(int x=start; x<=end; x++)
+        {
+            int iy = (int)Math.floor(y);
+            int f = (int)((y - iy) * 256);
+            if(steep)
+            {
+                plot(iy, x, 256 - f);
+                plot(iy + 1, x, f);
+            }
+            else
+            {
+                plot(x, iy, 256 - f);
+                plot(x, iy + 1, f);
+            }
+            y += gradient;
+        }
+    }
+
+    /**
+     * Helper method that blends the current color into a pixel.
+     *
+     * @param x x-coordinate of the pixel
+     * @param y y-coordinate of the pixel
+     * @param coverage How much of the pixel is covered, from 0 to 256
+     */
+    private void plot(int x, int y, int coverage)
+    {
+        if(x < clipLeft || y < clipTop || x >= clipRight || y >= clipBottom)
+        {
+            return;
+        }
+
+        int a = (alpha + (alpha >> 7)) * coverage >> 8;
+        if(a <= 0)
+        {
+            return;
+        }
+
+        int i = y * width + x;
+        int d = pixels[i];
+        int dr = (d >> 16) & 0xFF;
+        int dg = (d >> 8) & 0xFF;
+        int db = d & 0xFF;
+        dr += (((rgb >> 16) & 0xFF) - dr) * a >> 8;
+        dg += (((rgb >> 8) & 0xFF) - dg) * a >> 8;
+        db += ((rgb & 0xFF) - db) * a >> 8;
+        pixels[i] = (dr << 16) | (dg << 8) | db;
+    }
+}
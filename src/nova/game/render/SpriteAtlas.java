@@ -0,0 +1,225 @@
+package nova.game.render;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+
+import nova.game.engine.particle.Particle;
+
+/**
+ * A sheet of pre-rendered sprites for the small dots used by point
+ * particles and bullets.  Drawing an antialiased oval is costly once
+ * there are thousands of them on screen, while copying a few pixels from
+ * an accelerated image is cheap.
+ * <p>
+ * The sheet holds one row per particle color, with that color drawn at
+ * ALPHA_LEVELS evenly spaced levels of transparency, followed by a row for
+ * the bullet sprite.  The sheet is a VolatileImage, so it must be validated
+ * once per frame, which redraws it whenever its contents have been lost.
+ * Surfaces that can't draw VolatileImages are given filled dots instead.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class SpriteAtlas
+{
+    public static final SpriteAtlas instance = new SpriteAtlas();
+
+    //number of levels of transparency each dot is drawn at
+    public static final int ALPHA_LEVELS = 32;
+
+    //width and height of a cell - the 4x4 dot plus a pixel of margin all
+    //around so antialiasing isn't clipped
+    private static final int CELL_SIZE = 6;
+    private static final int DOT_SIZE = 4;
+
+    private Color[] palette;
+    private int bulletRow;
+
+    //the colors of the sprites, for drawing dots on surfaces without
+    //a sheet
+    private Color[][] dotColors;
+    private VolatileImage sheet;
+
+    /**
+     * Initializes the atlas with the colors available to particles.
+     */
+    private SpriteAtlas()
+    {
+        palette = Particle.AVAILABLE_COLORS;
+        bulletRow = palette.length;
+
+        dotColors = new Color[palette.length][ALPHA_LEVELS];
+        for(int row=0; row<palette.length; row++)
+        {
+            Color c = palette[row];
+            for(int level=0; level<ALPHA_LEVELS; level++)
+            {
+                dotColors[row][level] = new Color(c.getRed(), c.getGreen(), c.getBlue(),
+                                                  level * 255 / (ALPHA_LEVELS - 1));
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a color in the atlas.
+     *
+     * @param c The color
+     * @return The index of the color, or -1 if it has no sprites
+     */
+    public int indexOf(Color c)
+    {
+        for(int i=0; i<palette.length; i++)
+        {
+            if(palette[i].equals(c))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes sure the sprite sheet is usable with the given configuration,
+     * creating or redrawing it if necessary.  Should be called before
+     * drawing each frame.
+     *
+     * @param gc The configuration of the surface being drawn to
+     */
+    public void validate(GraphicsConfiguration gc)
+    {
+        int status = (sheet == null) ? VolatileImage.IMAGE_INCOMPATIBLE : sheet.validate(gc);
+        if(status == VolatileImage.IMAGE_INCOMPATIBLE)
+        {
+            if(sheet != null)
+            {
+                sheet.flush();
+            }
+            sheet = gc.createCompatibleVolatileImage(ALPHA_LEVELS * CELL_SIZE,
+                                                     (palette.length + 1) * CELL_SIZE,
+                                                     Transparency.TRANSLUCENT);
+            renderSprites();
+        }
+        else if(status == VolatileImage.IMAGE_RESTORED)
+        {
+            renderSprites();
+        }
+    }
+
+    /**
+     * Returns true if the sprite sheet was lost since it was last validated,
+     * in which case anything drawn from it may be wrong.
+     *
+     * @return Whether or not the sprite sheet was lost
+     */
+    public boolean contentsLost()
+    {
+        return sheet == null || sheet.contentsLost();
+    }
+
+    /**
+     * Helper method used to draw every sprite onto the sheet.
+     */
+    private void renderSprites()
+    {
+        Graphics2D g = sheet.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, sheet.getWidth(), sheet.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        for(int row=0; row<palette.length; row++)
+        {
+            for(int level=0; level<ALPHA_LEVELS; level++)
+            {
+                g.setColor(dotColors[row][level]);
+                g.fillOval(level * CELL_SIZE + 1, row * CELL_SIZE + 1, DOT_SIZE, DOT_SIZE);
+            }
+        }
+
+        g.setColor(Color.WHITE);
+        g.fillOval(1, bulletRow * CELL_SIZE + 1, DOT_SIZE, DOT_SIZE);
+        g.dispose();
+    }
+
+    /**
+     * Draws a dot centered on the given point.
+     *
+     * @param g The surface being drawn to
+     * @param x x-coordinate of the dot
+     * @param y y-coordinate of the dot
+     * @param colorIndex Index of the color of the dot
+     * @param alpha Alpha of the dot, from 0 to 255
+     */
+    public void drawDot(Surface g, int x, int y, int colorIndex, int alpha)
+    {
+        int level = (alpha * (ALPHA_LEVELS - 1) + 127) / 255;
+        if(level == 0)
+        {
+            return;
+        }
+
+        if(canDrawSheet(g))
+        {
+            drawCell(g, x, y, level, colorIndex);
+        }
+        else
+        {
+            g.setColor(dotColors[colorIndex][level]);
+            g.fillDot(x, y, DOT_SIZE);
+        }
+    }
+
+    /**
+     * Draws the bullet sprite centered on the given point.
+     *
+     * @param g The surface being drawn to
+     * @param x x-coordinate of the bullet
+     * @param y y-coordinate of the bullet
+     */
+    public void drawBullet(Surface g, int x, int y)
+    {
+        if(canDrawSheet(g))
+        {
+            drawCell(g, x, y, 0, bulletRow);
+        }
+        else
+        {
+            g.setColor(Color.WHITE);
+            g.fillDot(x, y, DOT_SIZE);
+        }
+    }
+
+    /**
+     * Helper method that checks whether sprites can be copied to a surface.
+     *
+     * @param g The surface being drawn to
+     * @return True if the sheet exists and the surface can draw it
+     */
+    private boolean canDrawSheet(Surface g)
+    {
+        return sheet != null && g.getDeviceConfiguration() != null;
+    }
+
+    /**
+     * Helper method that copies a single cell of the sheet.
+     *
+     * @param g The surface being drawn to
+     * @param x x-coordinate of the center of the sprite
+     * @param y y-coordinate of the center of the sprite
+     * @param col Column of the cell
+     * @param row Row of the cell
+     */
+    private void drawCell(Surface g, int x, int y, int col, int row)
+    {
+        int dx = x - DOT_SIZE/2 - 1;
+        int dy = y - DOT_SIZE/2 - 1;
+        int sx = col * CELL_SIZE;
+        int sy = row * CELL_SIZE;
+        g.drawImage(sheet, dx, dy, sx, sy, CELL_SIZE, CELL_SIZE);
+    }
+}
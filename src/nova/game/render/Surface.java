@@ -0,0 +1,136 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+
+/**
+ * Something the game can be drawn onto.  Every part of the game draws
+ * through this small set of operations rather than through a Graphics
+ * object, so that a frame can be drawn either with Java2D or by a software
+ * rasterizer that needs no display at all.
+ * <p>
+ * Coordinates are in game units; any scaling to the size of the surface
+ * is up to the surface.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public interface Surface
+{
+    /**
+     * Returns the configuration of the Java2D surface being drawn to, used
+     * to create images suited to it.  Surfaces that aren't drawn by Java2D
+     * return null, and can't draw VolatileImages.
+     *
+     * @return The configuration, or null if there is none
+     */
+    public GraphicsConfiguration getDeviceConfiguration();
+
+    /**
+     * Returns the color shapes are drawn in.
+     *
+     * @return The current color
+     */
+    public Color getColor();
+
+    /**
+     * Sets the color shapes are drawn in.
+     *
+     * @param c The new color
+     */
+    public void setColor(Color c);
+
+    /**
+     * Returns the stroke lines are drawn with.
+     *
+     * @return The current stroke
+     */
+    public BasicStroke getStroke();
+
+    /**
+     * Sets the stroke lines are drawn with.  Only the width is used.
+     *
+     * @param s The new stroke
+     */
+    public void setStroke(BasicStroke s);
+
+    /**
+     * Returns whether lines and shapes are antialiased.
+     *
+     * @return True if antialiased
+     */
+    public boolean isAntialiased();
+
+    /**
+     * Switches antialiasing of lines and shapes on or off.
+     *
+     * @param aa Whether or not to antialias
+     */
+    public void setAntialiased(boolean aa);
+
+    /**
+     * Draws a line.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     */
+    public void drawLine(double x1, double y1, double x2, double y2);
+
+    /**
+     * Draws a number of separate lines in the same color.
+     *
+     * @param coords Endpoints of the lines, four values per line: x1, y1, x2, y2
+     * @param length Number of values used from coords
+     */
+    public void drawLines(float[] coords, int length);
+
+    /**
+     * Fills a round dot centered on the given point.
+     *
+     * @param x x-coordinate of the center
+     * @param y y-coordinate of the center
+     * @param size Diameter of the dot
+     */
+    public void fillDot(int x, int y, int size);
+
+    /**
+     * Fills a polygon, rotated about the origin and then moved to the
+     * given point.
+     *
+     * @param p The polygon
+     * @param x x-coordinate the polygon's origin is moved to
+     * @param y y-coordinate the polygon's origin is moved to
+     * @param rot Rotation of the polygon
+     */
+    public void fillPolygon(Polygon p, double x, double y, double rot);
+
+    /**
+     * Adds a number of round dots onto what is already drawn, each in its
+     * own color, so that overlapping dots get brighter.  The color of each
+     * dot is scaled by its alpha and added to the pixels under it.
+     *
+     * @param coords Centers of the dots, two values per dot: x, y
+     * @param colors Color of each dot, with alpha in the top byte
+     * @param count Number of dots
+     * @param size Diameter of the dots
+     */
+    public void addDots(int[] coords, int[] colors, int count, int size);
+
+    /**
+     * Copies part of an image, blending it with what is already drawn.
+     *
+     * @param img The image
+     * @param dx x-coordinate of the left of the copy
+     * @param dy y-coordinate of the top of the copy
+     * @param sx x-coordinate of the left of the part of the image copied
+     * @param sy y-coordinate of the top of the part of the image copied
+     * @param width Width of the part copied
+     * @param height Height of the part copied
+     */
+    public void drawImage(Image img, int dx, int dy, int sx, int sy, int width, int height);
+}
@@ -0,0 +1,191 @@
+package nova.game.render;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes a display list out as an SVG image, so that a frame can be looked
+ * at closely, or drawn by a browser, outside of the game.
+ * <p>
+ * Lines, dots and polygons become the matching SVG shapes, and added dots
+ * are blended with the plus-lighter blend mode.  Parts of BufferedImages
+ * are embedded as PNGs, each once, and reused wherever they are drawn
+ * again.  VolatileImages can't be read back, so frames meant for export
+ * should be recorded without a device configuration.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class SvgExporter
+{
+    public static final SvgExporter instance = new SvgExporter();
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private SvgExporter() { }
+
+    /**
+     * Writes a display list as an SVG image on a black background.
+     *
+     * @param list The display list
+     * @param width Width of the image, in game units
+     * @param height Height of the image, in game units
+     * @param out Where the image is written
+     * @throws IOException If an image in the list can't be encoded
+     */
+    public void export(DisplayList list, int width, int height, PrintWriter out) throws IOException
+    {
+        out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.println("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+                    + " width=\"" + width + "\" height=\"" + height + "\""
+                    + " viewBox=\"0 0 " + width + " " + height + "\">");
+        out.println("<rect width=\"100%\" height=\"100%\" fill=\"black\"/>");
+
+        //ids of the parts of images already embedded
+        Map<String, String> embedded = new HashMap<String, String>();
+
+        double[] args = list.args;
+        for(int call=0; call<list.count; call++)
+        {
+            int a = list.argStarts[call];
+            switch(list.kinds[call])
+            {
+                case DisplayList.LINE:
+                    out.println("<line x1=\"" + args[a] + "\" y1=\"" + args[a+1]
+                                + "\" x2=\"" + args[a+2] + "\" y2=\"" + args[a+3] + "\""
+                                + stroke(list, call) + "/>");
+                    break;
+                case DisplayList.LINES:
+                    out.print("<path d=\"");
+                    int lines = (int)args[a];
+                    for(int i=0; i<lines; i++)
+                    {
+                        int j = a + 1 + 4 * i;
+                        out.print("M" + (float)args[j] + " " + (float)args[j+1]
+                                  + "L" + (float)args[j+2] + " " + (float)args[j+3]);
+                    }
+                    out.println("\"" + stroke(list, call) + "/>");
+                    break;
+                case DisplayList.DOT:
+                    out.println("<circle cx=\"" + (int)args[a] + "\" cy=\"" + (int)args[a+1]
+                                + "\" r=\"" + args[a+2] / 2 + "\"" + fill(list.colors[call]) + "/>");
+                    break;
+                case DisplayList.ADDED_DOT:
+                    int argb = (int)args[a+3];
+                    out.println("<circle cx=\"" + (int)args[a] + "\" cy=\"" + (int)args[a+1]
+                                + "\" r=\"" + args[a+2] / 2 + "\"" + fill(new Color(argb, true))
+                                + " style=\"mix-blend-mode:plus-lighter\"/>");
+                    break;
+                case DisplayList.POLYGON:
+                    Polygon p = (Polygon)list.targets[call];
+                    out.print("<polygon points=\"");
+                    for(int i=0; i<p.npoints; i++)
+                    {
+                        out.print(p.xpoints[i] + "," + p.ypoints[i] + " ");
+                    }
+                    out.println("\" transform=\"translate(" + args[a] + " " + args[a+1]
+                                + ") rotate(" + Math.toDegrees(args[a+2]) + ")\""
+                                + fill(list.colors[call]) + "/>");
+                    break;
+                default:
+                    writeImage(list.targets[call], (int)args[a], (int)args[a+1], (int)args[a+2],
+                               (int)args[a+3], (int)args[a+4], (int)args[a+5], embedded, out);
+                    break;
+            }
+        }
+
+        out.println("</svg>");
+        out.flush();
+    }
+
+    /**
+     * Helper method that returns the attributes for a line drawn with the
+     * state of a call.
+     *
+     * @param list The display list
+     * @param call Index of the call
+     * @return The attributes, starting with a space
+     */
+    private String stroke(DisplayList list, int call)
+    {
+        Color c = list.colors[call];
+        BasicStroke s = list.strokes[call];
+        return " fill=\"none\" stroke=\"" + hex(c) + "\" stroke-opacity=\"" + c.getAlpha() / 255f + "\""
+               + " stroke-width=\"" + s.getLineWidth() + "\""
+               + (list.antialiasing[call] ? "" : " shape-rendering=\"crispEdges\"");
+    }
+
+    /**
+     * Helper method that returns the attributes for a shape filled with a
+     * color.
+     *
+     * @param c The color
+     * @return The attributes, starting with a space
+     */
+    private String fill(Color c)
+    {
+        return " fill=\"" + hex(c) + "\" fill-opacity=\"" + c.getAlpha() / 255f + "\"";
+    }
+
+    /**
+     * Helper method that returns a color as a hexadecimal RGB string.
+     *
+     * @param c The color
+     * @return The color, such as #ff8000
+     */
+    private String hex(Color c)
+    {
+        return String.format("#%06x", c.getRGB() & 0xFFFFFF);
+    }
+
+    /**
+     * Helper method that writes part of an image, embedding it as a PNG
+     * the first time it is drawn and reusing it after that.
+     *
+     * @param img The image
+     * @param dx x-coordinate of the left of the copy
+     * @param dy y-coordinate of the top of the copy
+     * @param sx x-coordinate of the left of the part of the image copied
+     * @param sy y-coordinate of the top of the part of the image copied
+     * @param w Width of the part copied
+     * @param h Height of the part copied
+     * @param embedded Ids of the parts of images already embedded
+     * @param out Where the image is written
+     * @throws IOException If the image can't be encoded
+     */
+    private void writeImage(Object img, int dx, int dy, int sx, int sy, int w, int h,
+                            Map<String, String> embedded, PrintWriter out) throws IOException
+    {
+        if(!(img instanceof BufferedImage))
+        {
+            out.println("<!-- " + img.getClass().getSimpleName() + " can't be exported -->");
+            return;
+        }
+
+        String key = System.identityHashCode(img) + ":" + sx + "," + sy + "," + w + "," + h;
+        String id = embedded.get(key);
+        if(id == null)
+        {
+            id = "image" + embedded.size();
+            embedded.put(key, id);
+
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(((BufferedImage)img).getSubimage(sx, sy, w, h), "png", png);
+            out.println("<defs><image id=\"" + id + "\" width=\"" + w + "\" height=\"" + h
+                        + "\" xlink:href=\"data:image/png;base64,"
+                        + Base64.getEncoder().encodeToString(png.toByteArray()) + "\"/></defs>");
+        }
+        out.println("<use xlink:href=\"#" + id + "\" x=\"" + dx + "\" y=\"" + dy + "\"/>");
+    }
+}
@@ -0,0 +1,414 @@
+package nova.game.render;
+
+import java.awt.Color;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A software surface that splits the frame into square tiles and draws the
+ * tiles in parallel.  Draw calls are recorded as a display list, and when
+ * the frame is flushed each call is added to the list of every tile its
+ * bounding box touches.  Each tile then replays its list in order through
+ * its own SoftwareSurface, clipped to the tile, and all of them write into
+ * the pixels of the same image.  Display lists recorded elsewhere can be
+ * drawn the same way.
+ * <p>
+ * Every pixel belongs to exactly one tile and sees the same calls in the
+ * same order as it would if the frame were drawn by a single
+ * SoftwareSurface, and clipping doesn't change how shapes are rasterized,
+ * so the frame comes out exactly the same whether the tiles are drawn in
+ * parallel, one after another, or not split into tiles at all.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class TiledSurface extends DisplayList
+{
+    //width and height of a tile, in pixels
+    private static final int TILE_SIZE = 64;
+
+    //tiles drawn by a single task
+    private static final int TILES_PER_TASK = 4;
+
+    private BufferedImage image;
+    private int width;
+    private int height;
+    private float scale;
+    private boolean parallel;
+
+    //one surface per tile, each clipped to its tile
+    private SoftwareSurface[] tiles;
+    private int columns;
+    private int rows;
+
+    //the calls touching each tile, in order, as pairs of the call and
+    //which of its lines it is, for calls that draw several
+    private int[][] bins;
+    private int[] binSizes;
+
+    //the list being drawn
+    private DisplayList list;
+
+    private long lastTime;
+
+    /**
+     * Initializes a surface that draws into the given image.
+     *
+     * @param img The image, which must be TYPE_INT_RGB
+     */
+    public TiledSurface(BufferedImage img)
+    {
+        image = img;
+        width = img.getWidth();
+        height = img.getHeight();
+        scale = 1;
+        parallel = true;
+
+        columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new SoftwareSurface[columns * rows];
+        bins = new int[tiles.length][];
+        binSizes = new int[tiles.length];
+        for(int i=0; i<tiles.length; i++)
+        {
+            tiles[i] = new SoftwareSurface(img);
+            tiles[i].setClip((i % columns) * TILE_SIZE, (i / columns) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            bins[i] = new int[128];
+        }
+    }
+
+    /**
+     * Returns the image being drawn to.
+     *
+     * @return The image
+     */
+    public BufferedImage getImage()
+    {
+        return image;
+    }
+
+    /**
+     * Returns the scale everything is drawn at.
+     *
+     * @return Pixels per game unit
+     */
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Sets the scale everything is drawn at.  Calls already recorded are
+     * drawn at the scale in use when the frame is flushed.
+     *
+     * @param s Pixels per game unit
+     */
+    public void setScale(float s)
+    {
+        scale = s;
+        for(int i=0; i<tiles.length; i++)
+        {
+            tiles[i].setScale(s);
+        }
+    }
+
+    /**
+     * Returns whether tiles are drawn in parallel.
+     *
+     * @return True if drawn in parallel
+     */
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Sets whether tiles are drawn in parallel or one after another on the
+     * thread that flushes the frame.  Either way the frame is the same.
+     *
+     * @param p Whether or not to draw in parallel
+     */
+    public void setParallel(boolean p)
+    {
+        parallel = p;
+    }
+
+    /**
+     * Returns the time taken to draw the tiles of the last list drawn.
+     *
+     * @return Time taken, in nanoseconds
+     */
+    public long getLastTime()
+    {
+        return lastTime;
+    }
+
+    /**
+     * Returns null, since this surface isn't drawn by Java2D.
+     *
+     * @return null
+     */
+    public GraphicsConfiguration getDeviceConfiguration()
+    {
+        return null;
+    }
+
+    /**
+     * Draws everything recorded so far, then fills the whole image with a
+     * color.
+     *
+     * @param c The color
+     */
+    public void clear(Color c)
+    {
+        flush();
+        tiles[0].clear(c);
+    }
+
+    /**
+     * Draws every recorded call into the image, and forgets them.
+     */
+    public void flush()
+    {
+        draw(this);
+        reset();
+    }
+
+    /**
+     * Draws a display list into the image.  The list must have been
+     * recorded without a device configuration, since VolatileImages can't
+     * be drawn.
+     *
+     * @param l The display list
+     */
+    public void draw(DisplayList l)
+    {
+        if(l.count == 0)
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+        list = l;
+        Arrays.fill(binSizes, 0);
+        for(int call=0; call<l.count; call++)
+        {
+            binCall(call);
+        }
+
+        if(parallel)
+        {
+            ForkJoinPool.commonPool().invoke(new TileTask(0, tiles.length));
+        }
+        else
+        {
+            for(int i=0; i<tiles.length; i++)
+            {
+                drawTile(i);
+            }
+        }
+        list = null;
+        lastTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Helper method that adds a call of the list being drawn to the tiles
+     * it touches.
+     *
+     * @param call Index of the call
+     */
+    private void binCall(int call)
+    {
+        double[] args = list.args;
+        int a = list.argStarts[call];
+        switch(list.kinds[call])
+        {
+            case LINE:
+                binLine(call, 0, args[a], args[a+1], args[a+2], args[a+3]);
+                break;
+            case LINES:
+                int lines = (int)args[a];
+                for(int i=0; i<lines; i++)
+                {
+                    int j = a + 1 + 4 * i;
+                    binLine(call, i, args[j], args[j+1], args[j+2], args[j+3]);
+                }
+                break;
+            case DOT:
+            case ADDED_DOT:
+                double r = args[a+2] * scale / 2 + 1;
+                bin(call, 0, args[a] * scale - r, args[a+1] * scale - r,
+                             args[a] * scale + r, args[a+1] * scale + r);
+                break;
+            case POLYGON:
+                //however it is rotated, the polygon stays within its
+                //furthest vertex from the origin
+                Polygon p = (Polygon)list.targets[call];
+                double reach = 0;
+                for(int i=0; i<p.npoints; i++)
+                {
+                    reach = Math.max(reach, Math.hypot(p.xpoints[i], p.ypoints[i]));
+                }
+                bin(call, 0, (args[a] - reach) * scale - 1, (args[a+1] - reach) * scale - 1,
+                             (args[a] + reach) * scale + 1, (args[a+1] + reach) * scale + 1);
+                break;
+            default:
+                bin(call, 0, args[a] * scale - 1, args[a+1] * scale - 1,
+                             (args[a] + args[a+4]) * scale + 1, (args[a+1] + args[a+5]) * scale + 1);
+                break;
+        }
+    }
+
+    /**
+     * Helper method that adds a line to the tiles it touches.  Wide lines
+     * are drawn as copies either side of the line, so the box is padded
+     * by half the width.
+     *
+     * @param call Index of the call
+     * @param line Which of the call's lines it is
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     */
+    private void binLine(int call, int line, double x1, double y1, double x2, double y2)
+    {
+        double pad = list.strokes[call].getLineWidth() * scale / 2 + 2;
+        bin(call, line, Math.min(x1, x2) * scale - pad, Math.min(y1, y2) * scale - pad,
+                        Math.max(x1, x2) * scale + pad, Math.max(y1, y2) * scale + pad);
+    }
+
+    /**
+     * Helper method that adds a call to every tile its bounding box
+     * touches.  Calls entirely off the image are dropped, since they
+     * wouldn't draw anything.
+     *
+     * @param call Index of the call
+     * @param line Which of the call's lines it is, or 0
+     * @param left x-coordinate of the left of the box, in pixels
+     * @param top y-coordinate of the top of the box, in pixels
+     * @param right x-coordinate of the right of the box, in pixels
+     * @param bottom y-coordinate of the bottom of the box, in pixels
+     */
+    private void bin(int call, int line, double left, double top, double right, double bottom)
+    {
+        if(right < 0 || bottom < 0 || left >= width || top >= height)
+        {
+            return;
+        }
+
+        int firstColumn = Math.max(0, (int)left / TILE_SIZE);
+        int firstRow = Math.max(0, (int)top / TILE_SIZE);
+        int lastColumn = Math.min(columns - 1, (int)right / TILE_SIZE);
+        int lastRow = Math.min(rows - 1, (int)bottom / TILE_SIZE);
+        for(int row=firstRow; row<=lastRow; row++)
+        {
+            for(int column=firstColumn; column<=lastColumn; column++)
+            {
+                int tile = row * columns + column;
+                if(binSizes[tile] + 2 > bins[tile].length)
+                {
+                    bins[tile] = Arrays.copyOf(bins[tile], bins[tile].length * 2);
+                }
+                bins[tile][binSizes[tile]++] = call;
+                bins[tile][binSizes[tile]++] = line;
+            }
+        }
+    }
+
+    /**
+     * Helper method that replays the calls touching a tile, in the order
+     * they were made.
+     *
+     * @param tile Index of the tile
+     */
+    private void drawTile(int tile)
+    {
+        SoftwareSurface s = tiles[tile];
+        double[] args = list.args;
+        int[] bin = bins[tile];
+        for(int i=0; i<binSizes[tile]; i+=2)
+        {
+            int call = bin[i];
+            int a = list.argStarts[call];
+            s.setColor(list.colors[call]);
+            s.setStroke(list.strokes[call]);
+            s.setAntialiased(list.antialiasing[call]);
+            switch(list.kinds[call])
+            {
+                case LINE:
+                    s.drawLine(args[a], args[a+1], args[a+2], args[a+3]);
+                    break;
+                case LINES:
+                    int j = a + 1 + 4 * bin[i+1];
+                    s.drawLine(args[j], args[j+1], args[j+2], args[j+3]);
+                    break;
+                case DOT:
+                    s.fillDot((int)args[a], (int)args[a+1], (int)args[a+2]);
+                    break;
+                case ADDED_DOT:
+                    s.addDot((int)args[a], (int)args[a+1], (int)args[a+2], (int)args[a+3]);
+                    break;
+                case POLYGON:
+                    s.fillPolygon((Polygon)list.targets[call], args[a], args[a+1], args[a+2]);
+                    break;
+                default:
+                    s.drawImage((Image)list.targets[call], (int)args[a], (int)args[a+1],
+                                (int)args[a+2], (int)args[a+3], (int)args[a+4], (int)args[a+5]);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Fork-join task that draws a range of tiles, splitting itself in half
+     * until the range is no larger than TILES_PER_TASK.
+     *
+     * @author Kyle Morgan (knmorgan)
+     * @version 1.0
+     */
+    private class TileTask extends RecursiveAction
+    {
+        //version of the serialized form, which is never used
+        private static final long serialVersionUID = 1L;
+
+        private int first;
+        private int last;
+
+        /**
+         * Initializes this task over the given range of tiles.
+         *
+         * @param f First tile (inclusive)
+         * @param l Last tile (exclusive)
+         */
+        public TileTask(int f, int l)
+        {
+            first = f;
+            last = l;
+        }
+
+        /**
+         * Draws the tiles, or splits the range if it is too large.
+         */
+        protected void compute()
+        {
+            if(last - first > TILES_PER_TASK)
+            {
+                int mid = (first + last) >>> 1;
+                invokeAll(new TileTask(first, mid),
+                          new TileTask(mid, last));
+                return;
+            }
+
+            for(int i=first; i<last; i++)
+            {
+                drawTile(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package nova.game.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Leaves trails behind everything that moves.  Instead of clearing the
+ * frame before drawing, the last frame is darkened by FADE and the new one
+ * is drawn on top, so anything that has moved leaves a fading copy of
+ * itself behind.  Things that don't move, like the grid, are drawn at full
+ * brightness every frame and look the same as before.
+ * <p>
+ * Since the frame is kept from one frame to the next, anything added to it
+ * afterwards, such as bloom, would build up.  The frame is therefore
+ * copied before being shown, and bloom is applied to the copy.
+ * <p>
+ * As with Bloom, the frame must be a TYPE_INT_RGB image, and its pixels
+ * are used directly.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Trails
+{
+    public static final Trails instance = new Trails();
+
+    //brightness kept from the last frame, out of 256
+    private static final int FADE = 180;
+
+    //the copy of the frame that is shown
+    private BufferedImage display;
+
+    //the scale of the last frame faded - the old frame is useless once
+    //the scale changes
+    private float lastScale;
+
+    /**
+     * Private constructor - can't instantiate.
+     */
+    private Trails() { }
+
+    /**
+     * Darkens the top left corner of the last frame so the next one can be
+     * drawn on top of it.  The whole frame is cleared instead if the scale
+     * has changed since the last frame.
+     *
+     * @param image The frame, a TYPE_INT_RGB image
+     * @param width Width of the part of the frame drawn to
+     * @param height Height of the part of the frame drawn to
+     * @param scale Scale the frame is drawn at
+     */
+    public void fade(BufferedImage image, int width, int height, float scale)
+    {
+        int[] pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        int stride = image.getWidth();
+        if(scale != lastScale)
+        {
+            Arrays.fill(pixels, 0);
+            lastScale = scale;
+            return;
+        }
+
+        for(int y=0; y<height; y++)
+        {
+            int i = y * stride;
+            for(int end=i+width; i<end; i++)
+            {
+                //red and blue are scaled together, with green in between
+                int p = pixels[i];
+                pixels[i] = (((p & 0xFF00FF) * FADE >> 8) & 0xFF00FF) | (((p & 0xFF00) * FADE >> 8) & 0xFF00);
+            }
+        }
+    }
+
+    /**
+     * Forgets the last frame, so that the next frame faded is cleared.
+     */
+    public void reset()
+    {
+        lastScale = 0;
+    }
+
+    /**
+     * Copies the top left corner of the frame into an image that can be
+     * changed and shown without changing the trails.
+     *
+     * @param image The frame, a TYPE_INT_RGB image
+     * @param width Width of the part of the frame drawn to
+     * @param height Height of the part of the frame drawn to
+     * @return The copy, a TYPE_INT_RGB image the size of the frame
+     */
+    public BufferedImage copy(BufferedImage image, int width, int height)
+    {
+        if(display == null || display.getWidth() != image.getWidth() || display.getHeight() != image.getHeight())
+        {
+            display = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+
+        int[] src = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt)display.getRaster().getDataBuffer()).getData();
+        int stride = image.getWidth();
+        for(int y=0; y<height; y++)
+        {
+            System.arraycopy(src, y * stride, dst, y * stride, width);
+        }
+        return display;
+    }
+}
@@ -0,0 +1,250 @@
+package nova.game.render;
+
+import java.awt.Color;
+import java.awt.geom.Line2D;
+
+/**
+ * Collects line segments during a frame and draws them in as few calls as
+ * possible.  Segments are sorted into buckets by color (with alpha rounded
+ * to one of ALPHA_LEVELS levels), and each bucket is drawn as a single path
+ * when the batch is flushed.  Setting a color and drawing a shape both have
+ * a fixed cost in Java2D, so a few hundred ship and particle lines drawn one
+ * by one cost far more than a handful of paths.
+ * <p>
+ * Batching can be switched off to compare against drawing each line
+ * directly.  Either way, the number of draw calls and color changes made
+ * during the last frame are recorded.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class VectorBatch
+{
+    public static final VectorBatch instance = new VectorBatch();
+
+    //number of levels alpha is rounded to when choosing a bucket
+    private static final int ALPHA_LEVELS = 16;
+
+    //most buckets held at once - a full batch is flushed early
+    private static final int MAX_BUCKETS = 64;
+
+    private Surface surface;
+    private boolean batching;
+
+    private int[] bucketKeys;
+    private Color[] bucketColors;
+    private float[][] bucketCoords;
+    private int[] bucketSizes;
+    private int bucketCount;
+    private int lastBucket;
+
+    private int drawCalls;
+    private int stateChanges;
+    private int lastDrawCalls;
+    private int lastStateChanges;
+
+    /**
+     * Initializes an empty batch.
+     */
+    private VectorBatch()
+    {
+        batching = true;
+        bucketKeys = new int[MAX_BUCKETS];
+        bucketColors = new Color[MAX_BUCKETS];
+        bucketCoords = new float[MAX_BUCKETS][];
+        bucketSizes = new int[MAX_BUCKETS];
+        bucketCount = 0;
+        lastBucket = -1;
+    }
+
+    /**
+     * Starts a new frame.  Lines will be drawn to the given surface.
+     *
+     * @param s The surface being drawn to
+     */
+    public void begin(Surface s)
+    {
+        surface = s;
+        drawCalls = 0;
+        stateChanges = 0;
+    }
+
+    /**
+     * Ends the current frame, drawing anything still in the batch and
+     * recording the frame's counts.
+     */
+    public void end()
+    {
+        flush();
+        lastDrawCalls = drawCalls;
+        lastStateChanges = stateChanges;
+        surface = null;
+    }
+
+    /**
+     * Adds a line to the batch, or draws it right away if batching is off.
+     *
+     * @param l The line
+     * @param c The color of the line
+     */
+    public void drawLine(Line2D l, Color c)
+    {
+        drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2(), c);
+    }
+
+    /**
+     * Adds a line to the batch, or draws it right away if batching is off.
+     *
+     * @param x1 x-coordinate of first endpoint
+     * @param y1 y-coordinate of first endpoint
+     * @param x2 x-coordinate of second endpoint
+     * @param y2 y-coordinate of second endpoint
+     * @param c The color of the line
+     */
+    public void drawLine(double x1, double y1, double x2, double y2, Color c)
+    {
+        if(!batching)
+        {
+            setColor(c);
+            surface.drawLine(x1, y1, x2, y2);
+            drawCalls++;
+            return;
+        }
+
+        int bucket = findBucket(c);
+        int size = bucketSizes[bucket];
+        float[] coords = bucketCoords[bucket];
+        if(size + 4 > coords.length)
+        {
+            float[] grown = new float[coords.length * 2];
+            System.arraycopy(coords, 0, grown, 0, size);
+            coords = grown;
+            bucketCoords[bucket] = coords;
+        }
+        coords[size] = (float)x1;
+        coords[size+1] = (float)y1;
+        coords[size+2] = (float)x2;
+        coords[size+3] = (float)y2;
+        bucketSizes[bucket] = size + 4;
+    }
+
+    /**
+     * Draws everything in the batch, one path per bucket.  Should be called
+     * before drawing anything that must appear on top of the batched lines.
+     */
+    public void flush()
+    {
+        for(int b=0; b<bucketCount; b++)
+        {
+            int size = bucketSizes[b];
+            if(size > 0)
+            {
+                setColor(bucketColors[b]);
+                surface.drawLines(bucketCoords[b], size);
+                drawCalls++;
+                bucketSizes[b] = 0;
+            }
+        }
+    }
+
+    /**
+     * Helper method that finds the bucket for a color, adding one if needed.
+     * The colors of the buckets are kept between frames, so in a steady game
+     * no colors are created.
+     *
+     * @param c The color of a line
+     * @return Index of the bucket
+     */
+    private int findBucket(Color c)
+    {
+        int alpha = (c.getAlpha() * (ALPHA_LEVELS - 1) + 127) / 255 * 255 / (ALPHA_LEVELS - 1);
+        int key = (alpha << 24) | (c.getRGB() & 0xFFFFFF);
+
+        if(lastBucket >= 0 && bucketKeys[lastBucket] == key)
+        {
+            return lastBucket;
+        }
+        for(int b=0; b<bucketCount; b++)
+        {
+            if(bucketKeys[b] == key)
+            {
+                lastBucket = b;
+                return b;
+            }
+        }
+
+        if(bucketCount == MAX_BUCKETS)
+        {
+            flush();
+            bucketCount = 0;
+        }
+        int b = bucketCount++;
+        bucketKeys[b] = key;
+        bucketColors[b] = (c.getAlpha() == alpha) ? c : new Color(key, true);
+        if(bucketCoords[b] == null)
+        {
+            bucketCoords[b] = new float[256];
+        }
+        bucketSizes[b] = 0;
+        lastBucket = b;
+        return b;
+    }
+
+    /**
+     * Helper method that sets the current color, counting actual changes.
+     *
+     * @param c The new color
+     */
+    private void setColor(Color c)
+    {
+        if(!c.equals(surface.getColor()))
+        {
+            surface.setColor(c);
+            stateChanges++;
+        }
+    }
+
+    /**
+     * Returns whether lines are being batched.
+     *
+     * @return True if batching, false if drawing lines directly
+     */
+    public boolean isBatching()
+    {
+        return batching;
+    }
+
+    /**
+     * Switches batching on or off.  Any batched lines are drawn first.
+     *
+     * @param b Whether or not to batch lines
+     */
+    public void setBatching(boolean b)
+    {
+        if(surface != null)
+        {
+            flush();
+        }
+        batching = b;
+    }
+
+    /**
+     * Returns the number of draw calls made during the last frame.
+     *
+     * @return Number of draw calls
+     */
+    public int getDrawCalls()
+    {
+        return lastDrawCalls;
+    }
+
+    /**
+     * Returns the number of color changes made during the last frame.
+     *
+     * @return Number of color changes
+     */
+    public int getStateChanges()
+    {
+        return lastStateChanges;
+    }
+}
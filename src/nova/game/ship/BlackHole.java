@@ -3,6 +3,8 @@ package nova.game.ship;
 import java.awt.Color;
 import java.awt.geom.Line2D;
 
+import nova.game.engine.grid.SpringGrid;
+import nova.game.engine.particle.ParticleEngine;
 import nova.game.util.LinkList;
 
 /**
@@ -15,6 +17,10 @@ import nova.game.util.LinkList;
 public class BlackHole extends Ship
 {
     private static final double G = 75.0; //gravitational constant
+    private static final double PARTICLE_RADIUS = 200.0; //reach of the pull on particles
+    private static final double PARTICLE_PULL = 1.5; //pull on particles at the center
+    private static final double GRID_RADIUS = 150.0; //reach of the pull on the background grid
+    private static final double GRID_PULL = 0.15; //pull on the background grid at the center
     private MainShip ship;
     private LinkList<Bullet> bullets;
 
@@ -43,8 +49,8 @@ public class BlackHole extends Ship
     }
 
     /**
-     * Acts by forcing gravity on the main ship and all bullets
-     * in the game.
+     * Acts by forcing gravity on the main ship, all bullets
+     * in the game, any nearby particles and the background grid.
      */
     public void act()
     {
@@ -75,6 +81,9 @@ public class BlackHole extends Ship
             b.accelerate(f, a);
         }
 
+        ParticleEngine.instance.addForceField(xPos, yPos, PARTICLE_RADIUS, -PARTICLE_PULL);
+        SpringGrid.instance.applyRadialForce(xPos, yPos, GRID_RADIUS, -GRID_PULL);
+
         rotation += Math.PI/64;
     }
 
@@ -1,7 +1,5 @@
 package nova.game.ship;
 
-import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.geom.Line2D;
 
 import nova.game.engine.GameSettings;
@@ -34,6 +32,8 @@ public class Bullet
     {
         xPos = x;
         yPos = y;
+        lastX = x;
+        lastY = y;
         angle = a;
 
         xVel = 15 * Math.cos(angle);
@@ -136,15 +136,4 @@ public class Bullet
         return xPos > 0 && yPos > 0
             && xPos < GameSettings.WIDTH && yPos < GameSettings.HEIGHT;
     }
-
-    /**
-     * Paints this bullet.
-     *
-     * @param g The Graphics object being painted to
-     */
-    public void paint(Graphics g)
-    {
-        g.setColor(Color.WHITE);
-        g.fillOval((int)xPos-2, (int)yPos-2, 4, 4);
-    }
 }
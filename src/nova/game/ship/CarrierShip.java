@@ -3,10 +3,11 @@ package nova.game.ship;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.geom.Line2D;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import nova.game.engine.Engine;
 import nova.game.engine.GameSettings;
+import nova.game.engine.WorldRandom;
 
 /**
  * A class representing a carrier that will occasionally spawn
@@ -20,7 +21,6 @@ public class CarrierShip extends Ship
     private static final int SPAWN_OFFSET = 250;
     private int offset;
     private boolean isSpawning;
-    private static Random numGen = new Random();
     
     /**
      * Initializes the CarrierShip at the specified position.
@@ -72,7 +72,7 @@ public class CarrierShip extends Ship
         if(!isSpawning)
         {
             double force = 0.50;
-            double dir = numGen.nextInt(4);
+            double dir = WorldRandom.instance.getShips().nextInt(4);
             accelerate(force, dir);
             xPos += xVel;
             yPos += yVel;
@@ -93,6 +93,7 @@ public class CarrierShip extends Ship
     private void spawn()
     {
         isSpawning = true;
+        SplittableRandom numGen = WorldRandom.instance.getShips();
         
         for(int i = 0; i < numGen.nextInt(15)+1; i++)
         {
@@ -109,8 +109,19 @@ public class DiamondShip extends Ship
      */
     public Line2D[] getLines()
     {
-        int offset = (int)pulseTimer % 5;
-        offset = (pulseTimer % 10 < 5) ? offset : 5-offset;
+        return getLines(getAnimationPhase());
+    }
+
+    /**
+     * Returns the lines that make up this ship at a given point in its
+     * pulse.
+     *
+     * @param phase How far out the ship is pulsed, from 0 to 5
+     * @return The array of lines
+     */
+    public Line2D[] getLines(int phase)
+    {
+        int offset = phase;
 
         int[] xPoints = new int[]
         {
@@ -136,6 +147,17 @@ public class DiamondShip extends Ship
         return lines;
     }
 
+    /**
+     * The animation phase of a diamond ship is how far out it is pulsed.
+     *
+     * @return How far out the ship is pulsed, from 0 to 5
+     */
+    public int getAnimationPhase()
+    {
+        int offset = (int)pulseTimer % 5;
+        return (pulseTimer % 10 < 5) ? offset : 5-offset;
+    }
+
     /**
      * Diamond ships are worth 100 points.
      */
@@ -1,17 +1,16 @@
 package nova.game.ship;
 
 import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.Polygon;
 import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.Line2D;
 
-import nova.game.engine.EventHandler;
 import nova.game.engine.GameSettings;
+import nova.game.engine.InputFrame;
+import nova.game.engine.SimClock;
+import nova.game.render.Surface;
 
 /**
  * The main ship of the game that is controlled by the user.
@@ -23,6 +22,15 @@ public class MainShip extends Ship
 {
     private static final double FORCE = 1.0;
 
+    //the ship is drawn as three overlapping polygons - filling each of them
+    //looks the same as filling their union, which is far more costly
+    private static final Polygon[] PARTS =
+    {
+        new Polygon(new int[] {0, 5, 0, -5}, new int[] {-10, 0, 10, 0}, 4),
+        new Polygon(new int[] {-8, -8, -3, -14}, new int[] {-25, 0, 12, 0}, 4),
+        new Polygon(new int[] {8, 8, 3, 14}, new int[] {-25, 0, 12, 0}, 4),
+    };
+
     private int bulletDelay;
     private int shotToggle;
     private long lastShotTime;
@@ -84,7 +92,6 @@ public class MainShip extends Ship
      */
     public void act()
     {
-        handleKeyEvents();
         xVel *= 0.90;
         yVel *= 0.90;
         xPos += xVel;
@@ -110,40 +117,9 @@ public class MainShip extends Ship
      */
     public Area getArea()
     {
-        int[] xPoints1 = new int[]
-        {
-            0, 5, 0, -5,
-        };
-        int[] yPoints1 = new int[]
-        {
-            -10, 0, 10, 0,
-        };
-
-        int[] xPoints2 = new int[]
-        {
-            -8, -8, -3, -14,
-        };
-        int[] yPoints2 = new int[]
-        {
-            -25, 0, 12, 0,
-        };
-
-        int[] xPoints3 = new int[]
-        {
-            8, 8, 3, 14,
-        };
-        int[] yPoints3 = new int[]
-        {
-            -25, 0, 12, 0,
-        };
-
-        Polygon poly1 = new Polygon(xPoints1, yPoints1, 4);
-        Polygon poly2 = new Polygon(xPoints2, yPoints2, 4);
-        Polygon poly3 = new Polygon(xPoints3, yPoints3, 4);
-
-        Area area = new Area(poly1);
-        area.add(new Area(poly2));
-        area.add(new Area(poly3));
+        Area area = new Area(PARTS[0]);
+        area.add(new Area(PARTS[1]));
+        area.add(new Area(PARTS[2]));
         return area;
     }
 
@@ -217,55 +193,74 @@ public class MainShip extends Ship
     }
 
     /**
-     * Handles the key events to accelerate the ship in a certain direction.
+     * Accelerates the ship in the directions of the keys held.  Should be
+     * called just before the ship acts.
+     *
+     * @param input The input of the step
      */
-    private void handleKeyEvents()
+    public void steer(InputFrame input)
     {
-        if(EventHandler.instance.isKeyPressed(KeyEvent.VK_W))
+        if(input.isKeyPressed(KeyEvent.VK_W))
         {
             accelerate(FORCE, -Math.PI/2);
         }
-        if(EventHandler.instance.isKeyPressed(KeyEvent.VK_S))
+        if(input.isKeyPressed(KeyEvent.VK_S))
         {
             accelerate(FORCE, Math.PI/2);
         }
-        if(EventHandler.instance.isKeyPressed(KeyEvent.VK_A))
+        if(input.isKeyPressed(KeyEvent.VK_A))
         {
             accelerate(FORCE, Math.PI);
         }
-        if(EventHandler.instance.isKeyPressed(KeyEvent.VK_D))
+        if(input.isKeyPressed(KeyEvent.VK_D))
         {
             accelerate(FORCE, Math.PI*2);
         }
     }
 
     /**
-     * Paints this ship.
+     * Paints this ship at the given position and rotation.  The main ship
+     * is filled, so it is drawn straight away rather than batched.
      *
-     * @param g The Graphics object being painted to.
+     * @param g The surface being painted to.
+     * @param x x-coordinate to draw the ship at
+     * @param y y-coordinate to draw the ship at
+     * @param rot Rotation to draw the ship at
+     * @param phase Animation phase to draw the ship at
      */
-    public void paint(Graphics g)
+    public void paint(Surface g, double x, double y, double rot, int phase)
     {
-        Graphics2D g2d = (Graphics2D)g;
-        AffineTransform oldTransform = g2d.getTransform();
-
-        g2d.transform(AffineTransform.getTranslateInstance(xPos, yPos));
-        g2d.transform(AffineTransform.getRotateInstance(rotation));
-        g2d.setColor(getColor());
-        g2d.fill(getArea());
+        drawShape(g, x, y, rot, phase);
+    }
 
-        g2d.setTransform(oldTransform);
+    /**
+     * Draws this ship by filling each of its parts.
+     *
+     * @param g The surface being drawn to
+     * @param x x-coordinate to draw the ship at
+     * @param y y-coordinate to draw the ship at
+     * @param rot Rotation to draw the ship at
+     * @param phase Animation phase to draw the ship at
+     */
+    public void drawShape(Surface g, double x, double y, double rot, int phase)
+    {
+        g.setColor(getColor());
+        for(int i=0; i<PARTS.length; i++)
+        {
+            g.fillPolygon(PARTS[i], x, y, rot);
+        }
     }
 
     /**
      * Polls the ship to shoot a bullet, which may or may not happen
-     * depending on when the last bullet shot was.
+     * depending on how much simulated time has passed since the last
+     * bullet was shot.
      *
      * @return A bullet if the ship can shoot now, null otherwise
      */
     public Bullet shoot()
     {
-        long time = System.currentTimeMillis();
+        long time = SimClock.instance.getMillis();
         if(time - lastShotTime > bulletDelay)
         {
             lastShotTime = time;
@@ -1,12 +1,12 @@
 package nova.game.ship;
 
 import java.awt.Color;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 
+import nova.game.render.Surface;
+import nova.game.render.VectorBatch;
 import nova.game.util.LineIntersection;
 import nova.game.util.LineTransform;
 
@@ -23,6 +23,9 @@ public abstract class Ship
     protected double xVel;
     protected double yVel;
     protected double rotation;
+    private double lastX;
+    private double lastY;
+    private double lastRotation;
     private boolean isDone;
 
     /**
@@ -35,6 +38,8 @@ public abstract class Ship
     {
         xPos = x;
         yPos = y;
+        lastX = x;
+        lastY = y;
         isDone = false;
     }
 
@@ -69,6 +74,32 @@ public abstract class Ship
      */
     public abstract Line2D[] getLines();
 
+    /**
+     * Returns the lines defining this ship at a given animation phase.
+     * Ships that don't animate only have one phase, so by default this
+     * is the same as getLines().  Only the phase is used, so it is safe
+     * to call while the ship is acting on another thread.
+     *
+     * @param phase The animation phase
+     * @return Array of lines
+     */
+    public Line2D[] getLines(int phase)
+    {
+        return getLines();
+    }
+
+    /**
+     * Returns the current animation phase of this ship, which together
+     * with its color fully decides its shape.  Ships that don't animate
+     * are always in phase 0.
+     *
+     * @return The animation phase, from 0 to 32767
+     */
+    public int getAnimationPhase()
+    {
+        return 0;
+    }
+
     /**
      * Returns the point value of this ship.
      *
@@ -165,6 +196,58 @@ public abstract class Ship
         return yPos;
     }
 
+    /**
+     * Returns the rotation of the ship.
+     *
+     * @return Rotation of the ship, in radians
+     */
+    public double getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+     * Returns the x position of the ship at the start of the time step.
+     *
+     * @return Previous x-coordinate of the ship
+     */
+    public double getLastX()
+    {
+        return lastX;
+    }
+
+    /**
+     * Returns the y position of the ship at the start of the time step.
+     *
+     * @return Previous y-coordinate of the ship
+     */
+    public double getLastY()
+    {
+        return lastY;
+    }
+
+    /**
+     * Returns the rotation of the ship at the start of the time step.
+     *
+     * @return Previous rotation of the ship, in radians
+     */
+    public double getLastRotation()
+    {
+        return lastRotation;
+    }
+
+    /**
+     * Remembers the current position and rotation of the ship, so that it
+     * can be drawn moving smoothly to wherever it is after acting.  Called
+     * at the start of each time step.
+     */
+    public void savePose()
+    {
+        lastX = xPos;
+        lastY = yPos;
+        lastRotation = rotation;
+    }
+
     /**
      * Returns whether or not the ship is finished.
      *
@@ -186,21 +269,43 @@ public abstract class Ship
     }
 
     /**
-     * Paints this ship.
+     * Paints this ship at the given position, rotation and animation phase
+     * by adding its lines to the vector batch.  Only the ship's shape and
+     * color are used, so it is safe to call while the ship is acting on
+     * another thread.
      *
-     * @param g The Graphics object being painted to
+     * @param g The surface being painted to
+     * @param x x-coordinate to draw the ship at
+     * @param y y-coordinate to draw the ship at
+     * @param rot Rotation to draw the ship at
+     * @param phase Animation phase to draw the ship at
      */
-    public void paint(Graphics g)
+    public void paint(Surface g, double x, double y, double rot, int phase)
     {
-        if(!isDone())
+        Color c = getColor();
+        for(Line2D line : getLines(phase))
         {
-            Graphics2D g2d = (Graphics2D)g;
+            VectorBatch.instance.drawLine(LineTransform.transform(line, x, y, rot), c);
+        }
+    }
 
-            g2d.setColor(getColor());
-            for(Line2D line : getTransformedLines())
-            {
-                g2d.draw(line);
-            }
+    /**
+     * Draws this ship straight to a surface rather than through the
+     * vector batch.  Used to render ship sprites.
+     *
+     * @param g The surface being drawn to
+     * @param x x-coordinate to draw the ship at
+     * @param y y-coordinate to draw the ship at
+     * @param rot Rotation to draw the ship at
+     * @param phase Animation phase to draw the ship at
+     */
+    public void drawShape(Surface g, double x, double y, double rot, int phase)
+    {
+        g.setColor(getColor());
+        for(Line2D line : getLines(phase))
+        {
+            Line2D l = LineTransform.transform(line, x, y, rot);
+            g.drawLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
         }
     }
 }
@@ -2,7 +2,9 @@ package nova.game.ship;
 
 import java.awt.Color;
 import java.awt.geom.Line2D;
-import java.util.Random;
+import java.util.SplittableRandom;
+
+import nova.game.engine.WorldRandom;
 
 /**
  * Defines a triangular ship which kind of just sits there and does
@@ -16,6 +18,9 @@ public class TriangleShip extends Ship
     private static final int maxDist = 25;
     private static final int minDist = 10;
 
+    //a vertex can step one past minDist before it turns around
+    private static final int PHASE_BIAS = minDist - 1;
+
     private int[] vDist;
     private int[] offset;
 
@@ -31,7 +36,7 @@ public class TriangleShip extends Ship
         vDist = new int[3];
         offset = new int[3];
 
-        Random numGen = new Random();
+        SplittableRandom numGen = WorldRandom.instance.getShips();
         for(int i=0; i<vDist.length; i++)
         {
             vDist[i] = numGen.nextInt(maxDist-minDist) + minDist;
@@ -71,12 +76,39 @@ public class TriangleShip extends Ship
      */
     public Line2D[] getLines()
     {
-        Line2D line1 = new Line2D.Double(0, vDist[0], .866 * vDist[1], -.5 * vDist[1]);
-        Line2D line2 = new Line2D.Double(.866 * vDist[1], -.5 * vDist[1], -.866 * vDist[2], -.5f * vDist[2]);
-        Line2D line3 = new Line2D.Double(-.866 * vDist[2], -.5 * vDist[2], 0, vDist[0]);
+        return getLines(getAnimationPhase());
+    }
+
+    /**
+     * Returns the lines that define this triangle at a given point in its
+     * undulation.
+     *
+     * @param phase Distances of the three vertices, as packed by
+     *              getAnimationPhase()
+     * @return Array of lines
+     */
+    public Line2D[] getLines(int phase)
+    {
+        int d0 = (phase & 31) + PHASE_BIAS;
+        int d1 = ((phase >> 5) & 31) + PHASE_BIAS;
+        int d2 = ((phase >> 10) & 31) + PHASE_BIAS;
+        Line2D line1 = new Line2D.Double(0, d0, .866 * d1, -.5 * d1);
+        Line2D line2 = new Line2D.Double(.866 * d1, -.5 * d1, -.866 * d2, -.5f * d2);
+        Line2D line3 = new Line2D.Double(-.866 * d2, -.5 * d2, 0, d0);
         return new Line2D[]{line1, line2, line3};
     }
 
+    /**
+     * The animation phase of a triangle ship packs the distance of each
+     * of its vertices from the center into five bits.
+     *
+     * @return The packed vertex distances
+     */
+    public int getAnimationPhase()
+    {
+        return (vDist[0] - PHASE_BIAS) | ((vDist[1] - PHASE_BIAS) << 5) | ((vDist[2] - PHASE_BIAS) << 10);
+    }
+
     /**
      * Triangle ships are green.
      */
@@ -3,9 +3,9 @@ package nova.game.ship;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.geom.Line2D;
-import java.util.Random;
 
 import nova.game.engine.GameSettings;
+import nova.game.engine.WorldRandom;
 
 /**
  * Defines a really small ship that moves at random and is quite
@@ -17,8 +17,6 @@ import nova.game.engine.GameSettings;
  */
 public class XShip extends Ship
 {
-    private static Random numGen = new Random();
-
     /**
      * Initializes this ship at the specified location.
      *
@@ -63,7 +61,7 @@ public class XShip extends Ship
     public void act()
     {
         double force = 0.50;
-        double dir = numGen.nextInt(4);
+        double dir = WorldRandom.instance.getShips().nextInt(4);
         accelerate(force, dir);
         xPos += xVel;
         yPos += yVel;
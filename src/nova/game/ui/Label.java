@@ -0,0 +1,186 @@
+package nova.game.ui;
+
+import nova.game.render.GlyphAtlas;
+import nova.game.render.Surface;
+
+/**
+ * A widget that shows a line of text or a number, drawn from a glyph
+ * atlas.  Its width is measured only when the text changes, and setting
+ * the same text or number again doesn't mark it dirty, so a label can be
+ * updated every frame for free.
+ * <p>
+ * A label can be given a second atlas, of the same font, that is used
+ * while the mouse is over it.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Label extends Widget
+{
+    private GlyphAtlas glyphs;
+    private GlyphAtlas hoverGlyphs;
+
+    //either the text or the number is shown
+    private String text;
+    private int value;
+    private boolean numeric;
+
+    private int textWidth;
+
+    /**
+     * Initializes a label showing some text.
+     *
+     * @param g Glyphs the text is drawn with
+     * @param s The text
+     */
+    public Label(GlyphAtlas g, String s)
+    {
+        glyphs = g;
+        setText(s);
+    }
+
+    /**
+     * Initializes a label showing a number.
+     *
+     * @param g Glyphs the number is drawn with
+     * @param v The number
+     */
+    public Label(GlyphAtlas g, int v)
+    {
+        glyphs = g;
+        text = "";
+        setValue(v);
+    }
+
+    /**
+     * Sets the glyphs used while the mouse is over the label.
+     *
+     * @param g The glyphs, in the same font as the label's, or null
+     */
+    public void setHoverGlyphs(GlyphAtlas g)
+    {
+        hoverGlyphs = g;
+        markDirty();
+    }
+
+    /**
+     * Returns the text shown, if the label isn't showing a number.
+     *
+     * @return The text
+     */
+    public String getText()
+    {
+        return text;
+    }
+
+    /**
+     * Shows some text, marking the label dirty if it has changed.
+     *
+     * @param s The text
+     */
+    public void setText(String s)
+    {
+        if(numeric || !s.equals(text))
+        {
+            text = s;
+            numeric = false;
+            textWidth = glyphs.stringWidth(s);
+            markDirty();
+        }
+    }
+
+    /**
+     * Returns the number shown, if the label is showing a number.
+     *
+     * @return The number
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Shows a number, marking the label dirty if it has changed.
+     *
+     * @param v The number
+     */
+    public void setValue(int v)
+    {
+        if(!numeric || v != value)
+        {
+            value = v;
+            numeric = true;
+            textWidth = glyphs.intWidth(v);
+            markDirty();
+        }
+    }
+
+    /**
+     * Returns true if the label has glyphs for when the mouse is over it.
+     *
+     * @return Whether or not the label changes while hovered
+     */
+    public boolean changesOnHover()
+    {
+        return hoverGlyphs != null;
+    }
+
+    /**
+     * Returns the padding the glyphs are drawn with.
+     *
+     * @return Distance outside the box, in pixels
+     */
+    public int getOverhang()
+    {
+        return glyphs.getPad();
+    }
+
+    /**
+     * Returns the width of the text.
+     *
+     * @return Width, in pixels
+     */
+    protected int measureWidth()
+    {
+        return textWidth;
+    }
+
+    /**
+     * Returns the height of a line of text.
+     *
+     * @return Height, in pixels
+     */
+    protected int measureHeight()
+    {
+        return glyphs.getHeight();
+    }
+
+    /**
+     * Returns the ascent of the font.
+     *
+     * @return Ascent, in pixels
+     */
+    protected int measureAscent()
+    {
+        return glyphs.getAscent();
+    }
+
+    /**
+     * Draws the text, brighter if the mouse is over it.
+     *
+     * @param g The surface being drawn to
+     */
+    public void paint(Surface g)
+    {
+        GlyphAtlas atlas = (isHovered() && hoverGlyphs != null) ? hoverGlyphs : glyphs;
+        int baseline = getY() + glyphs.getAscent();
+        if(numeric)
+        {
+            atlas.drawInt(g, value, getX(), baseline);
+        }
+        else
+        {
+            atlas.drawString(g, text, getX(), baseline);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package nova.game.ui;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import nova.game.render.Graphics2DSurface;
+import nova.game.render.Surface;
+
+/**
+ * The root of a tree of widgets, covering a fixed part of the screen.  The
+ * widgets are drawn into a cached image the size of that part, which is
+ * simply copied to the screen every frame.  When widgets are dirty, only
+ * the boxes they were and are now in are cleared and drawn again, along
+ * with any other widgets overlapping those boxes.
+ * <p>
+ * Which widget the mouse is over is decided from the boxes worked out when
+ * the widgets were last laid out, so nothing is measured just to follow
+ * the mouse.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Layer
+{
+    //part of the screen covered
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    private List<Widget> widgets;
+    private List<Widget> leaves;
+    private BufferedImage cache;
+
+    //widgets drawn into the cache when it was last painted
+    private int lastDrawn;
+
+    /**
+     * Initializes an empty layer covering part of the screen.
+     *
+     * @param lx x-coordinate of the left of the layer
+     * @param ly y-coordinate of the top of the layer
+     * @param w Width of the layer
+     * @param h Height of the layer
+     */
+    public Layer(int lx, int ly, int w, int h)
+    {
+        x = lx;
+        y = ly;
+        width = w;
+        height = h;
+        widgets = new ArrayList<Widget>();
+        leaves = new ArrayList<Widget>();
+    }
+
+    /**
+     * Adds a widget to the layer.  Widgets added later are drawn on top.
+     *
+     * @param w The widget
+     */
+    public void add(Widget w)
+    {
+        widgets.add(w);
+        leaves.clear();
+        for(int i=0; i<widgets.size(); i++)
+        {
+            widgets.get(i).addLeaves(leaves);
+        }
+    }
+
+    /**
+     * Returns the number of widgets drawn into the cache the last time the
+     * layer was painted.
+     *
+     * @return Number of widgets drawn
+     */
+    public int getLastDrawn()
+    {
+        return lastDrawn;
+    }
+
+    /**
+     * Lays out every dirty widget, so that their boxes are up to date.
+     */
+    public void validate()
+    {
+        for(int i=0; i<widgets.size(); i++)
+        {
+            Widget w = widgets.get(i);
+            if(w.isDirty())
+            {
+                w.layout();
+            }
+        }
+    }
+
+    /**
+     * Marks the widgets under the mouse as hovered, and all others as not.
+     *
+     * @param mx x-coordinate of the mouse
+     * @param my y-coordinate of the mouse
+     * @return The widget under the mouse that changes while hovered, or
+     *         null if there isn't one
+     */
+    public Widget hover(int mx, int my)
+    {
+        validate();
+        Widget hovered = null;
+        for(int i=0; i<leaves.size(); i++)
+        {
+            Widget w = leaves.get(i);
+            if(w.changesOnHover())
+            {
+                w.setHovered(w.contains(mx, my));
+                if(w.isHovered())
+                {
+                    hovered = w;
+                }
+            }
+        }
+        return hovered;
+    }
+
+    /**
+     * Paints the layer, first redrawing the parts of the cache that have
+     * changed.
+     *
+     * @param g The surface being drawn to
+     */
+    public void paint(Surface g)
+    {
+        if(cache == null)
+        {
+            cache = createCache(g.getDeviceConfiguration());
+        }
+        validate();
+
+        lastDrawn = 0;
+        Graphics2D cg = null;
+        Surface cs = null;
+        for(int i=0; i<leaves.size(); i++)
+        {
+            Widget w = leaves.get(i);
+            if(w.needsDrawing())
+            {
+                if(cg == null)
+                {
+                    cg = cache.createGraphics();
+                    cg.translate(-x, -y);
+                    cs = new Graphics2DSurface(cg);
+                }
+                redraw(cg, cs, w.getDrawnArea());
+                redraw(cg, cs, w.getArea());
+            }
+        }
+        if(cg != null)
+        {
+            cg.dispose();
+            for(int i=0; i<widgets.size(); i++)
+            {
+                widgets.get(i).clean();
+            }
+        }
+
+        g.drawImage(cache, x, y, 0, 0, width, height);
+    }
+
+    /**
+     * Helper method that creates the cache in a format suited to the
+     * surface being drawn to.
+     *
+     * @param gc Configuration of the surface being drawn to, or null for
+     *           a surface not drawn by Java2D
+     * @return The cache
+     */
+    private BufferedImage createCache(GraphicsConfiguration gc)
+    {
+        if(gc == null)
+        {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    /**
+     * Helper method that clears a box of the cache and draws every widget
+     * that overlaps it again, clipped to the box.
+     *
+     * @param cg Graphics of the cache, in screen coordinates
+     * @param cs Surface wrapping the graphics
+     * @param area The box, as {x, y, width, height}
+     */
+    private void redraw(Graphics2D cg, Surface cs, int[] area)
+    {
+        if(area[2] <= 0 || area[3] <= 0)
+        {
+            return;
+        }
+
+        cg.setClip(area[0], area[1], area[2], area[3]);
+        cg.setComposite(AlphaComposite.Clear);
+        cg.fillRect(area[0], area[1], area[2], area[3]);
+        cg.setComposite(AlphaComposite.SrcOver);
+        for(int i=0; i<leaves.size(); i++)
+        {
+            Widget w = leaves.get(i);
+            int[] other = w.getArea();
+            if(other[0] < area[0] + area[2] && area[0] < other[0] + other[2]
+               && other[1] < area[1] + area[3] && area[1] < other[1] + other[3])
+            {
+                w.paint(cs);
+                lastDrawn++;
+            }
+        }
+    }
+}
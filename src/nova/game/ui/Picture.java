@@ -0,0 +1,67 @@
+package nova.game.ui;
+
+import java.awt.image.BufferedImage;
+
+import nova.game.render.Surface;
+
+/**
+ * A widget that shows an image, sitting on its baseline.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Picture extends Widget
+{
+    private BufferedImage image;
+
+    /**
+     * Initializes a widget showing an image.
+     *
+     * @param img The image
+     */
+    public Picture(BufferedImage img)
+    {
+        image = img;
+    }
+
+    /**
+     * Returns the width of the image.
+     *
+     * @return Width, in pixels
+     */
+    protected int measureWidth()
+    {
+        return image.getWidth();
+    }
+
+    /**
+     * Returns the height of the image.
+     *
+     * @return Height, in pixels
+     */
+    protected int measureHeight()
+    {
+        return image.getHeight();
+    }
+
+    /**
+     * Returns the height of the image, so that its bottom is on the
+     * baseline.
+     *
+     * @return Height, in pixels
+     */
+    protected int measureAscent()
+    {
+        return image.getHeight();
+    }
+
+    /**
+     * Draws the image.
+     *
+     * @param g The surface being drawn to
+     */
+    public void paint(Surface g)
+    {
+        g.drawImage(image, getX(), getY(), 0, 0, image.getWidth(), image.getHeight());
+    }
+}
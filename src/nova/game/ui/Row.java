@@ -0,0 +1,146 @@
+package nova.game.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nova.game.render.Surface;
+
+/**
+ * A widget that holds other widgets side by side, left to right, on a
+ * shared baseline.  The row is placed like any other widget, and whenever
+ * something in it changes size the widgets after it are moved along.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class Row extends Widget
+{
+    private List<Widget> children;
+    private List<Integer> gaps;
+
+    /**
+     * Initializes an empty row.
+     */
+    public Row()
+    {
+        children = new ArrayList<Widget>();
+        gaps = new ArrayList<Integer>();
+    }
+
+    /**
+     * Adds a widget to the right of the row.
+     *
+     * @param w The widget
+     * @param gap Gap between the widget and the one before it
+     */
+    public void add(Widget w, int gap)
+    {
+        w.setParent(this);
+        children.add(w);
+        gaps.add(children.size() == 1 ? 0 : gap);
+        markDirty();
+    }
+
+    /**
+     * Returns the total width of the widgets and the gaps between them.
+     *
+     * @return Width, in pixels
+     */
+    protected int measureWidth()
+    {
+        int width = 0;
+        for(int i=0; i<children.size(); i++)
+        {
+            width += gaps.get(i) + children.get(i).measureWidth();
+        }
+        return width;
+    }
+
+    /**
+     * Returns the height from the top of the tallest widget to the bottom
+     * of the lowest.
+     *
+     * @return Height, in pixels
+     */
+    protected int measureHeight()
+    {
+        int descent = 0;
+        for(int i=0; i<children.size(); i++)
+        {
+            Widget w = children.get(i);
+            descent = Math.max(descent, w.measureHeight() - w.measureAscent());
+        }
+        return measureAscent() + descent;
+    }
+
+    /**
+     * Returns the largest ascent of the widgets.
+     *
+     * @return Ascent, in pixels
+     */
+    protected int measureAscent()
+    {
+        int ascent = 0;
+        for(int i=0; i<children.size(); i++)
+        {
+            ascent = Math.max(ascent, children.get(i).measureAscent());
+        }
+        return ascent;
+    }
+
+    /**
+     * Works out the box of the row, then lines the widgets up inside it.
+     */
+    public void layout()
+    {
+        super.layout();
+        int x = getX();
+        int baseline = getY() + measureAscent();
+        for(int i=0; i<children.size(); i++)
+        {
+            Widget w = children.get(i);
+            x += gaps.get(i);
+            w.setAnchor(x, baseline, LEFT);
+            w.layout();
+            x += w.getWidth();
+        }
+    }
+
+    /**
+     * Records that the row and the widgets in it have been drawn.
+     */
+    void clean()
+    {
+        super.clean();
+        for(int i=0; i<children.size(); i++)
+        {
+            children.get(i).clean();
+        }
+    }
+
+    /**
+     * Adds the widgets in the row that draw themselves to a list.
+     *
+     * @param leaves The list
+     */
+    void addLeaves(List<Widget> leaves)
+    {
+        for(int i=0; i<children.size(); i++)
+        {
+            children.get(i).addLeaves(leaves);
+        }
+    }
+
+    /**
+     * Draws every widget in the row.
+     *
+     * @param g The surface being drawn to
+     */
+    public void paint(Surface g)
+    {
+        for(int i=0; i<children.size(); i++)
+        {
+            children.get(i).paint(g);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package nova.game.ui;
+
+import java.util.List;
+
+import nova.game.render.Surface;
+
+/**
+ * A single piece of a retained user interface, such as a label or an
+ * image.  A widget is placed by an anchor point on its baseline and an
+ * alignment, and its box is worked out from those only when it is laid
+ * out, not every time it is drawn.  The same box is used to decide which
+ * part of its layer to redraw and whether the mouse is over it.
+ * <p>
+ * Whenever something that changes how a widget looks is changed, the
+ * widget and every container holding it are marked dirty.  The layer the
+ * widget belongs to lays out and redraws only what is dirty.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public abstract class Widget
+{
+    //ways a widget can be aligned with its anchor
+    public static final int LEFT = 0;
+    public static final int CENTER = 1;
+    public static final int RIGHT = 2;
+
+    //anchor point, on the baseline, and how the widget lines up with it
+    private int anchorX;
+    private int anchorY;
+    private int align;
+
+    //box worked out when the widget was last laid out
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    //box the widget was drawn in when its layer was last painted
+    private int drawnX;
+    private int drawnY;
+    private int drawnWidth;
+    private int drawnHeight;
+
+    private boolean dirty;
+    private boolean hovered;
+    private Widget parent;
+
+    /**
+     * Initializes a dirty widget, so that it is laid out and drawn the
+     * first time its layer is painted.
+     */
+    public Widget()
+    {
+        dirty = true;
+    }
+
+    /**
+     * Returns the x-coordinate of the left of the widget.
+     *
+     * @return x-coordinate of the left, as of the last layout
+     */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinate of the top of the widget.
+     *
+     * @return y-coordinate of the top, as of the last layout
+     */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+     * Returns the width of the widget.
+     *
+     * @return Width, as of the last layout
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Returns the height of the widget.
+     *
+     * @return Height, as of the last layout
+     */
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Sets where the widget is placed.
+     *
+     * @param ax x-coordinate of the anchor point
+     * @param ay y-coordinate of the anchor point, on the baseline
+     * @param a LEFT, CENTER or RIGHT
+     */
+    public void setAnchor(int ax, int ay, int a)
+    {
+        if(ax != anchorX || ay != anchorY || a != align)
+        {
+            anchorX = ax;
+            anchorY = ay;
+            align = a;
+            markDirty();
+        }
+    }
+
+    /**
+     * Returns whether a point is inside the widget, as of the last layout.
+     *
+     * @param px x-coordinate of the point
+     * @param py y-coordinate of the point
+     * @return True if the point is inside
+     */
+    public boolean contains(int px, int py)
+    {
+        return px >= x && px < x + width && py >= y && py < y + height;
+    }
+
+    /**
+     * Returns whether the mouse is over the widget.
+     *
+     * @return True if the mouse is over the widget
+     */
+    public boolean isHovered()
+    {
+        return hovered;
+    }
+
+    /**
+     * Sets whether the mouse is over the widget, marking it dirty if that
+     * changes how it looks.
+     *
+     * @param h Whether or not the mouse is over the widget
+     */
+    public void setHovered(boolean h)
+    {
+        if(h != hovered)
+        {
+            hovered = h;
+            if(changesOnHover())
+            {
+                markDirty();
+            }
+        }
+    }
+
+    /**
+     * Returns whether the widget looks different while the mouse is over
+     * it.  Only these widgets are checked against the mouse.
+     *
+     * @return False, unless overridden
+     */
+    public boolean changesOnHover()
+    {
+        return false;
+    }
+
+    /**
+     * Returns whether the widget has changed since it was last drawn.
+     *
+     * @return True if dirty
+     */
+    public boolean isDirty()
+    {
+        return dirty;
+    }
+
+    /**
+     * Marks the widget and every container holding it dirty.
+     */
+    protected void markDirty()
+    {
+        for(Widget w=this; w!=null && !w.dirty; w=w.parent)
+        {
+            w.dirty = true;
+        }
+    }
+
+    /**
+     * Returns the container holding the widget.
+     *
+     * @return The container, or null if the widget is held by a layer
+     */
+    public Widget getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * Sets the container holding the widget.
+     *
+     * @param p The container
+     */
+    void setParent(Widget p)
+    {
+        parent = p;
+    }
+
+    /**
+     * Works out the box of the widget from its anchor, alignment and size.
+     * Containers override this to lay out what they hold as well.
+     */
+    public void layout()
+    {
+        width = measureWidth();
+        height = measureHeight();
+        y = anchorY - measureAscent();
+        x = anchorX;
+        if(align == CENTER)
+        {
+            x -= width/2;
+        }
+        else if(align == RIGHT)
+        {
+            x -= width;
+        }
+    }
+
+    /**
+     * Returns whether the widget needs to be drawn again, because it is
+     * dirty or has been moved since it was last drawn.
+     *
+     * @return True if it needs to be drawn
+     */
+    boolean needsDrawing()
+    {
+        return dirty || x != drawnX || y != drawnY || width != drawnWidth || height != drawnHeight;
+    }
+
+    /**
+     * Records that the widget and everything in it has been drawn where it
+     * is now.
+     */
+    void clean()
+    {
+        dirty = false;
+        drawnX = x;
+        drawnY = y;
+        drawnWidth = width;
+        drawnHeight = height;
+    }
+
+    /**
+     * Returns how far the widget may draw outside its box, such as the
+     * glow around a character.
+     *
+     * @return Distance outside the box, in pixels
+     */
+    public int getOverhang()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the box the widget was in when it was last drawn, grown by
+     * its overhang.
+     *
+     * @return The box, as {x, y, width, height}
+     */
+    int[] getDrawnArea()
+    {
+        int o = getOverhang();
+        return new int[] { drawnX - o, drawnY - o, drawnWidth + 2 * o, drawnHeight + 2 * o };
+    }
+
+    /**
+     * Returns the box the widget is in now, grown by its overhang.
+     *
+     * @return The box, as {x, y, width, height}
+     */
+    int[] getArea()
+    {
+        int o = getOverhang();
+        return new int[] { x - o, y - o, width + 2 * o, height + 2 * o };
+    }
+
+    /**
+     * Adds the widgets that draw themselves to a list.  A widget that
+     * isn't a container adds itself.
+     *
+     * @param leaves The list
+     */
+    void addLeaves(List<Widget> leaves)
+    {
+        leaves.add(this);
+    }
+
+    /**
+     * Returns the width of the widget.
+     *
+     * @return Width, in pixels
+     */
+    protected abstract int measureWidth();
+
+    /**
+     * Returns the height of the widget.
+     *
+     * @return Height, in pixels
+     */
+    protected abstract int measureHeight();
+
+    /**
+     * Returns the distance from the top of the widget to its baseline.
+     *
+     * @return Ascent, in pixels
+     */
+    protected abstract int measureAscent();
+
+    /**
+     * Draws the widget at its box, as of the last layout.
+     *
+     * @param g The surface being drawn to
+     */
+    public abstract void paint(Surface g);
+}
@@ -0,0 +1,147 @@
+package nova.game.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from non-negative long keys to int values, backed by plain
+ * arrays so that lookups never box their keys or allocate.  Collisions
+ * are resolved by linear probing, and removal shifts later entries back
+ * so no tombstones are left behind.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class LongIntMap
+{
+    //marks an empty slot - keys must never be negative
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Initializes an empty map able to hold the given number of entries
+     * without becoming more than half full.
+     *
+     * @param capacity Expected number of entries
+     */
+    public LongIntMap(int capacity)
+    {
+        int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        keys = new long[slots];
+        values = new int[slots];
+        mask = slots - 1;
+        clear();
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return Number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the value stored for a key.
+     *
+     * @param key The key
+     * @return The value, or -1 if the key isn't in the map
+     */
+    public int get(long key)
+    {
+        for(int i=slot(key); keys[i] != EMPTY; i=(i+1) & mask)
+        {
+            if(keys[i] == key)
+            {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a value for a key, replacing any value already there.
+     * The map must not be filled past its capacity.
+     *
+     * @param key The key, which must not be negative
+     * @param value The value
+     */
+    public void put(long key, int value)
+    {
+        int i = slot(key);
+        while(keys[i] != EMPTY && keys[i] != key)
+        {
+            i = (i+1) & mask;
+        }
+        if(keys[i] == EMPTY)
+        {
+            size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Removes a key from the map, if it is there.
+     *
+     * @param key The key
+     */
+    public void remove(long key)
+    {
+        int i = slot(key);
+        while(keys[i] != key)
+        {
+            if(keys[i] == EMPTY)
+            {
+                return;
+            }
+            i = (i+1) & mask;
+        }
+
+        //shift back any later entries that would no longer be found
+        int j = i;
+        while(true)
+        {
+            j = (j+1) & mask;
+            if(keys[j] == EMPTY)
+            {
+                break;
+            }
+            int home = slot(keys[j]);
+            if(((j - home) & mask) >= ((j - i) & mask))
+            {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Helper method that finds the slot a key hashes to.
+     *
+     * @param key The key
+     * @return Index of the slot
+     */
+    private int slot(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h >>> 32) & mask;
+    }
+}
@@ -0,0 +1,81 @@
+package nova.game.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one thread to another without locking.  The writer
+ * fills the back buffer and publishes it, and the reader takes the most
+ * recently published buffer.  A third buffer sits between the two, so
+ * neither thread ever waits for the other, and the reader never sees a
+ * buffer that is still being written.
+ * <p>
+ * Only one thread may write and only one thread may read.
+ *
+ * @author Kyle Morgan (knmorgan)
+ * @version 1.0
+ */
+public class TripleBuffer<T>
+{
+    //the middle index is stored with this bit set when it holds a buffer
+    //the reader has not seen yet
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private Object[] buffers;
+    private AtomicInteger middle;
+    private int back;
+    private int front;
+
+    /**
+     * Initializes the triple buffer with three buffers.  The first is
+     * returned to the reader until something is published.
+     *
+     * @param a The first buffer
+     * @param b The second buffer
+     * @param c The third buffer
+     */
+    public TripleBuffer(T a, T b, T c)
+    {
+        buffers = new Object[] {a, b, c};
+        front = 0;
+        middle = new AtomicInteger(1);
+        back = 2;
+    }
+
+    /**
+     * Returns the buffer the writer should fill.  Only called by the writer.
+     *
+     * @return The back buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer()
+    {
+        return (T)buffers[back];
+    }
+
+    /**
+     * Publishes the back buffer to the reader, replacing anything
+     * published before that the reader has not taken yet.  Only called by
+     * the writer.
+     */
+    public void publish()
+    {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the most recently published buffer.  The buffer stays the
+     * reader's until the next call.  Only called by the reader.
+     *
+     * @return The front buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getReadBuffer()
+    {
+        if((middle.get() & FRESH) != 0)
+        {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return (T)buffers[front];
+    }
+}